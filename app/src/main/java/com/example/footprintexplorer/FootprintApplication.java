@@ -5,9 +5,16 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.os.Build;
 
-import androidx.room.Room;
-
+import com.example.footprintexplorer.data.database.DatabaseProfile;
 import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.services.ChallengeEngine;
+import com.example.footprintexplorer.services.CoverageIndex;
+import com.example.footprintexplorer.services.DatabaseMaintenanceWorker;
+import com.example.footprintexplorer.services.RetentionWorker;
+import com.example.footprintexplorer.services.TrackingSessionManager;
+import com.example.footprintexplorer.utils.BadgeImageLoader;
+import com.example.footprintexplorer.utils.BatteryOptimizer;
+import com.example.footprintexplorer.utils.BatteryStateProvider;
 
 /**
  * 应用程序类，用于初始化全局组件
@@ -24,14 +31,49 @@ public class FootprintApplication extends Application {
         super.onCreate();
         instance = this;
         
-        // 初始化数据库
-        database = Room.databaseBuilder(getApplicationContext(),
-                FootprintDatabase.class, "footprint_database")
-                .fallbackToDestructiveMigration()
-                .build();
+        // 初始化数据库，与各组件通过getInstance获取的是同一个实例
+        database = FootprintDatabase.getInstance(this);
         
         // 创建通知渠道（Android 8.0+）
         createNotificationChannels();
+        
+        // 订阅电池状态广播，后续读取均使用缓存快照；低电量时数据库切换到省电配置
+        BatteryStateProvider batteryStateProvider = BatteryStateProvider.getInstance(this);
+        applyDatabaseProfile(batteryStateProvider.getSnapshot());
+        batteryStateProvider.addListener((previous, current) -> applyDatabaseProfile(current));
+        
+        // 提前初始化会话管理器，使会话ID的预读在用户开始追踪前完成
+        TrackingSessionManager.getInstance(this);
+        
+        // 挑战引擎在创建时订阅事件总线，需早于第一个会话结束事件
+        ChallengeEngine.getInstance(this);
+        
+        // 覆盖索引同样订阅位置点事件，索引文件不存在时在后台重建
+        CoverageIndex.getInstance(this);
+        
+        // 注册每日位置历史降采样任务
+        RetentionWorker.schedule(this);
+        
+        // 注册充电空闲时的数据库整理任务
+        DatabaseMaintenanceWorker.schedule(this);
+    }
+    
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        
+        // 界面不可见或内存紧张时释放徽章解码缓存
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            BadgeImageLoader.getInstance(this).trimMemory();
+        }
+    }
+    
+    /**
+     * 根据电池状态选择数据库配置
+     */
+    private void applyDatabaseProfile(BatteryStateProvider.BatterySnapshot snapshot) {
+        boolean lowBattery = BatteryOptimizer.getBatteryState(snapshot) == BatteryOptimizer.BatteryState.LOW;
+        database.applyProfile(lowBattery ? DatabaseProfile.BATTERY_SAVER : DatabaseProfile.TRACKING);
     }
     
     private void createNotificationChannels() {
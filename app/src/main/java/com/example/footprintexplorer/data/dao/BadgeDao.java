@@ -25,6 +25,12 @@ public interface BadgeDao {
     @Insert
     long insert(Badge badge);
     
+    /**
+     * 批量插入徽章
+     */
+    @Insert
+    List<Long> insertAll(List<Badge> badges);
+    
     /**
      * 更新徽章
      */
@@ -78,4 +84,82 @@ public interface BadgeDao {
      */
     @Query("SELECT COUNT(*) FROM badges WHERE category = :category AND isUnlocked = 1")
     int getUnlockedBadgesCountByCategory(String category);
+    
+    /**
+     * 获取徽章总数
+     */
+    @Query("SELECT COUNT(*) FROM badges")
+    int getBadgeCount();
+    
+    /**
+     * 获取指定类别的徽章总数
+     */
+    @Query("SELECT COUNT(*) FROM badges WHERE category = :category")
+    int getBadgeCountByCategory(String category);
+    
+    /**
+     * 分页获取徽章：第一页
+     * 按解锁日期倒序，日期相同时按ID倒序，保证排序键唯一；
+     * 未解锁的徽章日期为NULL，排在最后并按ID倒序
+     */
+    @Query("SELECT * FROM badges ORDER BY unlockDate DESC, id DESC LIMIT :limit")
+    List<Badge> getBadgesPage(int limit);
+    
+    /**
+     * 分页获取徽章：排在指定徽章之后的一页（键集分页）
+     * 指定徽章有解锁日期时使用；日期为NULL的徽章排在所有有日期的徽章之后，一并包含
+     */
+    @Query("SELECT * FROM badges WHERE (unlockDate <= :afterDate AND (unlockDate < :afterDate OR id < :afterId)) " +
+           "OR unlockDate IS NULL ORDER BY unlockDate DESC, id DESC LIMIT :limit")
+    List<Badge> getBadgesPageAfter(Date afterDate, long afterId, int limit);
+    
+    /**
+     * 分页获取徽章：排在指定的无日期徽章之后的一页
+     * 指定徽章的解锁日期为NULL时使用，之后只剩无日期的徽章
+     */
+    @Query("SELECT * FROM badges WHERE unlockDate IS NULL AND id < :afterId ORDER BY id DESC LIMIT :limit")
+    List<Badge> getUndatedBadgesPageAfter(long afterId, int limit);
+    
+    /**
+     * 分页获取指定类别的徽章：第一页
+     */
+    @Query("SELECT * FROM badges WHERE category = :category ORDER BY unlockDate DESC, id DESC LIMIT :limit")
+    List<Badge> getBadgesByCategoryPage(String category, int limit);
+    
+    /**
+     * 分页获取指定类别的徽章：排在指定徽章之后的一页（键集分页）
+     */
+    @Query("SELECT * FROM badges WHERE category = :category " +
+           "AND ((unlockDate <= :afterDate AND (unlockDate < :afterDate OR id < :afterId)) OR unlockDate IS NULL) " +
+           "ORDER BY unlockDate DESC, id DESC LIMIT :limit")
+    List<Badge> getBadgesByCategoryPageAfter(String category, Date afterDate, long afterId, int limit);
+    
+    /**
+     * 分页获取指定类别的徽章：排在指定的无日期徽章之后的一页
+     */
+    @Query("SELECT * FROM badges WHERE category = :category AND unlockDate IS NULL AND id < :afterId " +
+           "ORDER BY id DESC LIMIT :limit")
+    List<Badge> getUndatedBadgesByCategoryPageAfter(String category, long afterId, int limit);
+    
+    /**
+     * 获取指定时间范围内解锁的徽章数量
+     */
+    @Query("SELECT COUNT(*) FROM badges WHERE unlockDate BETWEEN :startTime AND :endTime")
+    int getBadgeCountBetween(Date startTime, Date endTime);
+    
+    /**
+     * 分页获取指定时间范围内解锁的徽章（键集分页）
+     * 按解锁日期倒序；第一页传入afterDate = endTime、afterId = Long.MAX_VALUE
+     */
+    @Query("SELECT * FROM badges WHERE unlockDate >= :startTime " +
+           "AND unlockDate <= :afterDate AND (unlockDate < :afterDate OR id < :afterId) " +
+           "ORDER BY unlockDate DESC, id DESC LIMIT :limit")
+    List<Badge> getBadgesBetweenPage(Date startTime, Date afterDate, long afterId, int limit);
+
+    /**
+     * 分块删除徽章
+     * @return 删除的行数
+     */
+    @Query("DELETE FROM badges WHERE id IN (SELECT id FROM badges LIMIT :limit)")
+    int deleteBadgesChunk(int limit);
 }
@@ -9,6 +9,7 @@ import androidx.room.Update;
 
 import com.example.footprintexplorer.data.entity.Challenge;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -36,6 +37,9 @@ public interface ChallengeDao {
     @Query("SELECT * FROM challenges WHERE completed = 0 ORDER BY createTime DESC")
     LiveData<List<Challenge>> getActiveChallenges();
 
+    @Query("SELECT * FROM challenges WHERE completed = 0")
+    List<Challenge> getActiveChallengesSync();
+
     @Query("SELECT * FROM challenges WHERE completed = 1 ORDER BY completeTime DESC")
     LiveData<List<Challenge>> getCompletedChallenges();
 
@@ -62,4 +66,55 @@ public interface ChallengeDao {
 
     @Query("UPDATE challenges SET completed = 1, completeTime = :completeTime WHERE id = :id")
     void markAsCompleted(long id, long completeTime);
+
+    @Query("SELECT COUNT(*) FROM challenges")
+    int getChallengeCount();
+
+    @Query("SELECT COUNT(*) FROM challenges WHERE completed = :completed")
+    int getChallengeCountByCompleted(boolean completed);
+
+    @Query("SELECT COUNT(*) FROM challenges WHERE type = :type")
+    int getChallengeCountByType(String type);
+
+    // 键集分页：按创建时间倒序，时间相同时按ID倒序
+    @Query("SELECT * FROM challenges ORDER BY createTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getChallengesPage(int limit);
+
+    @Query("SELECT * FROM challenges WHERE createTime <= :afterTime AND (createTime < :afterTime OR id < :afterId) " +
+            "ORDER BY createTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getChallengesPageAfter(Date afterTime, long afterId, int limit);
+
+    @Query("SELECT * FROM challenges WHERE completed = 0 ORDER BY createTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getActiveChallengesPage(int limit);
+
+    @Query("SELECT * FROM challenges WHERE completed = 0 " +
+            "AND createTime <= :afterTime AND (createTime < :afterTime OR id < :afterId) " +
+            "ORDER BY createTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getActiveChallengesPageAfter(Date afterTime, long afterId, int limit);
+
+    @Query("SELECT * FROM challenges WHERE completed = 1 ORDER BY completeTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getCompletedChallengesPage(int limit);
+
+    // 完成时间为NULL的挑战排在最后，与有时间的挑战一并包含
+    @Query("SELECT * FROM challenges WHERE completed = 1 " +
+            "AND ((completeTime <= :afterTime AND (completeTime < :afterTime OR id < :afterId)) " +
+            "OR completeTime IS NULL) ORDER BY completeTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getCompletedChallengesPageAfter(Date afterTime, long afterId, int limit);
+
+    // 上一页最后一项的完成时间为NULL时使用，之后只剩无完成时间的挑战
+    @Query("SELECT * FROM challenges WHERE completed = 1 AND completeTime IS NULL AND id < :afterId " +
+            "ORDER BY id DESC LIMIT :limit")
+    List<Challenge> getUndatedCompletedChallengesPageAfter(long afterId, int limit);
+
+    @Query("SELECT * FROM challenges WHERE type = :type ORDER BY createTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getChallengesByTypePage(String type, int limit);
+
+    @Query("SELECT * FROM challenges WHERE type = :type " +
+            "AND createTime <= :afterTime AND (createTime < :afterTime OR id < :afterId) " +
+            "ORDER BY createTime DESC, id DESC LIMIT :limit")
+    List<Challenge> getChallengesByTypePageAfter(String type, Date afterTime, long afterId, int limit);
+
+    // 分块删除挑战任务，返回删除的行数
+    @Query("DELETE FROM challenges WHERE id IN (SELECT id FROM challenges LIMIT :limit)")
+    int deleteChallengesChunk(int limit);
 }
@@ -1,5 +1,7 @@
 package com.example.footprintexplorer.data.dao;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
@@ -8,13 +10,13 @@ import androidx.room.Query;
 import androidx.room.Update;
 
 import com.example.footprintexplorer.data.entity.LocationRecord;
+import com.example.footprintexplorer.data.projection.LocationPoint;
 
-import java.util.Date;
 import java.util.List;
 
 /**
  * 位置记录DAO接口
- * 用于访问位置记录数据
+ * 用于访问位置记录数据，时间参数均为毫秒时间戳
  */
 @Dao
 public interface LocationDao {
@@ -49,18 +51,18 @@ public interface LocationDao {
     @Query("SELECT * FROM location_records WHERE sessionId = :sessionId ORDER BY timestamp ASC")
     LiveData<List<LocationRecord>> getLocationsBySession(long sessionId);
     
-    /**
-     * 获取指定时间范围内的所有位置记录
-     */
-    @Query("SELECT * FROM location_records WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
-    LiveData<List<LocationRecord>> getLocationsBetween(Date startTime, Date endTime);
-    
     /**
      * 获取指定会话的最后一个位置记录
      */
     @Query("SELECT * FROM location_records WHERE sessionId = :sessionId ORDER BY timestamp DESC LIMIT 1")
     LocationRecord getLastLocationBySession(long sessionId);
     
+    /**
+     * 获取最新位置点的坐标，没有记录时返回null
+     */
+    @Query("SELECT latitude, longitude FROM location_records ORDER BY timestamp DESC, id DESC LIMIT 1")
+    LocationPoint getLatestPoint();
+    
     /**
      * 获取指定会话的位置记录数量
      */
@@ -72,4 +74,72 @@ public interface LocationDao {
      */
     @Query("DELETE FROM location_records WHERE sessionId = :sessionId")
     void deleteLocationsBySession(long sessionId);
+    
+    /**
+     * 获取指定时间范围内的位置记录数量
+     */
+    @Query("SELECT COUNT(*) FROM location_records WHERE timestamp BETWEEN :startTime AND :endTime")
+    int getLocationCountBetween(long startTime, long endTime);
+    
+    /**
+     * 键集分页获取指定会话的位置记录
+     * 按时间正序，时间相同时按ID正序；第一页传入afterTime为最早时间、afterId为Long.MIN_VALUE
+     */
+    @Query("SELECT * FROM location_records WHERE sessionId = :sessionId " +
+            "AND timestamp >= :afterTime AND (timestamp > :afterTime OR id > :afterId) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<LocationRecord> getLocationsBySessionPage(long sessionId, long afterTime, long afterId, int limit);
+    
+    /**
+     * 键集分页获取指定时间范围内的位置记录
+     * 第一页传入afterTime为开始时间、afterId为Long.MIN_VALUE
+     */
+    @Query("SELECT * FROM location_records WHERE timestamp <= :endTime " +
+            "AND timestamp >= :afterTime AND (timestamp > :afterTime OR id > :afterId) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<LocationRecord> getLocationsBetweenPage(long endTime, long afterTime, long afterId, int limit);
+    
+    /**
+     * 获取最早的位置记录时间，没有记录时返回null
+     */
+    @Query("SELECT MIN(timestamp) FROM location_records")
+    Long getEarliestLocationTime();
+    
+    /**
+     * 获取指定会话的轨迹
+     * 只读取轨迹所需的列，由TrackBuffer.appendFrom逐行读入基本类型数组
+     */
+    @Query("SELECT id, sessionId, timestamp, latitude, longitude, speed FROM location_records " +
+            "WHERE sessionId = :sessionId ORDER BY timestamp ASC, id ASC")
+    Cursor getTrackCursor(long sessionId);
+    
+    /**
+     * 获取时间范围内的轨迹，列与getTrackCursor相同
+     */
+    @Query("SELECT id, sessionId, timestamp, latitude, longitude, speed FROM location_records " +
+            "WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC, id ASC")
+    Cursor getTrackCursorBetween(long startTime, long endTime);
+    
+    /**
+     * 按ID批量删除位置记录
+     */
+    @Query("DELETE FROM location_records WHERE id IN (:ids)")
+    int deleteLocationsByIds(long[] ids);
+    
+    /**
+     * 获取位置记录数量，不含指定会话及在截止时间之后开始的会话
+     */
+    @Query("SELECT COUNT(*) FROM location_records WHERE sessionId != :keepSessionId " +
+            "AND sessionId NOT IN (SELECT id FROM tracking_sessions WHERE startTime >= :cutoff)")
+    int getLocationCountExcluding(long keepSessionId, long cutoff);
+    
+    /**
+     * 分块删除位置记录，不含指定会话（进行中的会话）及在截止时间之后开始的会话
+     * @return 删除的行数
+     */
+    @Query("DELETE FROM location_records WHERE id IN " +
+            "(SELECT id FROM location_records WHERE sessionId != :keepSessionId " +
+            "AND sessionId NOT IN (SELECT id FROM tracking_sessions WHERE startTime >= :cutoff) " +
+            "LIMIT :limit)")
+    int deleteLocationsChunk(long keepSessionId, long cutoff, int limit);
 }
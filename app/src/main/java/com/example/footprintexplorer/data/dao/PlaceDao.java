@@ -84,4 +84,46 @@ public interface PlaceDao {
      */
     @Query("SELECT COUNT(*) FROM places WHERE isUnlocked = 1")
     int getUnlockedPlacesCount();
+    
+    /**
+     * 获取地点总数
+     */
+    @Query("SELECT COUNT(*) FROM places")
+    int getPlaceCount();
+    
+    /**
+     * 分页获取地点：第一页
+     * 按发现日期倒序，日期相同时按ID倒序，保证排序键唯一
+     */
+    @Query("SELECT * FROM places ORDER BY discoveryDate DESC, id DESC LIMIT :limit")
+    List<Place> getPlacesPage(int limit);
+    
+    /**
+     * 分页获取地点：排在指定地点之后的一页（键集分页）
+     */
+    @Query("SELECT * FROM places WHERE discoveryDate <= :afterDate AND (discoveryDate < :afterDate OR id < :afterId) " +
+           "ORDER BY discoveryDate DESC, id DESC LIMIT :limit")
+    List<Place> getPlacesPageAfter(Date afterDate, long afterId, int limit);
+    
+    /**
+     * 获取指定时间范围内发现的地点数量
+     */
+    @Query("SELECT COUNT(*) FROM places WHERE discoveryDate BETWEEN :startTime AND :endTime")
+    int getPlaceCountBetween(Date startTime, Date endTime);
+    
+    /**
+     * 分页获取指定时间范围内发现的地点（键集分页）
+     * 按发现日期倒序；第一页传入afterDate = endTime、afterId = Long.MAX_VALUE
+     */
+    @Query("SELECT * FROM places WHERE discoveryDate >= :startTime " +
+           "AND discoveryDate <= :afterDate AND (discoveryDate < :afterDate OR id < :afterId) " +
+           "ORDER BY discoveryDate DESC, id DESC LIMIT :limit")
+    List<Place> getPlacesBetweenPage(Date startTime, Date afterDate, long afterId, int limit);
+
+    /**
+     * 分块删除地点
+     * @return 删除的行数
+     */
+    @Query("DELETE FROM places WHERE id IN (SELECT id FROM places LIMIT :limit)")
+    int deletePlacesChunk(int limit);
 }
@@ -8,13 +8,13 @@ import androidx.room.Query;
 import androidx.room.Update;
 
 import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.data.projection.SessionSummary;
 
-import java.util.Date;
 import java.util.List;
 
 /**
  * 追踪会话DAO接口
- * 用于访问追踪会话数据
+ * 用于访问追踪会话数据，时间参数均为毫秒时间戳
  */
 @Dao
 public interface TrackingSessionDao {
@@ -37,6 +37,12 @@ public interface TrackingSessionDao {
     @Delete
     void delete(TrackingSession trackingSession);
     
+    /**
+     * 删除指定ID的追踪会话
+     */
+    @Query("DELETE FROM tracking_sessions WHERE id = :sessionId")
+    void deleteSessionById(long sessionId);
+    
     /**
      * 获取所有追踪会话
      */
@@ -49,11 +55,23 @@ public interface TrackingSessionDao {
     @Query("SELECT * FROM tracking_sessions WHERE id = :sessionId")
     LiveData<TrackingSession> getSessionById(long sessionId);
     
+    /**
+     * 同步获取指定ID的追踪会话
+     */
+    @Query("SELECT * FROM tracking_sessions WHERE id = :sessionId")
+    TrackingSession getSessionByIdSync(long sessionId);
+    
+    /**
+     * 获取当前最大的会话ID，用于预分配会话ID
+     */
+    @Query("SELECT COALESCE(MAX(id), 0) FROM tracking_sessions")
+    long getMaxSessionId();
+    
     /**
      * 获取指定时间范围内的追踪会话
      */
     @Query("SELECT * FROM tracking_sessions WHERE startTime BETWEEN :startTime AND :endTime ORDER BY startTime DESC")
-    LiveData<List<TrackingSession>> getSessionsBetween(Date startTime, Date endTime);
+    LiveData<List<TrackingSession>> getSessionsBetween(long startTime, long endTime);
     
     /**
      * 获取最近的追踪会话
@@ -65,17 +83,103 @@ public interface TrackingSessionDao {
      * 获取指定时间范围内的总距离
      */
     @Query("SELECT SUM(totalDistance) FROM tracking_sessions WHERE startTime BETWEEN :startTime AND :endTime")
-    double getTotalDistanceBetween(Date startTime, Date endTime);
+    double getTotalDistanceBetween(long startTime, long endTime);
     
     /**
      * 获取指定时间范围内的平均速度
+     * 按移动时间加权，即总距离除以总移动时间
+     */
+    @Query("SELECT CASE WHEN SUM(movingTime) > 0 THEN SUM(totalDistance) * 1000.0 / SUM(movingTime) ELSE 0 END " +
+           "FROM tracking_sessions WHERE startTime BETWEEN :startTime AND :endTime")
+    float getAverageSpeedBetween(long startTime, long endTime);
+    
+    /**
+     * 获取所有会话的总距离
+     */
+    @Query("SELECT COALESCE(SUM(totalDistance), 0) FROM tracking_sessions")
+    double getTotalDistance();
+    
+    /**
+     * 获取指定时间范围内的会话摘要，按开始时间正序
      */
-    @Query("SELECT AVG(averageSpeed) FROM tracking_sessions WHERE startTime BETWEEN :startTime AND :endTime")
-    float getAverageSpeedBetween(Date startTime, Date endTime);
+    @Query("SELECT id, startTime, totalDistance, movingTime FROM tracking_sessions " +
+           "WHERE startTime BETWEEN :startTime AND :endTime ORDER BY startTime ASC")
+    List<SessionSummary> getSessionSummariesBetween(long startTime, long endTime);
+    
+    /**
+     * 更新会话的增量统计
+     */
+    @Query("UPDATE tracking_sessions SET locationCount = :locationCount, totalDistance = :totalDistance, " +
+           "movingTime = :movingTime, averageSpeed = :averageSpeed, maxSpeed = :maxSpeed, " +
+           "elevationGain = :elevationGain, elevationLoss = :elevationLoss, " +
+           "minLatitude = :minLatitude, maxLatitude = :maxLatitude, " +
+           "minLongitude = :minLongitude, maxLongitude = :maxLongitude WHERE id = :sessionId")
+    void updateStats(long sessionId, int locationCount, double totalDistance, long movingTime,
+                     float averageSpeed, float maxSpeed, double elevationGain, double elevationLoss,
+                     double minLatitude, double maxLatitude, double minLongitude, double maxLongitude);
     
     /**
      * 获取指定时间范围内的会话数量
      */
     @Query("SELECT COUNT(*) FROM tracking_sessions WHERE startTime BETWEEN :startTime AND :endTime")
-    int getSessionCountBetween(Date startTime, Date endTime);
+    int getSessionCountBetween(long startTime, long endTime);
+    
+    /**
+     * 获取与时间范围重叠的会话，进行中的会话视为未结束
+     * 按开始时间正序，开始时间相同时按ID正序
+     */
+    @Query("SELECT * FROM tracking_sessions WHERE startTime <= :endTime " +
+            "AND (endTime >= :startTime OR endTime = 0) ORDER BY startTime ASC, id ASC")
+    List<TrackingSession> getSessionsOverlapping(long startTime, long endTime);
+
+    /**
+     * 获取会话总数
+     */
+    @Query("SELECT COUNT(*) FROM tracking_sessions")
+    int getSessionCount();
+
+    /**
+     * 分页获取会话：第一页
+     * 按开始时间倒序，时间相同时按ID倒序，保证排序键唯一
+     */
+    @Query("SELECT * FROM tracking_sessions ORDER BY startTime DESC, id DESC LIMIT :limit")
+    List<TrackingSession> getSessionsPage(int limit);
+
+    /**
+     * 分页获取会话：排在指定会话之后的一页（键集分页）
+     */
+    @Query("SELECT * FROM tracking_sessions WHERE startTime <= :afterTime AND (startTime < :afterTime OR id < :afterId) " +
+            "ORDER BY startTime DESC, id DESC LIMIT :limit")
+    List<TrackingSession> getSessionsPageAfter(long afterTime, long afterId, int limit);
+
+    /**
+     * 分页获取指定时间范围内的会话摘要（键集分页）
+     * 按开始时间倒序；第一页传入afterTime = endTime、afterId = Long.MAX_VALUE
+     */
+    @Query("SELECT id, startTime, totalDistance, movingTime FROM tracking_sessions WHERE startTime >= :startTime " +
+            "AND startTime <= :afterTime AND (startTime < :afterTime OR id < :afterId) " +
+            "ORDER BY startTime DESC, id DESC LIMIT :limit")
+    List<SessionSummary> getSessionSummariesBetweenPage(long startTime, long afterTime, long afterId, int limit);
+    
+    /**
+     * 获取需要降采样到指定级别的已结束会话
+     */
+    @Query("SELECT id FROM tracking_sessions WHERE endTime > 0 AND endTime < :cutoff " +
+            "AND retentionTier < :tier ORDER BY startTime ASC LIMIT :limit")
+    List<Long> getSessionIdsForRetention(long cutoff, int tier, int limit);
+    
+    /**
+     * 更新会话的降采样级别
+     */
+    @Query("UPDATE tracking_sessions SET retentionTier = :tier WHERE id = :sessionId")
+    void updateRetentionTier(long sessionId, int tier);
+    
+    /**
+     * 分块删除追踪会话，不含指定会话（进行中的会话）及在截止时间之后开始的会话
+     * @return 删除的行数
+     */
+    @Query("DELETE FROM tracking_sessions WHERE id IN " +
+            "(SELECT id FROM tracking_sessions WHERE id != :keepSessionId " +
+            "AND startTime < :cutoff LIMIT :limit)")
+    int deleteSessionsChunk(long keepSessionId, long cutoff, int limit);
 }
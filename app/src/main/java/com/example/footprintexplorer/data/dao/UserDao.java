@@ -43,6 +43,9 @@ public interface UserDao {
     @Query("UPDATE users SET totalBadges = totalBadges + 1 WHERE id = :id")
     void incrementBadges(long id);
 
+    @Query("UPDATE users SET totalBadges = totalBadges + :count WHERE id = :id")
+    void addBadges(long id, int count);
+
     @Query("UPDATE users SET totalChallenges = totalChallenges + 1 WHERE id = :id")
     void incrementChallenges(long id);
 
@@ -0,0 +1,123 @@
+package com.example.footprintexplorer.data.database;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * 数据库维护工具类
+ * 封装需要逐步执行的PRAGMA语句
+ */
+public class DatabaseMaintenance {
+
+    // auto_vacuum取值
+    public static final int AUTO_VACUUM_NONE = 0;
+    public static final int AUTO_VACUUM_FULL = 1;
+    public static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * 增量回收空闲页
+     * 仅在数据库启用auto_vacuum=INCREMENTAL时生效
+     * @param pages 本次最多回收的页数
+     */
+    public static void incrementalVacuum(FootprintDatabase database, int pages) {
+        runPragma(database.getOpenHelper().getWritableDatabase(), "PRAGMA incremental_vacuum(" + pages + ")");
+    }
+
+    /**
+     * 获取空闲页数量
+     */
+    public static long getFreelistCount(FootprintDatabase database) {
+        return queryLong(database, "PRAGMA freelist_count");
+    }
+
+    /**
+     * 获取数据库总页数
+     */
+    public static long getPageCount(FootprintDatabase database) {
+        return queryLong(database, "PRAGMA page_count");
+    }
+
+    /**
+     * 获取页大小（字节）
+     */
+    public static long getPageSize(FootprintDatabase database) {
+        return queryLong(database, "PRAGMA page_size");
+    }
+
+    /**
+     * 获取auto_vacuum模式
+     */
+    public static int getAutoVacuumMode(FootprintDatabase database) {
+        return (int) queryLong(database, "PRAGMA auto_vacuum");
+    }
+
+    /**
+     * 启用增量auto_vacuum
+     * 已建表的数据库修改auto_vacuum后需执行一次完整VACUUM才生效，
+     * VACUUM会重写整个文件并在期间阻塞写入，需要约等于数据库大小的临时空间
+     */
+    public static void enableIncrementalAutoVacuum(FootprintDatabase database) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        runPragma(db, "PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+    }
+
+    /**
+     * 是否已有查询规划统计信息
+     */
+    public static boolean hasStatistics(FootprintDatabase database) {
+        return queryLong(database,
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'sqlite_stat1'") > 0;
+    }
+
+    /**
+     * 收集全部表和索引的统计信息供查询规划器使用
+     */
+    public static void analyze(FootprintDatabase database) {
+        database.getOpenHelper().getWritableDatabase().execSQL("ANALYZE");
+    }
+
+    /**
+     * 按需更新统计信息
+     * 只分析统计信息过期的表；SQLite 3.18（API 26）以下不支持，此时为空操作
+     */
+    public static void optimize(FootprintDatabase database) {
+        runPragma(database.getOpenHelper().getWritableDatabase(), "PRAGMA optimize");
+    }
+
+    /**
+     * 被动检查点
+     * 将WAL中的页写回数据库文件，不等待读事务，不阻塞写入
+     */
+    public static void checkpoint(FootprintDatabase database) {
+        runPragma(database.getOpenHelper().getWritableDatabase(), "PRAGMA wal_checkpoint(PASSIVE)");
+    }
+
+    /**
+     * 截断检查点
+     * 写回WAL中的全部页并将WAL文件截断为零，需等待读事务结束，只应在空闲时调用
+     */
+    public static void truncateWal(FootprintDatabase database) {
+        runPragma(database.getOpenHelper().getWritableDatabase(), "PRAGMA wal_checkpoint(TRUNCATE)");
+    }
+
+    private static long queryLong(FootprintDatabase database, String sql) {
+        try (Cursor cursor = database.getOpenHelper().getWritableDatabase().query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * 执行PRAGMA并逐行读取结果
+     * incremental_vacuum等语句每读取一行才推进一步；返回结果行的PRAGMA
+     * （如mmap_size）也不能用execSQL执行
+     */
+    static void runPragma(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query(pragma)) {
+            while (cursor.moveToNext()) {
+                // 读取到结束即执行完成
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.footprintexplorer.data.database;
+
+/**
+ * 数据库连接配置
+ * 两种配置都使用WAL和synchronous=NORMAL：提交只追加WAL不等待fsync，
+ * 断电最多丢失最近的提交而不会损坏数据库。区别在于内存占用和检查点频率
+ */
+public enum DatabaseProfile {
+
+    /**
+     * 追踪配置
+     * 较大的页缓存和内存映射，检查点保持默认阈值，WAL文件较小
+     */
+    TRACKING(8 * 1024, 64L * 1024 * 1024, 1000),
+
+    /**
+     * 省电配置
+     * 缩小缓存和内存映射，提高检查点阈值以减少写回数据库文件的次数
+     */
+    BATTERY_SAVER(2 * 1024, 16L * 1024 * 1024, 4000);
+
+    private final int cacheSizeKb;
+    private final long mmapSize;
+    private final int walAutoCheckpoint;
+
+    DatabaseProfile(int cacheSizeKb, long mmapSize, int walAutoCheckpoint) {
+        this.cacheSizeKb = cacheSizeKb;
+        this.mmapSize = mmapSize;
+        this.walAutoCheckpoint = walAutoCheckpoint;
+    }
+
+    /**
+     * 页缓存大小（KB）
+     */
+    public int getCacheSizeKb() {
+        return cacheSizeKb;
+    }
+
+    /**
+     * 内存映射大小（字节）
+     */
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    /**
+     * WAL自动检查点阈值（页）
+     */
+    public int getWalAutoCheckpoint() {
+        return walAutoCheckpoint;
+    }
+}
@@ -1,35 +1,211 @@
 package com.example.footprintexplorer.data.database;
 
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
+import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.footprintexplorer.data.converters.DateConverter;
 import com.example.footprintexplorer.data.dao.BadgeDao;
+import com.example.footprintexplorer.data.dao.ChallengeDao;
 import com.example.footprintexplorer.data.dao.LocationDao;
 import com.example.footprintexplorer.data.dao.PlaceDao;
 import com.example.footprintexplorer.data.dao.TrackingSessionDao;
+import com.example.footprintexplorer.data.dao.UserDao;
 import com.example.footprintexplorer.data.entity.Badge;
+import com.example.footprintexplorer.data.entity.Challenge;
 import com.example.footprintexplorer.data.entity.LocationRecord;
 import com.example.footprintexplorer.data.entity.Place;
 import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.data.entity.User;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 应用程序主数据库
+ * 所有组件通过getInstance获取同一个实例，由此统一配置WAL、同步模式、
+ * 页缓存、内存映射、检查点阈值和查询/事务线程
  */
 @Database(
     entities = {
         LocationRecord.class,
         TrackingSession.class,
         Place.class,
-        Badge.class
+        Badge.class,
+        Challenge.class,
+        User.class
     },
-    version = 1,
+    version = 7,
     exportSchema = false
 )
 @TypeConverters({DateConverter.class})
 public abstract class FootprintDatabase extends RoomDatabase {
     
+    private static final String TAG = "FootprintDatabase";
+    
+    private static final String DATABASE_NAME = "footprint_database";
+    
+    // 异步查询（LiveData等）线程数，WAL模式下读取可与写入并发
+    private static final int QUERY_THREADS = 4;
+    
+    private static volatile FootprintDatabase instance;
+    
+    /**
+     * 从已发布的版本1升级
+     * 版本2到6只存在于开发构建中，从未发布，直接迁移到当前结构：
+     * 位置记录和追踪会话的时间列改为非空的毫秒时间戳（列中保存的值不变，
+     * SQLite不能修改列的约束，重建两张表并复制数据，未结束会话的结束时间由NULL改为0）；
+     * 会话新增的统计列中，边界框和最大速度由位置记录计算，其余从0开始；
+     * 补建各表的查询索引，新建挑战表和用户表，用户计数取已有的地点和徽章数量
+     */
+    static final Migration MIGRATION_1_7 = new Migration(1, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE `location_records_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`sessionId` INTEGER NOT NULL, `latitude` REAL NOT NULL, `longitude` REAL NOT NULL, "
+                    + "`altitude` REAL NOT NULL, `accuracy` REAL NOT NULL, `speed` REAL NOT NULL, "
+                    + "`timestamp` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO `location_records_new` SELECT `id`, `sessionId`, `latitude`, `longitude`, "
+                    + "`altitude`, `accuracy`, `speed`, COALESCE(`timestamp`, 0) FROM `location_records`");
+            db.execSQL("DROP TABLE `location_records`");
+            db.execSQL("ALTER TABLE `location_records_new` RENAME TO `location_records`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_location_records_sessionId_timestamp` "
+                    + "ON `location_records` (`sessionId`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_location_records_timestamp` "
+                    + "ON `location_records` (`timestamp`)");
+            
+            db.execSQL("CREATE TABLE `tracking_sessions_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`name` TEXT, `startTime` INTEGER NOT NULL, `endTime` INTEGER NOT NULL, "
+                    + "`totalDistance` REAL NOT NULL, `averageSpeed` REAL NOT NULL, "
+                    + "`locationCount` INTEGER NOT NULL, `movingTime` INTEGER NOT NULL, `maxSpeed` REAL NOT NULL, "
+                    + "`elevationGain` REAL NOT NULL, `elevationLoss` REAL NOT NULL, "
+                    + "`minLatitude` REAL NOT NULL, `maxLatitude` REAL NOT NULL, "
+                    + "`minLongitude` REAL NOT NULL, `maxLongitude` REAL NOT NULL, "
+                    + "`isManualRecording` INTEGER NOT NULL, `retentionTier` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO `tracking_sessions_new` SELECT s.`id`, s.`name`, COALESCE(s.`startTime`, 0), "
+                    + "COALESCE(s.`endTime`, 0), s.`totalDistance`, s.`averageSpeed`, s.`locationCount`, 0, "
+                    + "COALESCE(r.maxSpeed, 0), 0, 0, COALESCE(r.minLatitude, 0), COALESCE(r.maxLatitude, 0), "
+                    + "COALESCE(r.minLongitude, 0), COALESCE(r.maxLongitude, 0), s.`isManualRecording`, 0 "
+                    + "FROM `tracking_sessions` s LEFT JOIN (SELECT `sessionId`, MAX(`speed`) AS maxSpeed, "
+                    + "MIN(`latitude`) AS minLatitude, MAX(`latitude`) AS maxLatitude, "
+                    + "MIN(`longitude`) AS minLongitude, MAX(`longitude`) AS maxLongitude "
+                    + "FROM `location_records` GROUP BY `sessionId`) r ON r.`sessionId` = s.`id`");
+            db.execSQL("DROP TABLE `tracking_sessions`");
+            db.execSQL("ALTER TABLE `tracking_sessions_new` RENAME TO `tracking_sessions`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tracking_sessions_startTime` "
+                    + "ON `tracking_sessions` (`startTime`)");
+            
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_places_discoveryDate` ON `places` (`discoveryDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_badges_unlockDate` ON `badges` (`unlockDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_badges_category_unlockDate` "
+                    + "ON `badges` (`category`, `unlockDate`)");
+            
+            db.execSQL("CREATE TABLE IF NOT EXISTS `challenges` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`title` TEXT, `description` TEXT, `type` TEXT, `target` INTEGER NOT NULL, "
+                    + "`progress` INTEGER NOT NULL, `completed` INTEGER NOT NULL, `xpReward` INTEGER NOT NULL, "
+                    + "`createTime` INTEGER, `completeTime` INTEGER, `placeId` INTEGER, `badgeCategory` TEXT, "
+                    + "`difficulty` INTEGER NOT NULL, FOREIGN KEY(`placeId`) REFERENCES `places`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_challenges_placeId` ON `challenges` (`placeId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_challenges_createTime` ON `challenges` (`createTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_challenges_completed_createTime` "
+                    + "ON `challenges` (`completed`, `createTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_challenges_type_createTime` "
+                    + "ON `challenges` (`type`, `createTime`)");
+            
+            // 字段默认值与User的构造方法一致
+            db.execSQL("CREATE TABLE IF NOT EXISTS `users` (`id` INTEGER NOT NULL, `username` TEXT, "
+                    + "`avatarPath` TEXT, `level` INTEGER NOT NULL, `xp` INTEGER NOT NULL, "
+                    + "`xpToNextLevel` INTEGER NOT NULL, `totalDistance` INTEGER NOT NULL, "
+                    + "`totalPlaces` INTEGER NOT NULL, `totalBadges` INTEGER NOT NULL, "
+                    + "`totalChallenges` INTEGER NOT NULL, `joinDate` INTEGER, `lastActiveDate` INTEGER, "
+                    + "`preferredMapType` TEXT, `preferredTheme` TEXT, `notificationsEnabled` INTEGER NOT NULL, "
+                    + "`trackingInterval` INTEGER NOT NULL, `autoTracking` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO `users` (`id`, `level`, `xp`, `xpToNextLevel`, `totalDistance`, "
+                    + "`totalPlaces`, `totalBadges`, `totalChallenges`, `joinDate`, `lastActiveDate`, "
+                    + "`preferredMapType`, `preferredTheme`, `notificationsEnabled`, `trackingInterval`, "
+                    + "`autoTracking`) SELECT 1, 1, 0, 100, 0, (SELECT COUNT(*) FROM `places`), "
+                    + "(SELECT COUNT(*) FROM `badges`), 0, CAST(strftime('%s', 'now') AS INTEGER) * 1000, "
+                    + "CAST(strftime('%s', 'now') AS INTEGER) * 1000, 'normal', 'system', 1, 10, 0");
+        }
+    };
+    
+    private ProfileCallback profileCallback;
+    
+    /**
+     * 获取单例实例
+     * @param context 上下文
+     * @return 数据库
+     */
+    public static FootprintDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FootprintDatabase.class) {
+                if (instance == null) {
+                    instance = create(context.getApplicationContext(), DATABASE_NAME, DatabaseProfile.TRACKING);
+                }
+            }
+        }
+        return instance;
+    }
+    
+    /**
+     * 按指定配置创建数据库
+     * 应用内使用getInstance，此方法供基准测试创建独立的数据库文件
+     * @param context 上下文
+     * @param name 数据库文件名
+     * @param profile 初始配置
+     */
+    public static FootprintDatabase create(Context context, String name, DatabaseProfile profile) {
+        ProfileCallback callback = new ProfileCallback(profile);
+        AtomicInteger queryThreadCount = new AtomicInteger();
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(QUERY_THREADS,
+                r -> new Thread(r, "db-query-" + queryThreadCount.incrementAndGet()));
+        ExecutorService transactionExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "db-transaction"));
+        
+        FootprintDatabase database = Room.databaseBuilder(context, FootprintDatabase.class, name)
+                .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(queryExecutor)
+                .setTransactionExecutor(transactionExecutor)
+                .addCallback(callback)
+                .addMigrations(MIGRATION_1_7)
+                // 未发布的开发版本没有迁移路径，重建数据库
+                .fallbackToDestructiveMigrationFrom(2, 3, 4, 5, 6)
+                .build();
+        database.profileCallback = callback;
+        return database;
+    }
+    
+    /**
+     * 切换连接配置
+     * 在事务线程上执行，不阻塞调用方；数据库尚未打开时在打开时生效
+     */
+    public void applyProfile(DatabaseProfile profile) {
+        if (profileCallback.profile == profile) {
+            return;
+        }
+        profileCallback.profile = profile;
+        getTransactionExecutor().execute(() -> {
+            if (isOpen()) {
+                ProfileCallback.apply(getOpenHelper().getWritableDatabase(), profile);
+            }
+        });
+    }
+    
+    /**
+     * 获取当前连接配置
+     */
+    public DatabaseProfile getProfile() {
+        return profileCallback.profile;
+    }
+    
     /**
      * 获取位置记录DAO
      */
@@ -49,4 +225,42 @@ public abstract class FootprintDatabase extends RoomDatabase {
      * 获取徽章DAO
      */
     public abstract BadgeDao badgeDao();
+    
+    /**
+     * 获取挑战任务DAO
+     */
+    public abstract ChallengeDao challengeDao();
+    
+    /**
+     * 获取用户DAO
+     */
+    public abstract UserDao userDao();
+    
+    /**
+     * 在每次打开数据库时应用连接配置
+     * 写入只经过主连接，配置作用于主连接；WAL模式下的只读连接使用SQLite默认值
+     */
+    private static class ProfileCallback extends RoomDatabase.Callback {
+        
+        volatile DatabaseProfile profile;
+        
+        ProfileCallback(DatabaseProfile profile) {
+            this.profile = profile;
+        }
+        
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            apply(db, profile);
+        }
+        
+        static void apply(SupportSQLiteDatabase db, DatabaseProfile profile) {
+            DatabaseMaintenance.runPragma(db, "PRAGMA synchronous = NORMAL");
+            DatabaseMaintenance.runPragma(db, "PRAGMA temp_store = MEMORY");
+            // 负值表示以KB为单位
+            DatabaseMaintenance.runPragma(db, "PRAGMA cache_size = -" + profile.getCacheSizeKb());
+            DatabaseMaintenance.runPragma(db, "PRAGMA mmap_size = " + profile.getMmapSize());
+            DatabaseMaintenance.runPragma(db, "PRAGMA wal_autocheckpoint = " + profile.getWalAutoCheckpoint());
+            Log.d(TAG, "数据库配置: " + profile);
+        }
+    }
 }
@@ -1,19 +1,23 @@
 package com.example.footprintexplorer.data.entity;
 
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.footprintexplorer.data.converters.DateConverter;
 
 import java.util.Date;
+import java.util.Objects;
 
 /**
  * 徽章实体类
  * 用于记录用户解锁的徽章
  */
-@Entity(tableName = "badges")
-public class Badge {
+@Entity(tableName = "badges",
+        indices = {@Index("unlockDate"), @Index({"category", "unlockDate"})})
+public class Badge implements ContentHashed {
     
     @PrimaryKey(autoGenerate = true)
     private long id;
@@ -33,6 +37,9 @@ public class Badge {
     
     private boolean isUnlocked; // 是否已解锁
     
+    @Ignore
+    private long contentHash; // 显示内容摘要，0表示尚未计算
+    
     // 构造函数
     public Badge(String name, String description, String category, 
                 String imageUrl, long placeId, Date unlockDate) {
@@ -60,6 +67,7 @@ public class Badge {
     
     public void setName(String name) {
         this.name = name;
+        contentHash = 0;
     }
     
     public String getDescription() {
@@ -76,6 +84,7 @@ public class Badge {
     
     public void setCategory(String category) {
         this.category = category;
+        contentHash = 0;
     }
     
     public String getImageUrl() {
@@ -84,6 +93,7 @@ public class Badge {
     
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
+        contentHash = 0;
     }
     
     public long getPlaceId() {
@@ -108,5 +118,35 @@ public class Badge {
     
     public void setUnlocked(boolean unlocked) {
         isUnlocked = unlocked;
+        contentHash = 0;
+    }
+    
+    /**
+     * 获取显示内容摘要
+     * 覆盖名称、类别、图片和解锁状态，首次调用时计算
+     */
+    @Override
+    public long getContentHash() {
+        if (contentHash == 0) {
+            long hash = 17;
+            hash = hash * 1000003 + Objects.hashCode(name);
+            hash = hash * 1000003 + Objects.hashCode(category);
+            hash = hash * 1000003 + Objects.hashCode(imageUrl);
+            hash = hash * 1000003 + (isUnlocked ? 1 : 2);
+            contentHash = hash == 0 ? 1 : hash;
+        }
+        return contentHash;
+    }
+    
+    /**
+     * 显示内容是否相同
+     * 先比较摘要，摘要相同时逐字段确认，避免摘要碰撞漏掉变化
+     */
+    public boolean hasSameContent(Badge other) {
+        return getContentHash() == other.getContentHash()
+                && isUnlocked == other.isUnlocked
+                && Objects.equals(name, other.name)
+                && Objects.equals(category, other.category)
+                && Objects.equals(imageUrl, other.imageUrl);
     }
 }
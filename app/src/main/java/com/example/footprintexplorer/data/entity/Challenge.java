@@ -2,22 +2,25 @@ package com.example.footprintexplorer.data.entity;
 
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
+import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
+import java.util.Objects;
 
 /**
  * 挑战任务实体类
  * 用于存储游戏化挑战任务
  */
 @Entity(tableName = "challenges",
-        indices = {@Index("placeId")},
+        indices = {@Index("placeId"), @Index("createTime"),
+                @Index({"completed", "createTime"}), @Index({"type", "createTime"})},
         foreignKeys = @ForeignKey(entity = Place.class,
                 parentColumns = "id",
                 childColumns = "placeId",
                 onDelete = ForeignKey.CASCADE))
-public class Challenge {
+public class Challenge implements ContentHashed {
 
     @PrimaryKey(autoGenerate = true)
     private long id;
@@ -35,6 +38,9 @@ public class Challenge {
     private String badgeCategory; // 关联的徽章类别（可选）
     private int difficulty; // 难度级别：1-5
     
+    @Ignore
+    private long contentHash; // 显示内容摘要，0表示尚未计算
+    
     public Challenge() {
         this.createTime = new Date();
         this.completed = false;
@@ -67,6 +73,7 @@ public class Challenge {
 
     public void setTitle(String title) {
         this.title = title;
+        contentHash = 0;
     }
 
     public String getDescription() {
@@ -75,6 +82,7 @@ public class Challenge {
 
     public void setDescription(String description) {
         this.description = description;
+        contentHash = 0;
     }
 
     public String getType() {
@@ -91,6 +99,7 @@ public class Challenge {
 
     public void setTarget(int target) {
         this.target = target;
+        contentHash = 0;
     }
 
     public int getProgress() {
@@ -99,6 +108,7 @@ public class Challenge {
 
     public void setProgress(int progress) {
         this.progress = progress;
+        contentHash = 0;
         // 检查是否完成挑战
         if (progress >= target && !completed) {
             this.completed = true;
@@ -112,6 +122,7 @@ public class Challenge {
 
     public void setCompleted(boolean completed) {
         this.completed = completed;
+        contentHash = 0;
         if (completed && completeTime == null) {
             this.completeTime = new Date();
         }
@@ -123,6 +134,7 @@ public class Challenge {
 
     public void setXpReward(int xpReward) {
         this.xpReward = xpReward;
+        contentHash = 0;
     }
 
     public Date getCreateTime() {
@@ -163,6 +175,42 @@ public class Challenge {
 
     public void setDifficulty(int difficulty) {
         this.difficulty = difficulty;
+        contentHash = 0;
+    }
+    
+    /**
+     * 获取显示内容摘要
+     * 覆盖列表中显示的全部字段，首次调用时计算
+     */
+    @Override
+    public long getContentHash() {
+        if (contentHash == 0) {
+            long hash = 17;
+            hash = hash * 1000003 + Objects.hashCode(title);
+            hash = hash * 1000003 + Objects.hashCode(description);
+            hash = hash * 1000003 + progress;
+            hash = hash * 1000003 + target;
+            hash = hash * 1000003 + (completed ? 1 : 2);
+            hash = hash * 1000003 + xpReward;
+            hash = hash * 1000003 + difficulty;
+            contentHash = hash == 0 ? 1 : hash;
+        }
+        return contentHash;
+    }
+    
+    /**
+     * 显示内容是否相同
+     * 先比较摘要，摘要相同时逐字段确认，避免摘要碰撞漏掉变化
+     */
+    public boolean hasSameContent(Challenge other) {
+        return getContentHash() == other.getContentHash()
+                && progress == other.progress
+                && target == other.target
+                && completed == other.completed
+                && xpReward == other.xpReward
+                && difficulty == other.difficulty
+                && Objects.equals(title, other.title)
+                && Objects.equals(description, other.description);
     }
     
     /**
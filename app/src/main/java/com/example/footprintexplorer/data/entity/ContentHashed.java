@@ -0,0 +1,16 @@
+package com.example.footprintexplorer.data.entity;
+
+/**
+ * 带内容摘要的实体
+ * 摘要覆盖列表中显示的字段，在后台加载时计算并缓存。
+ * 摘要不同时内容一定不同，列表比较时可据此快速判定变化；
+ * 摘要相同不代表内容相同，还需逐字段确认（见各实体的hasSameContent）
+ */
+public interface ContentHashed {
+
+    /**
+     * 获取显示内容的摘要
+     * 显示字段相同的两个实例摘要相同，反之不一定
+     */
+    long getContentHash();
+}
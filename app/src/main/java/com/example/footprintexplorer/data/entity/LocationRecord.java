@@ -1,20 +1,21 @@
 package com.example.footprintexplorer.data.entity;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
-import androidx.room.TypeConverters;
-
-import com.example.footprintexplorer.data.converters.DateConverter;
-
-import java.util.Date;
 
 /**
  * 位置记录实体类
  * 用于存储用户的位置数据点
+ * 时间戳以毫秒保存为基本类型，读写不经过Date转换，需要显示时由界面转换
  */
-@Entity(tableName = "location_records")
+@Entity(tableName = "location_records",
+        indices = {@Index({"sessionId", "timestamp"}), @Index("timestamp")})
 public class LocationRecord {
     
+    // 精度未知（如导入的轨迹），列不允许为NULL，以负值表示
+    public static final float ACCURACY_UNKNOWN = -1;
+    
     @PrimaryKey(autoGenerate = true)
     private long id;
     
@@ -26,16 +27,15 @@ public class LocationRecord {
     
     private double altitude; // 海拔
     
-    private float accuracy; // 精度（米）
+    private float accuracy; // 精度（米），未知时为ACCURACY_UNKNOWN
     
     private float speed; // 速度（米/秒）
     
-    @TypeConverters(DateConverter.class)
-    private Date timestamp; // 时间戳
+    private long timestamp; // 时间戳（毫秒）
     
     // 构造函数
     public LocationRecord(long sessionId, double latitude, double longitude, 
-                         double altitude, float accuracy, float speed, Date timestamp) {
+                         double altitude, float accuracy, float speed, long timestamp) {
         this.sessionId = sessionId;
         this.latitude = latitude;
         this.longitude = longitude;
@@ -94,6 +94,13 @@ public class LocationRecord {
         this.accuracy = accuracy;
     }
     
+    /**
+     * 是否有精度信息
+     */
+    public boolean hasAccuracy() {
+        return accuracy >= 0;
+    }
+    
     public float getSpeed() {
         return speed;
     }
@@ -102,11 +109,11 @@ public class LocationRecord {
         this.speed = speed;
     }
     
-    public Date getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
     
-    public void setTimestamp(Date timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 }
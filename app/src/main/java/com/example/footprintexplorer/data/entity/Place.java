@@ -1,6 +1,7 @@
 package com.example.footprintexplorer.data.entity;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
@@ -12,7 +13,8 @@ import java.util.Date;
  * 地点实体类
  * 用于记录用户解锁的地点
  */
-@Entity(tableName = "places")
+@Entity(tableName = "places",
+        indices = {@Index("discoveryDate")})
 public class Place {
     
     @PrimaryKey(autoGenerate = true)
@@ -1,18 +1,16 @@
 package com.example.footprintexplorer.data.entity;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
-import androidx.room.TypeConverters;
-
-import com.example.footprintexplorer.data.converters.DateConverter;
-
-import java.util.Date;
 
 /**
  * 追踪会话实体类
  * 用于记录用户的一次完整追踪活动
+ * 开始和结束时间以毫秒保存为基本类型，结束时间为0表示会话尚未结束
  */
-@Entity(tableName = "tracking_sessions")
+@Entity(tableName = "tracking_sessions",
+        indices = {@Index("startTime")})
 public class TrackingSession {
     
     @PrimaryKey(autoGenerate = true)
@@ -20,11 +18,9 @@ public class TrackingSession {
     
     private String name; // 会话名称
     
-    @TypeConverters(DateConverter.class)
-    private Date startTime; // 开始时间
+    private long startTime; // 开始时间（毫秒）
     
-    @TypeConverters(DateConverter.class)
-    private Date endTime; // 结束时间
+    private long endTime; // 结束时间（毫秒），未结束时为0
     
     private double totalDistance; // 总距离（米）
     
@@ -32,10 +28,28 @@ public class TrackingSession {
     
     private int locationCount; // 位置点数量
     
+    private long movingTime; // 移动时间（毫秒）
+    
+    private float maxSpeed; // 最大速度（米/秒）
+    
+    private double elevationGain; // 累计爬升（米）
+    
+    private double elevationLoss; // 累计下降（米）
+    
+    private double minLatitude; // 边界框最小纬度
+    
+    private double maxLatitude; // 边界框最大纬度
+    
+    private double minLongitude; // 边界框最小经度
+    
+    private double maxLongitude; // 边界框最大经度
+    
     private boolean isManualRecording; // 是否为手动记录
     
+    private int retentionTier; // 位置记录的降采样级别，0为原始数据
+    
     // 构造函数
-    public TrackingSession(String name, Date startTime) {
+    public TrackingSession(String name, long startTime) {
         this.name = name;
         this.startTime = startTime;
         this.totalDistance = 0;
@@ -61,22 +75,26 @@ public class TrackingSession {
         this.name = name;
     }
     
-    public Date getStartTime() {
+    public long getStartTime() {
         return startTime;
     }
     
-    public void setStartTime(Date startTime) {
+    public void setStartTime(long startTime) {
         this.startTime = startTime;
     }
     
-    public Date getEndTime() {
+    public long getEndTime() {
         return endTime;
     }
     
-    public void setEndTime(Date endTime) {
+    public void setEndTime(long endTime) {
         this.endTime = endTime;
     }
     
+    public boolean isEnded() {
+        return endTime > 0;
+    }
+    
     public double getTotalDistance() {
         return totalDistance;
     }
@@ -101,6 +119,70 @@ public class TrackingSession {
         this.locationCount = locationCount;
     }
     
+    public long getMovingTime() {
+        return movingTime;
+    }
+    
+    public void setMovingTime(long movingTime) {
+        this.movingTime = movingTime;
+    }
+    
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+    
+    public void setMaxSpeed(float maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+    
+    public double getElevationGain() {
+        return elevationGain;
+    }
+    
+    public void setElevationGain(double elevationGain) {
+        this.elevationGain = elevationGain;
+    }
+    
+    public double getElevationLoss() {
+        return elevationLoss;
+    }
+    
+    public void setElevationLoss(double elevationLoss) {
+        this.elevationLoss = elevationLoss;
+    }
+    
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+    
+    public void setMinLatitude(double minLatitude) {
+        this.minLatitude = minLatitude;
+    }
+    
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+    
+    public void setMaxLatitude(double maxLatitude) {
+        this.maxLatitude = maxLatitude;
+    }
+    
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+    
+    public void setMinLongitude(double minLongitude) {
+        this.minLongitude = minLongitude;
+    }
+    
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+    
+    public void setMaxLongitude(double maxLongitude) {
+        this.maxLongitude = maxLongitude;
+    }
+    
     public boolean isManualRecording() {
         return isManualRecording;
     }
@@ -109,11 +191,19 @@ public class TrackingSession {
         isManualRecording = manualRecording;
     }
     
+    public int getRetentionTier() {
+        return retentionTier;
+    }
+    
+    public void setRetentionTier(int retentionTier) {
+        this.retentionTier = retentionTier;
+    }
+    
     // 计算会话持续时间（毫秒）
     public long getDuration() {
-        if (endTime == null) {
-            return System.currentTimeMillis() - startTime.getTime();
+        if (!isEnded()) {
+            return System.currentTimeMillis() - startTime;
         }
-        return endTime.getTime() - startTime.getTime();
+        return endTime - startTime;
     }
 }
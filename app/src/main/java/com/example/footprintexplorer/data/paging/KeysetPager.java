@@ -0,0 +1,245 @@
+package com.example.footprintexplorer.data.paging;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import com.example.footprintexplorer.data.entity.ContentHashed;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 键集分页加载器
+ * 按页从数据库加载列表，下一页以上一页最后一项的排序键为起点查询，
+ * 不使用OFFSET，因此每页的查询代价与已滚动的深度无关。
+ * 列表在滚动到距末尾prefetchDistance项时预取下一页；启用占位符时，
+ * 未加载的位置以null填充，列表长度即为总数，滚动条从一开始就准确。
+ * 数据表变化时按已加载的数量重新加载。
+ *
+ * @param <T> 列表项类型
+ */
+public class KeysetPager<T> {
+
+    private static final String TAG = "KeysetPager";
+
+    // 所有分页加载器共用一个加载线程，加载器状态只在该线程上修改
+    private static final ExecutorService LOAD_EXECUTOR =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "keyset-pager"));
+
+    private final RoomDatabase database;
+    private final PageLoader<T> loader;
+    private final Config config;
+    private final InvalidationTracker.Observer invalidationObserver;
+    private final MutableLiveData<List<T>> items = new MutableLiveData<>();
+    private final AtomicBoolean pageRequested = new AtomicBoolean(false);
+
+    // 以下字段只在加载线程上修改
+    private final List<T> loaded = new ArrayList<>();
+    private int totalCount;
+    private int generation;
+
+    // 供主线程判断是否需要预取
+    private volatile int loadedSize;
+    private volatile boolean endReached;
+    private volatile boolean closed;
+
+    /**
+     * @param database 数据库，用于监听数据表变化
+     * @param tables 列表依赖的数据表
+     * @param loader 分页查询
+     * @param config 分页配置
+     */
+    public KeysetPager(RoomDatabase database, String[] tables, PageLoader<T> loader, Config config) {
+        this.database = database;
+        this.loader = loader;
+        this.config = config;
+        this.invalidationObserver = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> changedTables) {
+                refresh();
+            }
+        };
+        database.getInvalidationTracker().addObserver(invalidationObserver);
+        refresh();
+    }
+
+    /**
+     * 获取当前已加载的列表
+     * 启用占位符时未加载的位置为null
+     */
+    public LiveData<List<T>> getItems() {
+        return items;
+    }
+
+    /**
+     * 通知加载器某个位置即将显示
+     * 在绑定列表项时调用，接近已加载末尾时预取下一页
+     */
+    public void loadAround(int position) {
+        if (closed || endReached || position < loadedSize - config.prefetchDistance) {
+            return;
+        }
+        if (pageRequested.compareAndSet(false, true)) {
+            LOAD_EXECUTOR.execute(this::loadNextPage);
+        }
+    }
+
+    /**
+     * 重新加载
+     * 保留已加载的数量，列表不会因数据变化而缩回第一页
+     */
+    public void refresh() {
+        if (closed) {
+            return;
+        }
+        LOAD_EXECUTOR.execute(this::reload);
+    }
+
+    /**
+     * 关闭加载器，停止监听数据表变化
+     */
+    public void close() {
+        closed = true;
+        database.getInvalidationTracker().removeObserver(invalidationObserver);
+    }
+
+    private void reload() {
+        if (closed) {
+            return;
+        }
+        generation++;
+        int limit = Math.max(loaded.size(), config.initialLoadSize);
+        List<T> page = loader.loadFirst(limit);
+        precomputeContentHashes(page);
+        loaded.clear();
+        loaded.addAll(page);
+        endReached = page.size() < limit;
+        totalCount = config.enablePlaceholders ? loader.count() : 0;
+        publish();
+    }
+
+    private void loadNextPage() {
+        pageRequested.set(false);
+        if (closed || endReached) {
+            return;
+        }
+        if (loaded.isEmpty()) {
+            reload();
+            return;
+        }
+
+        int startGeneration = generation;
+        T last = loaded.get(loaded.size() - 1);
+        List<T> page = loader.loadAfter(last, config.pageSize);
+        precomputeContentHashes(page);
+        if (startGeneration != generation) {
+            // 加载期间列表已重新加载，丢弃这一页
+            return;
+        }
+        loaded.addAll(page);
+        endReached = page.size() < config.pageSize;
+        Log.d(TAG, "加载下一页: " + page.size() + "，已加载: " + loaded.size());
+        publish();
+    }
+
+    /**
+     * 在加载线程上预先计算内容摘要，列表比较时无需再逐字段比较
+     */
+    private void precomputeContentHashes(List<T> page) {
+        for (T item : page) {
+            if (item instanceof ContentHashed) {
+                ((ContentHashed) item).getContentHash();
+            }
+        }
+    }
+
+    private void publish() {
+        loadedSize = loaded.size();
+        int size = endReached ? loaded.size() : Math.max(loaded.size(), totalCount);
+        items.postValue(new PagedSnapshot<>(new ArrayList<>(loaded), size));
+    }
+
+    /**
+     * 分页查询
+     * @param <T> 列表项类型
+     */
+    public interface PageLoader<T> {
+        /**
+         * 加载第一页
+         */
+        List<T> loadFirst(int limit);
+
+        /**
+         * 加载排在指定项之后的一页
+         * @param last 上一页的最后一项，其排序键作为本页的起点
+         */
+        List<T> loadAfter(T last, int limit);
+
+        /**
+         * 列表总数，仅在启用占位符时调用
+         */
+        int count();
+    }
+
+    /**
+     * 分页配置
+     */
+    public static class Config {
+
+        // 默认每页数量，约为两屏
+        public static final int DEFAULT_PAGE_SIZE = 30;
+
+        private final int pageSize;
+        private final int initialLoadSize;
+        private final int prefetchDistance;
+        private final boolean enablePlaceholders;
+
+        public Config() {
+            this(DEFAULT_PAGE_SIZE, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_SIZE / 2, true);
+        }
+
+        public Config(int pageSize, int initialLoadSize, int prefetchDistance, boolean enablePlaceholders) {
+            this.pageSize = pageSize;
+            this.initialLoadSize = initialLoadSize;
+            this.prefetchDistance = prefetchDistance;
+            this.enablePlaceholders = enablePlaceholders;
+        }
+    }
+
+    /**
+     * 已加载列表的不可变快照
+     * 未加载的位置返回null，无需为占位符分配数组
+     */
+    private static class PagedSnapshot<T> extends AbstractList<T> {
+        private final List<T> loaded;
+        private final int size;
+
+        PagedSnapshot(List<T> loaded, int size) {
+            this.loaded = loaded;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+            return index < loaded.size() ? loaded.get(index) : null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
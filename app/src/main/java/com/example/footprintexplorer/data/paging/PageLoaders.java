@@ -0,0 +1,187 @@
+package com.example.footprintexplorer.data.paging;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.Badge;
+import com.example.footprintexplorer.data.entity.Challenge;
+import com.example.footprintexplorer.data.entity.Place;
+import com.example.footprintexplorer.data.entity.TrackingSession;
+
+import java.util.List;
+
+/**
+ * 列表的键集分页查询
+ * 每个列表以（排序时间, ID）作为排序键，下一页从上一页最后一项的键开始。
+ * 排序时间可能为NULL的列表（未解锁的徽章等）中NULL排在最后，
+ * 上一页停在NULL上时改用只查NULL部分的查询，否则比较NULL不会匹配任何行
+ */
+public final class PageLoaders {
+
+    private PageLoaders() {
+    }
+
+    /**
+     * 徽章列表，按解锁日期倒序
+     * @param category 徽章类别，为null或空时返回全部徽章
+     */
+    public static KeysetPager.PageLoader<Badge> badges(FootprintDatabase database, String category) {
+        boolean all = category == null || category.isEmpty();
+        return new KeysetPager.PageLoader<Badge>() {
+            @Override
+            public List<Badge> loadFirst(int limit) {
+                return all ? database.badgeDao().getBadgesPage(limit)
+                        : database.badgeDao().getBadgesByCategoryPage(category, limit);
+            }
+
+            @Override
+            public List<Badge> loadAfter(Badge last, int limit) {
+                if (last.getUnlockDate() == null) {
+                    return all ? database.badgeDao().getUndatedBadgesPageAfter(last.getId(), limit)
+                            : database.badgeDao().getUndatedBadgesByCategoryPageAfter(category, last.getId(), limit);
+                }
+                return all ? database.badgeDao().getBadgesPageAfter(last.getUnlockDate(), last.getId(), limit)
+                        : database.badgeDao().getBadgesByCategoryPageAfter(category, last.getUnlockDate(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return all ? database.badgeDao().getBadgeCount()
+                        : database.badgeDao().getBadgeCountByCategory(category);
+            }
+        };
+    }
+
+    /**
+     * 地点列表，按发现日期倒序
+     */
+    public static KeysetPager.PageLoader<Place> places(FootprintDatabase database) {
+        return new KeysetPager.PageLoader<Place>() {
+            @Override
+            public List<Place> loadFirst(int limit) {
+                return database.placeDao().getPlacesPage(limit);
+            }
+
+            @Override
+            public List<Place> loadAfter(Place last, int limit) {
+                return database.placeDao().getPlacesPageAfter(last.getDiscoveryDate(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return database.placeDao().getPlaceCount();
+            }
+        };
+    }
+
+    /**
+     * 追踪会话列表，按开始时间倒序
+     */
+    public static KeysetPager.PageLoader<TrackingSession> sessions(FootprintDatabase database) {
+        return new KeysetPager.PageLoader<TrackingSession>() {
+            @Override
+            public List<TrackingSession> loadFirst(int limit) {
+                return database.trackingSessionDao().getSessionsPage(limit);
+            }
+
+            @Override
+            public List<TrackingSession> loadAfter(TrackingSession last, int limit) {
+                return database.trackingSessionDao().getSessionsPageAfter(last.getStartTime(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return database.trackingSessionDao().getSessionCount();
+            }
+        };
+    }
+
+    /**
+     * 全部挑战任务，按创建时间倒序
+     */
+    public static KeysetPager.PageLoader<Challenge> challenges(FootprintDatabase database) {
+        return new KeysetPager.PageLoader<Challenge>() {
+            @Override
+            public List<Challenge> loadFirst(int limit) {
+                return database.challengeDao().getChallengesPage(limit);
+            }
+
+            @Override
+            public List<Challenge> loadAfter(Challenge last, int limit) {
+                return database.challengeDao().getChallengesPageAfter(last.getCreateTime(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return database.challengeDao().getChallengeCount();
+            }
+        };
+    }
+
+    /**
+     * 进行中的挑战任务，按创建时间倒序
+     */
+    public static KeysetPager.PageLoader<Challenge> activeChallenges(FootprintDatabase database) {
+        return new KeysetPager.PageLoader<Challenge>() {
+            @Override
+            public List<Challenge> loadFirst(int limit) {
+                return database.challengeDao().getActiveChallengesPage(limit);
+            }
+
+            @Override
+            public List<Challenge> loadAfter(Challenge last, int limit) {
+                return database.challengeDao().getActiveChallengesPageAfter(last.getCreateTime(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return database.challengeDao().getChallengeCountByCompleted(false);
+            }
+        };
+    }
+
+    /**
+     * 已完成的挑战任务，按完成时间倒序
+     */
+    public static KeysetPager.PageLoader<Challenge> completedChallenges(FootprintDatabase database) {
+        return new KeysetPager.PageLoader<Challenge>() {
+            @Override
+            public List<Challenge> loadFirst(int limit) {
+                return database.challengeDao().getCompletedChallengesPage(limit);
+            }
+
+            @Override
+            public List<Challenge> loadAfter(Challenge last, int limit) {
+                if (last.getCompleteTime() == null) {
+                    return database.challengeDao().getUndatedCompletedChallengesPageAfter(last.getId(), limit);
+                }
+                return database.challengeDao().getCompletedChallengesPageAfter(last.getCompleteTime(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return database.challengeDao().getChallengeCountByCompleted(true);
+            }
+        };
+    }
+
+    /**
+     * 指定类型的挑战任务，按创建时间倒序
+     */
+    public static KeysetPager.PageLoader<Challenge> challengesByType(FootprintDatabase database, String type) {
+        return new KeysetPager.PageLoader<Challenge>() {
+            @Override
+            public List<Challenge> loadFirst(int limit) {
+                return database.challengeDao().getChallengesByTypePage(type, limit);
+            }
+
+            @Override
+            public List<Challenge> loadAfter(Challenge last, int limit) {
+                return database.challengeDao().getChallengesByTypePageAfter(type, last.getCreateTime(), last.getId(), limit);
+            }
+
+            @Override
+            public int count() {
+                return database.challengeDao().getChallengeCountByType(type);
+            }
+        };
+    }
+}
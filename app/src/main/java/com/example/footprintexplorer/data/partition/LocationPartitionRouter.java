@@ -0,0 +1,513 @@
+package com.example.footprintexplorer.data.partition;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.LocationRecord;
+import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.utils.TrackBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 按月分区的位置记录路由
+ * 近期位置记录保存在location_records表中，已结束的旧月份整月移出到独立的列式归档文件
+ * （TrackColumnFile）。范围查询只访问与范围重叠的月份：主表按时间索引查询，
+ * 归档月份通过内存映射按列读取；长时间范围的统计用scanLocations按列扫描，
+ * 整段轨迹用getTrack读入TrackBuffer；
+ * 整月的删除或导出只是文件操作。月份用yyyyMM形式的整数表示（本地时区）。
+ * 查询方法需在后台线程调用。
+ */
+public class LocationPartitionRouter {
+
+    private static final String TAG = "LocationPartitionRouter";
+
+    private static final String ARCHIVE_DIR = "location_archive";
+    private static final String FILE_PREFIX = "locations_";
+    private static final String FILE_SUFFIX = ".col";
+
+    // 归档时每批移动的行数，每批在主库中是一个删除事务
+    private static final int ARCHIVE_CHUNK = 500;
+
+    // 扫描主表时每页的行数
+    private static final int SCAN_PAGE = 1000;
+
+    private static volatile LocationPartitionRouter instance;
+
+    private final FootprintDatabase database;
+    private final File archiveDir;
+
+    // 已归档月份，按月份排序
+    private final TreeMap<Integer, MonthArchive> archives = new TreeMap<>();
+
+    private LocationPartitionRouter(Context context) {
+        database = FootprintDatabase.getInstance(context);
+        archiveDir = new File(context.getDatabasePath(ARCHIVE_DIR).getPath());
+        loadArchives();
+    }
+
+    /**
+     * 获取单例实例
+     * @param context 上下文
+     * @return 分区路由
+     */
+    public static LocationPartitionRouter getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LocationPartitionRouter.class) {
+                if (instance == null) {
+                    instance = new LocationPartitionRouter(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取时间所在的月份
+     * @return yyyyMM形式的月份
+     */
+    public static int monthOf(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH) + 1;
+    }
+
+    /**
+     * 获取月份第一毫秒的时间
+     */
+    public static long monthStart(int month) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(month / 100, month % 100 - 1, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 获取月份最后一毫秒的时间
+     */
+    public static long monthEnd(int month) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(month / 100, month % 100 - 1, 1);
+        calendar.add(Calendar.MONTH, 1);
+        return calendar.getTimeInMillis() - 1;
+    }
+
+    /**
+     * 获取已归档的月份
+     */
+    public synchronized List<Integer> getArchivedMonths() {
+        return new ArrayList<>(archives.keySet());
+    }
+
+    /**
+     * 获取月份的归档文件，未归档时返回null
+     */
+    public synchronized File getArchiveFile(int month) {
+        MonthArchive archive = archives.get(month);
+        return archive != null ? archive.getFile() : null;
+    }
+
+    /**
+     * 获取时间范围内的位置记录数量
+     */
+    public int getLocationCountBetween(long startTime, long endTime) {
+        int count = database.locationDao().getLocationCountBetween(startTime, endTime);
+        for (MonthArchive archive : archivesBetween(startTime, endTime)) {
+            count += archive.countBetween(startTime, endTime);
+        }
+        return count;
+    }
+
+    /**
+     * 获取指定会话的位置记录数量
+     * 只查询与会话时间重叠的归档月份
+     */
+    public int getLocationCountBySession(TrackingSession session) {
+        int count = database.locationDao().getLocationCountBySession(session.getId());
+        for (MonthArchive archive : archivesForSession(session)) {
+            count += archive.countBySession(session.getId());
+        }
+        return count;
+    }
+
+    /**
+     * 键集分页获取时间范围内的位置记录
+     * 排序和参数与LocationDao.getLocationsBetweenPage相同。归档月份按顺序读取，
+     * 已凑够一页时不再打开后面的月份；结果与主表的同一页归并
+     */
+    public List<LocationRecord> getLocationsBetweenPage(long endTime, long afterTime, long afterId, int limit) {
+        List<LocationRecord> hot = database.locationDao().getLocationsBetweenPage(endTime, afterTime, afterId, limit);
+        List<LocationRecord> archived = new ArrayList<>();
+        for (MonthArchive archive : archivesBetween(afterTime, endTime)) {
+            archived.addAll(archive.pageBetween(endTime, afterTime, afterId, limit - archived.size()));
+            if (archived.size() >= limit) {
+                break;
+            }
+        }
+        return merge(hot, archived, limit);
+    }
+
+    /**
+     * 键集分页获取指定会话的位置记录
+     * 排序和参数与LocationDao.getLocationsBySessionPage相同
+     */
+    public List<LocationRecord> getLocationsBySessionPage(TrackingSession session, long afterTime, long afterId,
+                                                          int limit) {
+        List<LocationRecord> hot = database.locationDao()
+                .getLocationsBySessionPage(session.getId(), afterTime, afterId, limit);
+        List<LocationRecord> archived = new ArrayList<>();
+        for (MonthArchive archive : archivesForSession(session)) {
+            if (monthEnd(archive.getMonth()) < afterTime) {
+                continue;
+            }
+            archived.addAll(archive.pageBySession(session.getId(), afterTime, afterId, limit - archived.size()));
+            if (archived.size() >= limit) {
+                break;
+            }
+        }
+        return merge(hot, archived, limit);
+    }
+
+    /**
+     * 扫描时间范围内的全部位置点，用于长时间范围的统计和地图叠加
+     * 归档月份按列扫描，只解码需要的列且不创建对象；之后扫描主表。
+     * 每个分区内按时间顺序，归档月份早于主表中的记录
+     */
+    public void scanLocations(long startTime, long endTime, PointVisitor visitor) {
+        for (MonthArchive archive : archivesBetween(startTime, endTime)) {
+            archive.scan(startTime, endTime, visitor);
+        }
+
+        long afterTime = startTime;
+        long afterId = Long.MIN_VALUE;
+        List<LocationRecord> page;
+        do {
+            page = database.locationDao().getLocationsBetweenPage(endTime, afterTime, afterId, SCAN_PAGE);
+            for (LocationRecord record : page) {
+                visitor.visit(record.getSessionId(), record.getTimestamp(), record.getLatitude(),
+                        record.getLongitude(), record.getSpeed());
+            }
+            if (!page.isEmpty()) {
+                LocationRecord last = page.get(page.size() - 1);
+                afterTime = last.getTimestamp();
+                afterId = last.getId();
+            }
+        } while (page.size() == SCAN_PAGE);
+    }
+
+    /**
+     * 获取时间范围内的轨迹
+     * 归档月份按列读入，主表通过游标读入，都不创建位置记录对象；
+     * 两部分按时间和ID归并，用于地图绘制等需要整段轨迹的场景
+     */
+    public TrackBuffer getTrack(long startTime, long endTime) {
+        TrackBuffer archived = new TrackBuffer();
+        for (MonthArchive archive : archivesBetween(startTime, endTime)) {
+            archive.fill(startTime, endTime, archived);
+        }
+        TrackBuffer hot = new TrackBuffer();
+        try (Cursor cursor = database.locationDao().getTrackCursorBetween(startTime, endTime)) {
+            hot.appendFrom(cursor);
+        }
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        if (hot.isEmpty()) {
+            return archived;
+        }
+        return merge(hot, archived);
+    }
+
+    /**
+     * 归档指定时间之前的全部整月
+     * 从最早的月份开始逐月移出主表，使归档月份始终早于主表中的月份
+     * @param cutoff 只归档结束时间早于此时间的月份
+     * @return 归档的月份数
+     * @throws IOException 写入归档文件失败，已归档的月份不受影响
+     */
+    public int archiveMonthsBefore(long cutoff) throws IOException {
+        int archived = 0;
+        Long earliest;
+        while ((earliest = database.locationDao().getEarliestLocationTime()) != null) {
+            int month = monthOf(earliest);
+            if (monthEnd(month) >= cutoff) {
+                break;
+            }
+            archiveMonth(month);
+            archived++;
+        }
+        return archived;
+    }
+
+    /**
+     * 将一个月的位置记录从主表移到归档文件
+     * 主表中该月的记录与已有归档按时间归并，写出新的列式文件后替换旧文件，
+     * 再分批从主表删除已归档的记录。中途中断时主表记录仍在，重新归档时
+     * 与归档中ID相同的记录只保留一份
+     * @return 归档文件，该月没有记录时返回null
+     */
+    public File archiveMonth(int month) throws IOException {
+        MonthArchive existing;
+        synchronized (this) {
+            existing = archives.get(month);
+        }
+        File target = archiveFile(month);
+        File temp = new File(target.getPath() + ".tmp");
+
+        long end = monthEnd(month);
+        long[] movedIds = new long[ARCHIVE_CHUNK];
+        int moved = 0;
+        TrackColumnFile.Scanner archived = existing != null ? existing.scanAll() : null;
+        boolean hasArchived = archived != null && archived.next();
+        long rowCount;
+        try (TrackColumnFile.Writer writer = new TrackColumnFile.Writer(temp)) {
+            long afterTime = monthStart(month);
+            long afterId = Long.MIN_VALUE;
+            List<LocationRecord> page;
+            do {
+                page = database.locationDao().getLocationsBetweenPage(end, afterTime, afterId, ARCHIVE_CHUNK);
+                for (LocationRecord record : page) {
+                    long time = record.getTimestamp();
+                    // 先写出排在前面的已归档点
+                    while (hasArchived && (archived.time() < time
+                            || (archived.time() == time && archived.id() < record.getId()))) {
+                        append(writer, archived);
+                        hasArchived = archived.next();
+                    }
+                    if (hasArchived && archived.time() == time && archived.id() == record.getId()) {
+                        hasArchived = archived.next();
+                    }
+                    writer.append(record.getId(), record.getSessionId(), time, record.getLatitude(),
+                            record.getLongitude(), record.getAltitude(), record.getAccuracy(), record.getSpeed());
+                    if (moved == movedIds.length) {
+                        movedIds = Arrays.copyOf(movedIds, moved * 2);
+                    }
+                    movedIds[moved++] = record.getId();
+                }
+                if (!page.isEmpty()) {
+                    LocationRecord last = page.get(page.size() - 1);
+                    afterTime = last.getTimestamp();
+                    afterId = last.getId();
+                }
+            } while (page.size() == ARCHIVE_CHUNK);
+            while (hasArchived) {
+                append(writer, archived);
+                hasArchived = archived.next();
+            }
+            writer.finish();
+            rowCount = writer.getRowCount();
+        }
+
+        if (rowCount == 0) {
+            deleteArchiveFile(temp);
+            return null;
+        }
+        if (!temp.renameTo(target)) {
+            deleteArchiveFile(temp);
+            throw new IOException("无法替换归档文件: " + target);
+        }
+        synchronized (this) {
+            archives.put(month, new MonthArchive(month, target));
+        }
+
+        // 新文件可见后再从主表删除
+        for (int offset = 0; offset < moved; offset += ARCHIVE_CHUNK) {
+            database.locationDao().deleteLocationsByIds(
+                    Arrays.copyOfRange(movedIds, offset, Math.min(moved, offset + ARCHIVE_CHUNK)));
+        }
+        Log.d(TAG, "归档月份 " + month + ": 移出 " + moved + " 条, 共 " + rowCount + " 条, "
+                + target.length() / 1024 + "KB");
+        return target;
+    }
+
+    /**
+     * 删除一个月的全部位置记录
+     * 归档月份直接删除文件；主表中该月的记录（如导入的旧轨迹）分批删除
+     */
+    public void dropMonth(int month) {
+        MonthArchive archive;
+        synchronized (this) {
+            archive = archives.remove(month);
+        }
+        if (archive != null) {
+            deleteArchiveFile(archive.getFile());
+        }
+
+        long start = monthStart(month);
+        long end = monthEnd(month);
+        List<LocationRecord> chunk;
+        do {
+            chunk = database.locationDao().getLocationsBetweenPage(end, start, Long.MIN_VALUE, ARCHIVE_CHUNK);
+            long[] ids = new long[chunk.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = chunk.get(i).getId();
+            }
+            if (ids.length > 0) {
+                database.locationDao().deleteLocationsByIds(ids);
+            }
+        } while (chunk.size() == ARCHIVE_CHUNK);
+        Log.d(TAG, "已删除月份 " + month);
+    }
+
+    /**
+     * 删除全部归档文件
+     * 主表中的记录由调用方删除
+     */
+    public void dropAllArchives() {
+        List<MonthArchive> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(archives.values());
+            archives.clear();
+        }
+        for (MonthArchive archive : removed) {
+            deleteArchiveFile(archive.getFile());
+        }
+    }
+
+    /**
+     * 获取与时间范围重叠的归档月份
+     */
+    private synchronized List<MonthArchive> archivesBetween(long startTime, long endTime) {
+        if (archives.isEmpty() || startTime > endTime) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(archives.subMap(monthOf(startTime), true, monthOf(endTime), true).values());
+    }
+
+    /**
+     * 获取与会话时间重叠的归档月份，进行中的会话截止到当前时间
+     */
+    private List<MonthArchive> archivesForSession(TrackingSession session) {
+        long endTime = session.isEnded() ? session.getEndTime() : System.currentTimeMillis();
+        return archivesBetween(session.getStartTime(), endTime);
+    }
+
+    /**
+     * 按时间和ID归并两个有序列表，最多取limit条，相同的记录只取一次
+     */
+    private static List<LocationRecord> merge(List<LocationRecord> first, List<LocationRecord> second, int limit) {
+        if (second.isEmpty()) {
+            return first.size() <= limit ? first : new ArrayList<>(first.subList(0, limit));
+        }
+        if (first.isEmpty()) {
+            return second.size() <= limit ? second : new ArrayList<>(second.subList(0, limit));
+        }
+        List<LocationRecord> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            int order = i >= first.size() ? 1 : j >= second.size() ? -1 : compare(first.get(i), second.get(j));
+            if (order == 0) {
+                // 归档后尚未从主表删除的记录，只保留一份
+                merged.add(first.get(i++));
+                j++;
+            } else if (order < 0) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 按时间和ID归并两段有序轨迹，相同的点只取一次
+     */
+    private static TrackBuffer merge(TrackBuffer first, TrackBuffer second) {
+        TrackBuffer merged = new TrackBuffer(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            int order;
+            if (i >= first.size()) {
+                order = 1;
+            } else if (j >= second.size()) {
+                order = -1;
+            } else {
+                order = Long.compare(first.getTime(i), second.getTime(j));
+                if (order == 0) {
+                    order = Long.compare(first.getId(i), second.getId(j));
+                }
+            }
+            TrackBuffer source = order <= 0 ? first : second;
+            int index = order <= 0 ? i : j;
+            merged.add(source.getId(index), source.getSessionId(index), source.getTime(index),
+                    source.getLatitude(index), source.getLongitude(index), source.getSpeed(index));
+            if (order <= 0) {
+                i++;
+            }
+            if (order >= 0) {
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    private static void append(TrackColumnFile.Writer writer, TrackColumnFile.Scanner scanner) throws IOException {
+        writer.append(scanner.id(), scanner.sessionId(), scanner.time(), scanner.latitude(), scanner.longitude(),
+                scanner.altitude(), scanner.accuracy(), scanner.speed());
+    }
+
+    private static int compare(LocationRecord a, LocationRecord b) {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(a.getId(), b.getId());
+    }
+
+    private File archiveFile(int month) {
+        if (!archiveDir.exists() && !archiveDir.mkdirs()) {
+            Log.e(TAG, "无法创建归档目录: " + archiveDir);
+        }
+        return new File(archiveDir, FILE_PREFIX + month + FILE_SUFFIX);
+    }
+
+    private void deleteArchiveFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "无法删除归档文件: " + file);
+        }
+    }
+
+    /**
+     * 扫描归档目录，文件名中的月份即分区键
+     */
+    private void loadArchives() {
+        File[] files = archiveDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(FILE_SUFFIX + ".tmp")) {
+                // 上次归档中断时留下的未完成文件，对应记录仍在主表中
+                deleteArchiveFile(file);
+                continue;
+            }
+            if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+                continue;
+            }
+            try {
+                int month = Integer.parseInt(name.substring(FILE_PREFIX.length(),
+                        name.length() - FILE_SUFFIX.length()));
+                archives.put(month, new MonthArchive(month, file));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "忽略无法识别的归档文件: " + name);
+            }
+        }
+        Log.d(TAG, "已加载 " + archives.size() + " 个归档月份");
+    }
+
+    /**
+     * 位置点访问接口
+     */
+    public interface PointVisitor {
+        void visit(long sessionId, long time, double latitude, double longitude, float speed);
+    }
+}
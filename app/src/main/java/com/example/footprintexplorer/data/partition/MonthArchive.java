@@ -0,0 +1,239 @@
+package com.example.footprintexplorer.data.partition;
+
+import com.example.footprintexplorer.data.entity.LocationRecord;
+import com.example.footprintexplorer.utils.TrackBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单月位置记录归档
+ * 每个月一个列式轨迹文件（TrackColumnFile），首次读取时内存映射，之后复用映射。
+ * 归档文件写完后不再修改，重新归档时写出新文件替换，删除文件即删除该月数据。
+ * 按时间的查询利用块索引跳过范围外的块，计数只解码时间列
+ */
+class MonthArchive {
+
+    private static final int POINT_COLUMNS = 1 << TrackColumnFile.SESSION | 1 << TrackColumnFile.TIME
+            | 1 << TrackColumnFile.LATITUDE | 1 << TrackColumnFile.LONGITUDE | 1 << TrackColumnFile.SPEED;
+
+    private final int month;
+    private final File file;
+    private TrackColumnFile columns;
+
+    MonthArchive(int month, File file) {
+        this.month = month;
+        this.file = file;
+    }
+
+    int getMonth() {
+        return month;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * 获取时间范围内的位置记录数量
+     * 完全在范围内的块直接使用块索引中的数量
+     */
+    int countBetween(long startTime, long endTime) {
+        TrackColumnFile columns = columns();
+        TrackColumnFile.Scanner scanner = columns.scanner(1 << TrackColumnFile.TIME);
+        int count = 0;
+        for (int block = 0; block < columns.getBlockCount(); block++) {
+            long min = columns.getMinTime(block);
+            long max = columns.getMaxTime(block);
+            if (max < startTime || min > endTime) {
+                continue;
+            }
+            if (min >= startTime && max <= endTime) {
+                count += columns.getBlockRowCount(block);
+                continue;
+            }
+            scanner.seek(block, block + 1);
+            while (scanner.next()) {
+                long time = scanner.time();
+                if (time >= startTime && time <= endTime) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取指定会话的位置记录数量
+     */
+    int countBySession(long sessionId) {
+        TrackColumnFile columns = columns();
+        TrackColumnFile.Scanner scanner = columns.scanner(1 << TrackColumnFile.SESSION);
+        int count = 0;
+        for (int block = 0; block < columns.getBlockCount(); block++) {
+            if (!columns.mayContainSession(block, sessionId)) {
+                continue;
+            }
+            scanner.seek(block, block + 1);
+            while (scanner.next()) {
+                if (scanner.sessionId() == sessionId) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 键集分页获取时间范围内的位置记录，排序与LocationDao.getLocationsBetweenPage相同
+     */
+    List<LocationRecord> pageBetween(long endTime, long afterTime, long afterId, int limit) {
+        TrackColumnFile columns = columns();
+        TrackColumnFile.Scanner scanner = columns.scanner(TrackColumnFile.ALL_COLUMNS);
+        List<LocationRecord> records = new ArrayList<>(Math.min(limit, TrackColumnFile.BLOCK_ROWS));
+        int first = firstBlockEndingAfter(columns, afterTime);
+        if (first < 0) {
+            return records;
+        }
+        scanner.seek(first, columns.getBlockCount());
+        while (records.size() < limit && scanner.next()) {
+            long time = scanner.time();
+            if (time > endTime) {
+                break;
+            }
+            if (time > afterTime || (time == afterTime && scanner.id() > afterId)) {
+                records.add(toRecord(scanner));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 键集分页获取指定会话的位置记录，排序与LocationDao.getLocationsBySessionPage相同
+     */
+    List<LocationRecord> pageBySession(long sessionId, long afterTime, long afterId, int limit) {
+        TrackColumnFile columns = columns();
+        TrackColumnFile.Scanner scanner = columns.scanner(TrackColumnFile.ALL_COLUMNS);
+        List<LocationRecord> records = new ArrayList<>();
+        int first = firstBlockEndingAfter(columns, afterTime);
+        if (first < 0) {
+            return records;
+        }
+        for (int block = first; block < columns.getBlockCount() && records.size() < limit; block++) {
+            if (!columns.mayContainSession(block, sessionId)) {
+                continue;
+            }
+            scanner.seek(block, block + 1);
+            while (records.size() < limit && scanner.next()) {
+                long time = scanner.time();
+                if (scanner.sessionId() == sessionId
+                        && (time > afterTime || (time == afterTime && scanner.id() > afterId))) {
+                    records.add(toRecord(scanner));
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 获取时间范围内的全部位置记录
+     */
+    List<LocationRecord> between(long startTime, long endTime) {
+        return pageBetween(endTime, startTime, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 扫描时间范围内的位置点
+     * 只解码会话、时间、坐标和速度列，不创建位置记录对象
+     */
+    void scan(long startTime, long endTime, LocationPartitionRouter.PointVisitor visitor) {
+        TrackColumnFile columns = columns();
+        int first = firstBlockEndingAfter(columns, startTime);
+        if (first < 0) {
+            return;
+        }
+        TrackColumnFile.Scanner scanner = columns.scanner(POINT_COLUMNS);
+        scanner.seek(first, columns.getBlockCount());
+        while (scanner.next()) {
+            long time = scanner.time();
+            if (time > endTime) {
+                break;
+            }
+            if (time >= startTime) {
+                visitor.visit(scanner.sessionId(), time, scanner.latitude(), scanner.longitude(), scanner.speed());
+            }
+        }
+    }
+
+    /**
+     * 把时间范围内的位置点追加到轨迹缓冲区
+     */
+    void fill(long startTime, long endTime, TrackBuffer track) {
+        TrackColumnFile columns = columns();
+        int first = firstBlockEndingAfter(columns, startTime);
+        if (first < 0) {
+            return;
+        }
+        TrackColumnFile.Scanner scanner = columns.scanner(POINT_COLUMNS | 1 << TrackColumnFile.ID);
+        scanner.seek(first, columns.getBlockCount());
+        while (scanner.next()) {
+            long time = scanner.time();
+            if (time > endTime) {
+                break;
+            }
+            if (time >= startTime) {
+                track.add(scanner.id(), scanner.sessionId(), time, scanner.latitude(), scanner.longitude(),
+                        scanner.speed());
+            }
+        }
+    }
+
+    /**
+     * 创建读取本月全部列的游标，供重新归档时与主表记录归并
+     */
+    TrackColumnFile.Scanner scanAll() {
+        return columns().scanner(TrackColumnFile.ALL_COLUMNS);
+    }
+
+    static LocationRecord toRecord(TrackColumnFile.Scanner scanner) {
+        LocationRecord record = new LocationRecord(scanner.sessionId(), scanner.latitude(), scanner.longitude(),
+                scanner.altitude(), scanner.accuracy(), scanner.speed(), scanner.time());
+        record.setId(scanner.id());
+        return record;
+    }
+
+    /**
+     * 二分查找最后时间不早于指定时间的第一个块
+     * 块按时间顺序写入，各块的最后时间单调不减
+     * @return 块序号，没有时返回-1
+     */
+    private static int firstBlockEndingAfter(TrackColumnFile columns, long time) {
+        int low = 0;
+        int high = columns.getBlockCount() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (columns.getMaxTime(mid) >= time) {
+                found = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return found;
+    }
+
+    private synchronized TrackColumnFile columns() {
+        if (columns == null) {
+            try {
+                columns = TrackColumnFile.open(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return columns;
+    }
+}
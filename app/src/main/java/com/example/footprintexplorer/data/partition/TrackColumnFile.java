@@ -0,0 +1,413 @@
+package com.example.footprintexplorer.data.partition;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 列式轨迹文件
+ * 按列保存位置点，每4096个点为一个块。块内每一列单独存放，数值量化为整数后
+ * 与前一个值做差，再以zigzag变长整数编码；块索引记录每块的时间和会话ID范围，
+ * 扫描时跳过范围外的块。读取时整个文件内存映射，按列游标直接在映射缓冲区上解码，
+ * 只解码请求的列，不复制数据。文件写完后不再修改。
+ *
+ * <pre>
+ * 文件头: magic(int) version(int)
+ * 块:     各列偏移(int × 8) 各列数据
+ * 块索引: 每块 offset(long) count(int) minTime(long) maxTime(long) minSession(long) maxSession(long)
+ * 文件尾: indexOffset(long) blockCount(int) rowCount(long) version(int) magic(int)
+ * </pre>
+ */
+final class TrackColumnFile {
+
+    private static final int MAGIC = 0x46504341; // "FPCA"
+    private static final int VERSION = 1;
+
+    // 每块最多的点数
+    static final int BLOCK_ROWS = 4096;
+
+    // 列
+    static final int ID = 0;
+    static final int SESSION = 1;
+    static final int TIME = 2;
+    static final int LATITUDE = 3;
+    static final int LONGITUDE = 4;
+    static final int ALTITUDE = 5;
+    static final int ACCURACY = 6;
+    static final int SPEED = 7;
+    private static final int COLUMN_COUNT = 8;
+
+    // 列掩码
+    static final int ALL_COLUMNS = (1 << COLUMN_COUNT) - 1;
+
+    // 量化精度：坐标1e-7度（约1厘米），海拔、精度和速度0.01
+    private static final double COORD_SCALE = 1e7;
+    private static final double METRIC_SCALE = 100;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 44;
+    private static final int FOOTER_SIZE = 28;
+    private static final int BLOCK_HEADER_SIZE = COLUMN_COUNT * 4;
+
+    private final MappedByteBuffer buffer;
+    private final long rowCount;
+    private final int blockCount;
+    private final int[] blockOffsets;
+    private final int[] blockCounts;
+    private final long[] minTimes;
+    private final long[] maxTimes;
+    private final long[] minSessions;
+    private final long[] maxSessions;
+
+    private TrackColumnFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < HEADER_SIZE + FOOTER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(size - 4) != MAGIC || buffer.getInt(size - 8) != VERSION) {
+            throw new IOException("不是有效的列式轨迹文件");
+        }
+        int footer = size - FOOTER_SIZE;
+        int indexOffset = (int) buffer.getLong(footer);
+        blockCount = buffer.getInt(footer + 8);
+        rowCount = buffer.getLong(footer + 12);
+
+        blockOffsets = new int[blockCount];
+        blockCounts = new int[blockCount];
+        minTimes = new long[blockCount];
+        maxTimes = new long[blockCount];
+        minSessions = new long[blockCount];
+        maxSessions = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            int entry = indexOffset + i * INDEX_ENTRY_SIZE;
+            blockOffsets[i] = (int) buffer.getLong(entry);
+            blockCounts[i] = buffer.getInt(entry + 8);
+            minTimes[i] = buffer.getLong(entry + 12);
+            maxTimes[i] = buffer.getLong(entry + 20);
+            minSessions[i] = buffer.getLong(entry + 28);
+            maxSessions[i] = buffer.getLong(entry + 36);
+        }
+    }
+
+    /**
+     * 以只读方式映射文件
+     */
+    static TrackColumnFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("列式轨迹文件过大: " + file);
+            }
+            // 映射在通道关闭后仍然有效
+            return new TrackColumnFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    int getBlockCount() {
+        return blockCount;
+    }
+
+    int getBlockRowCount(int block) {
+        return blockCounts[block];
+    }
+
+    long getMinTime(int block) {
+        return minTimes[block];
+    }
+
+    long getMaxTime(int block) {
+        return maxTimes[block];
+    }
+
+    /**
+     * 块中是否可能包含指定会话
+     */
+    boolean mayContainSession(int block, long sessionId) {
+        return sessionId >= minSessions[block] && sessionId <= maxSessions[block];
+    }
+
+    /**
+     * 创建列游标
+     * @param columns 需要解码的列掩码，如 1 << TIME | 1 << LATITUDE
+     */
+    Scanner scanner(int columns) {
+        return new Scanner(columns);
+    }
+
+    static double decodeCoordinate(long value) {
+        return value / COORD_SCALE;
+    }
+
+    static long encodeCoordinate(double value) {
+        return Math.round(value * COORD_SCALE);
+    }
+
+    static double decodeMetric(long value) {
+        return value / METRIC_SCALE;
+    }
+
+    static long encodeMetric(double value) {
+        return Math.round(value * METRIC_SCALE);
+    }
+
+    /**
+     * 列游标
+     * 在映射缓冲区上逐点解码，各列独立维护读取位置和上一个值，未请求的列不读取
+     */
+    final class Scanner {
+
+        private final int[] columns;
+        private final int[] positions = new int[COLUMN_COUNT];
+        private final long[] values = new long[COLUMN_COUNT];
+        private int block = -1;
+        private int endBlock = blockCount;
+        private int remaining;
+
+        private Scanner(int mask) {
+            int count = Integer.bitCount(mask & ALL_COLUMNS);
+            columns = new int[count];
+            int index = 0;
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                if ((mask & (1 << column)) != 0) {
+                    columns[index++] = column;
+                }
+            }
+        }
+
+        /**
+         * 定位到块的开头，之后从该块顺序读取到endBlock之前
+         */
+        void seek(int block, int endBlock) {
+            this.endBlock = Math.min(endBlock, blockCount);
+            enterBlock(block);
+        }
+
+        /**
+         * 跳过当前块剩余的点，下一次next()从下一块开始
+         */
+        void skipBlock() {
+            remaining = 0;
+        }
+
+        /**
+         * 当前块序号
+         */
+        int block() {
+            return block;
+        }
+
+        /**
+         * 读取下一个点
+         * @return 没有更多点时返回false
+         */
+        boolean next() {
+            while (remaining == 0) {
+                if (block + 1 >= endBlock) {
+                    return false;
+                }
+                enterBlock(block + 1);
+            }
+            for (int column : columns) {
+                int position = positions[column];
+                long raw = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    raw |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                positions[column] = position;
+                values[column] += (raw >>> 1) ^ -(raw & 1);
+            }
+            remaining--;
+            return true;
+        }
+
+        long id() {
+            return values[ID];
+        }
+
+        long sessionId() {
+            return values[SESSION];
+        }
+
+        long time() {
+            return values[TIME];
+        }
+
+        double latitude() {
+            return decodeCoordinate(values[LATITUDE]);
+        }
+
+        double longitude() {
+            return decodeCoordinate(values[LONGITUDE]);
+        }
+
+        double altitude() {
+            return decodeMetric(values[ALTITUDE]);
+        }
+
+        float accuracy() {
+            return (float) decodeMetric(values[ACCURACY]);
+        }
+
+        float speed() {
+            return (float) decodeMetric(values[SPEED]);
+        }
+
+        private void enterBlock(int block) {
+            this.block = block;
+            if (block >= blockCount) {
+                remaining = 0;
+                return;
+            }
+            int start = blockOffsets[block];
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                positions[column] = start + BLOCK_HEADER_SIZE + buffer.getInt(start + column * 4);
+            }
+            Arrays.fill(values, 0);
+            remaining = blockCounts[block];
+        }
+    }
+
+    /**
+     * 流式写入列式轨迹文件
+     * 点必须按时间、ID的顺序追加；内存中只保留当前块
+     */
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream output;
+        private final long[][] block = new long[COLUMN_COUNT][BLOCK_ROWS];
+        private final byte[] encoded = new byte[COLUMN_COUNT * BLOCK_ROWS * 10];
+        private final int[] columnOffsets = new int[COLUMN_COUNT];
+        private int blockRows;
+        private long position;
+        private long rowCount;
+
+        // 块索引
+        private long[] index = new long[6 * 16];
+        private int blockCount;
+
+        Writer(File file) throws IOException {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            position = HEADER_SIZE;
+        }
+
+        void append(long id, long sessionId, long time, double latitude, double longitude,
+                    double altitude, float accuracy, float speed) throws IOException {
+            block[ID][blockRows] = id;
+            block[SESSION][blockRows] = sessionId;
+            block[TIME][blockRows] = time;
+            block[LATITUDE][blockRows] = encodeCoordinate(latitude);
+            block[LONGITUDE][blockRows] = encodeCoordinate(longitude);
+            block[ALTITUDE][blockRows] = encodeMetric(altitude);
+            block[ACCURACY][blockRows] = encodeMetric(accuracy);
+            block[SPEED][blockRows] = encodeMetric(speed);
+            blockRows++;
+            rowCount++;
+            if (blockRows == BLOCK_ROWS) {
+                flushBlock();
+            }
+        }
+
+        long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * 写出最后一块、块索引和文件尾
+         */
+        void finish() throws IOException {
+            if (blockRows > 0) {
+                flushBlock();
+            }
+            long indexOffset = position;
+            for (int i = 0; i < blockCount; i++) {
+                int base = i * 6;
+                output.writeLong(index[base]);
+                output.writeInt((int) index[base + 1]);
+                output.writeLong(index[base + 2]);
+                output.writeLong(index[base + 3]);
+                output.writeLong(index[base + 4]);
+                output.writeLong(index[base + 5]);
+            }
+            output.writeLong(indexOffset);
+            output.writeInt(blockCount);
+            output.writeLong(rowCount);
+            output.writeInt(VERSION);
+            output.writeInt(MAGIC);
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+
+        private void flushBlock() throws IOException {
+            if ((blockCount + 1) * 6 > index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            long minSession = Long.MAX_VALUE;
+            long maxSession = Long.MIN_VALUE;
+            for (int i = 0; i < blockRows; i++) {
+                minSession = Math.min(minSession, block[SESSION][i]);
+                maxSession = Math.max(maxSession, block[SESSION][i]);
+            }
+            int base = blockCount * 6;
+            index[base] = position;
+            index[base + 1] = blockRows;
+            index[base + 2] = block[TIME][0];
+            index[base + 3] = block[TIME][blockRows - 1];
+            index[base + 4] = minSession;
+            index[base + 5] = maxSession;
+            blockCount++;
+
+            // 各列依次编码到同一缓冲区，再写出列偏移和数据
+            int length = 0;
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                columnOffsets[column] = length;
+                length = encodeColumn(block[column], length);
+            }
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                output.writeInt(columnOffsets[column]);
+            }
+            output.write(encoded, 0, length);
+            position += BLOCK_HEADER_SIZE + length;
+            blockRows = 0;
+        }
+
+        /**
+         * 差分后以zigzag变长整数编码一列，从offset处写入encoded
+         * @return 写入后的结束位置
+         */
+        private int encodeColumn(long[] values, int offset) {
+            int length = offset;
+            long previous = 0;
+            for (int i = 0; i < blockRows; i++) {
+                long delta = values[i] - previous;
+                previous = values[i];
+                long zigzag = (delta << 1) ^ (delta >> 63);
+                while ((zigzag & ~0x7FL) != 0) {
+                    encoded[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+                    zigzag >>>= 7;
+                }
+                encoded[length++] = (byte) zigzag;
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.footprintexplorer.data.projection;
+
+/**
+ * 位置点投影
+ * 只包含坐标，用于只需要位置的读取（如地图定位），查询不读取位置记录的其他列
+ */
+public class LocationPoint {
+    
+    private final double latitude; // 纬度
+    
+    private final double longitude; // 经度
+    
+    public LocationPoint(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+    
+    public double getLatitude() {
+        return latitude;
+    }
+    
+    public double getLongitude() {
+        return longitude;
+    }
+}
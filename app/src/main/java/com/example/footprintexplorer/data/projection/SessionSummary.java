@@ -0,0 +1,39 @@
+package com.example.footprintexplorer.data.projection;
+
+/**
+ * 会话摘要投影
+ * 只包含报告需要的开始时间、距离和移动时间，查询不读取会话的名称、边界框等其他列
+ */
+public class SessionSummary {
+    
+    private final long id;
+    
+    private final long startTime; // 开始时间（毫秒）
+    
+    private final double totalDistance; // 总距离（米）
+    
+    private final long movingTime; // 移动时间（毫秒）
+    
+    public SessionSummary(long id, long startTime, double totalDistance, long movingTime) {
+        this.id = id;
+        this.startTime = startTime;
+        this.totalDistance = totalDistance;
+        this.movingTime = movingTime;
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public long getStartTime() {
+        return startTime;
+    }
+    
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+    
+    public long getMovingTime() {
+        return movingTime;
+    }
+}
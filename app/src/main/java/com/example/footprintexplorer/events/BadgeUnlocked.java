@@ -0,0 +1,31 @@
+package com.example.footprintexplorer.events;
+
+/**
+ * 徽章解锁事件
+ * 在解锁事务提交后发布
+ */
+public final class BadgeUnlocked extends DomainEvent {
+
+    private final long badgeId;
+    private final long placeId;
+    private final String category;
+
+    public BadgeUnlocked(long badgeId, long placeId, String category) {
+        super(Type.BADGE_UNLOCKED);
+        this.badgeId = badgeId;
+        this.placeId = placeId;
+        this.category = category;
+    }
+
+    public long getBadgeId() {
+        return badgeId;
+    }
+
+    public long getPlaceId() {
+        return placeId;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.footprintexplorer.events;
+
+/**
+ * 领域事件基类
+ * 由追踪流程发布，经DomainEventBus分发给统计、挑战和界面缓存等订阅者
+ */
+public abstract class DomainEvent {
+
+    // 事件类型
+    public enum Type {
+        FIX_RECORDED,    // 收到有效位置点
+        SESSION_ENDED,   // 追踪会话结束
+        PLACE_UNLOCKED,  // 解锁新地点
+        BADGE_UNLOCKED   // 解锁新徽章
+    }
+
+    private final Type type;
+    private final long timestamp;
+
+    protected DomainEvent(Type type) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.footprintexplorer.events;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 进程内领域事件总线
+ * 追踪流程发布事件，订阅者按类型订阅并批量接收。
+ * 每个订阅者拥有独立的环形缓冲区和分发任务：发布只是一次数组写入，
+ * 从不阻塞，慢订阅者不会拖慢GPS处理，也不会影响其他订阅者。
+ * 默认订阅不丢事件，积压时缓冲区扩容；只关心“有变化”的界面订阅者
+ * 可显式选择定长缓冲区，积压时丢弃最旧的事件。
+ */
+public class DomainEventBus {
+
+    private static final String TAG = "DomainEventBus";
+
+    // 默认每个订阅者缓冲区的初始容量
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    // 默认每批交付的最大事件数量
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    private static volatile DomainEventBus instance;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // 同一订阅者同时最多占用一个线程，空闲线程自动回收
+    private final ExecutorService dispatchExecutor =
+            Executors.newCachedThreadPool(r -> new Thread(r, "event-dispatch"));
+
+    private DomainEventBus() {
+    }
+
+    /**
+     * 获取单例实例
+     * @return 事件总线
+     */
+    public static DomainEventBus getInstance() {
+        if (instance == null) {
+            synchronized (DomainEventBus.class) {
+                if (instance == null) {
+                    instance = new DomainEventBus();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 订阅事件
+     * 不丢事件，积压时缓冲区扩容
+     * @param subscriber 订阅者，在分发线程上批量接收事件
+     * @param types 关心的事件类型
+     * @return 订阅句柄，用于取消订阅
+     */
+    public Subscription subscribe(Subscriber subscriber, DomainEvent.Type... types) {
+        return subscribe(subscriber, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BATCH, types);
+    }
+
+    /**
+     * 订阅事件
+     * 不丢事件，积压超过初始容量时缓冲区扩容
+     * @param subscriber 订阅者，在分发线程上批量接收事件
+     * @param bufferSize 缓冲区初始容量
+     * @param maxBatch 每批交付的最大事件数量
+     * @param types 关心的事件类型
+     * @return 订阅句柄，用于取消订阅
+     */
+    public Subscription subscribe(Subscriber subscriber, int bufferSize, int maxBatch,
+                                  DomainEvent.Type... types) {
+        return add(new Subscription(subscriber, bufferSize, maxBatch, false, typeSet(types)));
+    }
+
+    /**
+     * 订阅事件，积压时丢弃最旧的事件
+     * 只适用于把一批事件当作“有变化”信号的界面订阅者，
+     * 需要每个事件的订阅者（统计、挑战、索引）应使用subscribe
+     * @param subscriber 订阅者，在分发线程上批量接收事件
+     * @param bufferSize 缓冲区大小，积压超过此值时丢弃最旧的事件
+     * @param maxBatch 每批交付的最大事件数量
+     * @param types 关心的事件类型
+     * @return 订阅句柄，用于取消订阅
+     */
+    public Subscription subscribeDropOldest(Subscriber subscriber, int bufferSize, int maxBatch,
+                                            DomainEvent.Type... types) {
+        return add(new Subscription(subscriber, bufferSize, maxBatch, true, typeSet(types)));
+    }
+
+    private Subscription add(Subscription subscription) {
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private static EnumSet<DomainEvent.Type> typeSet(DomainEvent.Type... types) {
+        if (types.length == 0) {
+            throw new IllegalArgumentException("至少需要订阅一种事件类型");
+        }
+        return EnumSet.copyOf(Arrays.asList(types));
+    }
+
+    /**
+     * 取消订阅
+     * 已在缓冲区中的事件不再交付
+     */
+    public void unsubscribe(Subscription subscription) {
+        if (subscription != null) {
+            subscription.cancel();
+            subscriptions.remove(subscription);
+        }
+    }
+
+    /**
+     * 发布事件
+     * 可在任意线程调用，不会阻塞
+     */
+    public void publish(DomainEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(event) && subscription.offer(event)) {
+                dispatchExecutor.execute(subscription::drain);
+            }
+        }
+    }
+
+    /**
+     * 事件订阅者
+     */
+    public interface Subscriber {
+        /**
+         * 批量接收事件
+         * 同一订阅者的调用不会并发，事件按发布顺序交付
+         * @param events 本批事件，至少包含一个
+         */
+        void onEvents(List<DomainEvent> events);
+    }
+
+    /**
+     * 订阅句柄
+     * 持有订阅者的环形缓冲区，缓冲区满时按订阅方式扩容或覆盖最旧的事件
+     */
+    public static final class Subscription {
+
+        private final Subscriber subscriber;
+        private final EnumSet<DomainEvent.Type> types;
+        private final int maxBatch;
+        private final boolean dropOldest;
+
+        private DomainEvent[] ring;
+        private int head;
+        private int size;
+        private boolean scheduled;
+        private long droppedCount;
+        private volatile boolean cancelled;
+
+        private Subscription(Subscriber subscriber, int bufferSize, int maxBatch,
+                             boolean dropOldest, EnumSet<DomainEvent.Type> types) {
+            if (bufferSize <= 0 || maxBatch <= 0) {
+                throw new IllegalArgumentException("缓冲区大小和批量大小必须为正数");
+            }
+            this.subscriber = subscriber;
+            this.types = types;
+            this.ring = new DomainEvent[bufferSize];
+            this.maxBatch = maxBatch;
+            this.dropOldest = dropOldest;
+        }
+
+        private boolean accepts(DomainEvent event) {
+            return !cancelled && types.contains(event.getType());
+        }
+
+        /**
+         * 放入一个事件
+         * 缓冲区已满时扩容，选择丢弃的订阅则覆盖最旧的事件
+         * @return 是否需要调度一次分发
+         */
+        private synchronized boolean offer(DomainEvent event) {
+            if (size == ring.length) {
+                if (dropOldest) {
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                    droppedCount++;
+                } else {
+                    grow();
+                }
+            }
+            ring[(head + size) % ring.length] = event;
+            size++;
+
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        /**
+         * 容量翻倍，积压的事件按顺序移到新数组开头
+         */
+        private void grow() {
+            DomainEvent[] larger = new DomainEvent[ring.length * 2];
+            for (int i = 0; i < size; i++) {
+                larger[i] = ring[(head + i) % ring.length];
+            }
+            ring = larger;
+            head = 0;
+        }
+
+        /**
+         * 取出一批事件
+         * @return 缓冲区为空时返回null，并结束本次分发
+         */
+        private synchronized List<DomainEvent> poll() {
+            if (size == 0 || cancelled) {
+                scheduled = false;
+                return null;
+            }
+            int count = Math.min(size, maxBatch);
+            List<DomainEvent> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(ring[head]);
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+            }
+            size -= count;
+            return batch;
+        }
+
+        /**
+         * 在分发线程上交付积压的事件，直到缓冲区清空
+         */
+        private void drain() {
+            List<DomainEvent> batch;
+            while ((batch = poll()) != null) {
+                try {
+                    subscriber.onEvents(batch);
+                } catch (RuntimeException e) {
+                    // 单个批次失败不影响后续事件的交付
+                    Log.e(TAG, "事件处理失败: " + e.getMessage());
+                }
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * 获取因积压被丢弃的事件数量
+         * 只有subscribeDropOldest的订阅会丢弃事件
+         */
+        public synchronized long getDroppedCount() {
+            return droppedCount;
+        }
+    }
+}
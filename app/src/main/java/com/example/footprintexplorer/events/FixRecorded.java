@@ -0,0 +1,68 @@
+package com.example.footprintexplorer.events;
+
+/**
+ * 位置点事件
+ * 每个被会话接受的位置点发布一次，无论该点是否入库
+ */
+public final class FixRecorded extends DomainEvent {
+
+    private final long sessionId;
+    private final double latitude;
+    private final double longitude;
+    private final double altitude;
+    private final float speed;
+    private final long time;
+    private final double distanceDelta;
+    private final boolean persisted;
+
+    public FixRecorded(long sessionId, double latitude, double longitude, double altitude,
+                       float speed, long time, double distanceDelta, boolean persisted) {
+        super(Type.FIX_RECORDED);
+        this.sessionId = sessionId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.speed = speed;
+        this.time = time;
+        this.distanceDelta = distanceDelta;
+        this.persisted = persisted;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * 与上一个位置点的距离（米）
+     */
+    public double getDistanceDelta() {
+        return distanceDelta;
+    }
+
+    /**
+     * 该位置点是否写入了位置记录表
+     */
+    public boolean isPersisted() {
+        return persisted;
+    }
+}
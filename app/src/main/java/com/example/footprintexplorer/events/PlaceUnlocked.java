@@ -0,0 +1,40 @@
+package com.example.footprintexplorer.events;
+
+/**
+ * 地点解锁事件
+ * 在解锁事务提交后发布
+ */
+public final class PlaceUnlocked extends DomainEvent {
+
+    private final long placeId;
+    private final double latitude;
+    private final double longitude;
+    private final int badgeCount;
+
+    public PlaceUnlocked(long placeId, double latitude, double longitude, int badgeCount) {
+        super(Type.PLACE_UNLOCKED);
+        this.placeId = placeId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.badgeCount = badgeCount;
+    }
+
+    public long getPlaceId() {
+        return placeId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * 随该地点解锁的徽章数量，每个徽章另有一个BadgeUnlocked事件
+     */
+    public int getBadgeCount() {
+        return badgeCount;
+    }
+}
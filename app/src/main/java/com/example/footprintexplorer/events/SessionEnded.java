@@ -0,0 +1,30 @@
+package com.example.footprintexplorer.events;
+
+/**
+ * 会话结束事件
+ */
+public final class SessionEnded extends DomainEvent {
+
+    private final long sessionId;
+    private final double totalDistance;
+    private final int locationCount;
+
+    public SessionEnded(long sessionId, double totalDistance, int locationCount) {
+        super(Type.SESSION_ENDED);
+        this.sessionId = sessionId;
+        this.totalDistance = totalDistance;
+        this.locationCount = locationCount;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    public int getLocationCount() {
+        return locationCount;
+    }
+}
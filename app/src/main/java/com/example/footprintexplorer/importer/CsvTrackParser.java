@@ -0,0 +1,121 @@
+package com.example.footprintexplorer.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * CSV轨迹解析器
+ * 第一行为表头，按列名识别纬度、经度、海拔、时间、速度和轨迹列，
+ * 分隔符为逗号或分号。时间可为ISO 8601、秒或毫秒时间戳；
+ * 轨迹列的值变化时开始新会话
+ */
+public class CsvTrackParser implements TrackParser {
+
+    // 小于此值的数字时间戳按秒处理（约为1973年的毫秒数）
+    private static final long SECONDS_THRESHOLD = 100000000000L;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public void parse(InputStream in, PointSink sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        // 去掉UTF-8 BOM
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        String separator = header.indexOf(';') >= 0 && header.indexOf(',') < 0 ? ";" : ",";
+        String[] columns = header.split(separator, -1);
+        int latColumn = -1;
+        int lonColumn = -1;
+        int altColumn = -1;
+        int timeColumn = -1;
+        int speedColumn = -1;
+        int trackColumn = -1;
+        for (int i = 0; i < columns.length; i++) {
+            switch (columns[i].trim().toLowerCase(Locale.ROOT)) {
+                case "lat":
+                case "latitude":
+                    latColumn = i;
+                    break;
+                case "lon":
+                case "lng":
+                case "long":
+                case "longitude":
+                    lonColumn = i;
+                    break;
+                case "ele":
+                case "alt":
+                case "altitude":
+                case "elevation":
+                    altColumn = i;
+                    break;
+                case "time":
+                case "timestamp":
+                case "datetime":
+                case "date_time":
+                    timeColumn = i;
+                    break;
+                case "speed":
+                    speedColumn = i;
+                    break;
+                case "track":
+                case "session":
+                case "segment":
+                    trackColumn = i;
+                    break;
+            }
+        }
+        if (latColumn < 0 || lonColumn < 0 || timeColumn < 0) {
+            throw new IOException("CSV缺少纬度、经度或时间列: " + header);
+        }
+
+        String currentTrack = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(separator, -1);
+            if (fields.length < columns.length) {
+                continue;
+            }
+
+            if (trackColumn >= 0 && !fields[trackColumn].equals(currentTrack)) {
+                currentTrack = fields[trackColumn];
+                sink.beginTrack();
+            }
+
+            try {
+                sink.point(
+                        Double.parseDouble(fields[latColumn]),
+                        Double.parseDouble(fields[lonColumn]),
+                        altColumn >= 0 ? parseOptional(fields[altColumn]) : Double.NaN,
+                        speedColumn >= 0 ? (float) parseOptional(fields[speedColumn]) : Float.NaN,
+                        parseTime(fields[timeColumn]));
+            } catch (NumberFormatException e) {
+                // 无法解析的行跳过
+            }
+        }
+    }
+
+    private static double parseOptional(String text) {
+        return text.isEmpty() ? Double.NaN : Double.parseDouble(text);
+    }
+
+    private static long parseTime(String text) {
+        if (text.indexOf('-') > 0) {
+            return IsoTime.parse(text.trim());
+        }
+        long value = (long) Double.parseDouble(text);
+        return value < SECONDS_THRESHOLD ? value * 1000 : value;
+    }
+}
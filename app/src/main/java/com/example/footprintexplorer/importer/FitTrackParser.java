@@ -0,0 +1,219 @@
+package com.example.footprintexplorer.importer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * FIT轨迹解析器
+ * 只解码record消息（全局消息号20）中的位置、海拔、速度和时间字段，
+ * 其他消息按定义的字段长度跳过。支持压缩时间戳记录头、开发者字段
+ * 和多个FIT文件首尾相接的链式文件，每个文件为一个会话
+ */
+public class FitTrackParser implements TrackParser {
+
+    private static final int MESG_RECORD = 20;
+
+    private static final int FIELD_POSITION_LAT = 0;
+    private static final int FIELD_POSITION_LONG = 1;
+    private static final int FIELD_ALTITUDE = 2;
+    private static final int FIELD_SPEED = 6;
+    private static final int FIELD_ENHANCED_SPEED = 73;
+    private static final int FIELD_ENHANCED_ALTITUDE = 78;
+    private static final int FIELD_TIMESTAMP = 253;
+
+    // FIT时间起点1989-12-31T00:00:00Z与Unix时间起点的差（秒）
+    private static final long FIT_EPOCH_OFFSET = 631065600L;
+
+    // 半圆单位到度
+    private static final double SEMICIRCLES_TO_DEGREES = 180.0 / 2147483648.0;
+
+    private static final int LOCAL_MESSAGE_TYPES = 16;
+
+    @Override
+    public void parse(InputStream in, PointSink sink) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        while (true) {
+            int headerSize = input.read();
+            if (headerSize < 0) {
+                return;
+            }
+            sink.beginTrack();
+            parseFile(input, headerSize, sink);
+        }
+    }
+
+    /**
+     * 解析一个FIT文件（文件头之后的部分）
+     */
+    private void parseFile(DataInputStream input, int headerSize, PointSink sink) throws IOException {
+        byte[] header = new byte[headerSize - 1];
+        input.readFully(header);
+        if (headerSize < 12 || header[7] != '.' || header[8] != 'F' || header[9] != 'I' || header[10] != 'T') {
+            throw new IOException("不是FIT文件");
+        }
+        long dataSize = (header[3] & 0xFFL) | (header[4] & 0xFFL) << 8
+                | (header[5] & 0xFFL) << 16 | (header[6] & 0xFFL) << 24;
+
+        Definition[] definitions = new Definition[LOCAL_MESSAGE_TYPES];
+        long lastTimestamp = -1;
+        long consumed = 0;
+        while (consumed < dataSize) {
+            int recordHeader = input.readUnsignedByte();
+            consumed++;
+
+            int localType;
+            long compressedTimestamp = -1;
+            if ((recordHeader & 0x80) != 0) {
+                // 压缩时间戳记录头：5位时间偏移，在上一个时间戳基础上滚动
+                localType = (recordHeader >> 5) & 0x03;
+                int offset = recordHeader & 0x1F;
+                if (lastTimestamp >= 0) {
+                    long timestamp = (lastTimestamp & ~0x1FL) + offset;
+                    if (offset < (lastTimestamp & 0x1F)) {
+                        timestamp += 0x20;
+                    }
+                    compressedTimestamp = timestamp;
+                    lastTimestamp = timestamp;
+                }
+            } else if ((recordHeader & 0x40) != 0) {
+                Definition definition = readDefinition(input, (recordHeader & 0x20) != 0);
+                definitions[recordHeader & 0x0F] = definition;
+                consumed += definition.definitionSize;
+                continue;
+            } else {
+                localType = recordHeader & 0x0F;
+            }
+
+            Definition definition = definitions[localType];
+            if (definition == null) {
+                throw new IOException("FIT数据消息缺少定义: " + localType);
+            }
+            consumed += definition.dataSize;
+
+            long timestamp = compressedTimestamp;
+            long lat = Long.MIN_VALUE;
+            long lon = Long.MIN_VALUE;
+            long altitude = -1;
+            long speed = -1;
+            for (int i = 0; i < definition.fieldCount; i++) {
+                int size = definition.sizes[i];
+                int number = definition.numbers[i];
+                if (number == FIELD_TIMESTAMP && size == 4) {
+                    long value = readUnsigned(input, size, definition.bigEndian);
+                    if (value != 0xFFFFFFFFL) {
+                        timestamp = value;
+                        lastTimestamp = value;
+                    }
+                } else if (definition.globalNumber != MESG_RECORD) {
+                    skipFully(input, size);
+                } else if ((number == FIELD_POSITION_LAT || number == FIELD_POSITION_LONG) && size == 4) {
+                    long value = readUnsigned(input, size, definition.bigEndian);
+                    long signed = value == 0x7FFFFFFFL ? Long.MIN_VALUE : (int) value;
+                    if (number == FIELD_POSITION_LAT) {
+                        lat = signed;
+                    } else {
+                        lon = signed;
+                    }
+                } else if ((number == FIELD_ALTITUDE && size == 2) || (number == FIELD_ENHANCED_ALTITUDE && size == 4)) {
+                    long value = readUnsigned(input, size, definition.bigEndian);
+                    // 增强字段优先
+                    if (value != invalidUnsigned(size) && (altitude < 0 || number == FIELD_ENHANCED_ALTITUDE)) {
+                        altitude = value;
+                    }
+                } else if ((number == FIELD_SPEED && size == 2) || (number == FIELD_ENHANCED_SPEED && size == 4)) {
+                    long value = readUnsigned(input, size, definition.bigEndian);
+                    if (value != invalidUnsigned(size) && (speed < 0 || number == FIELD_ENHANCED_SPEED)) {
+                        speed = value;
+                    }
+                } else {
+                    skipFully(input, size);
+                }
+            }
+            skipFully(input, definition.developerDataSize);
+
+            if (definition.globalNumber == MESG_RECORD && timestamp >= 0
+                    && lat != Long.MIN_VALUE && lon != Long.MIN_VALUE) {
+                sink.point(
+                        lat * SEMICIRCLES_TO_DEGREES,
+                        lon * SEMICIRCLES_TO_DEGREES,
+                        altitude >= 0 ? altitude / 5.0 - 500 : Double.NaN,
+                        speed >= 0 ? speed / 1000f : Float.NaN,
+                        (timestamp + FIT_EPOCH_OFFSET) * 1000);
+            }
+        }
+
+        // 文件尾CRC
+        skipFully(input, 2);
+    }
+
+    private Definition readDefinition(DataInputStream input, boolean hasDeveloperData) throws IOException {
+        Definition definition = new Definition();
+        input.readUnsignedByte(); // 保留字节
+        definition.bigEndian = input.readUnsignedByte() == 1;
+        int b0 = input.readUnsignedByte();
+        int b1 = input.readUnsignedByte();
+        definition.globalNumber = definition.bigEndian ? (b0 << 8) | b1 : (b1 << 8) | b0;
+        definition.fieldCount = input.readUnsignedByte();
+        definition.numbers = new int[definition.fieldCount];
+        definition.sizes = new int[definition.fieldCount];
+        for (int i = 0; i < definition.fieldCount; i++) {
+            definition.numbers[i] = input.readUnsignedByte();
+            definition.sizes[i] = input.readUnsignedByte();
+            input.readUnsignedByte(); // 基本类型，由字段号和长度即可确定
+            definition.dataSize += definition.sizes[i];
+        }
+        definition.definitionSize = 5 + 3 * definition.fieldCount;
+
+        if (hasDeveloperData) {
+            int developerFieldCount = input.readUnsignedByte();
+            for (int i = 0; i < developerFieldCount; i++) {
+                input.readUnsignedByte();
+                definition.developerDataSize += input.readUnsignedByte();
+                input.readUnsignedByte();
+            }
+            definition.dataSize += definition.developerDataSize;
+            definition.definitionSize += 1 + 3 * developerFieldCount;
+        }
+        return definition;
+    }
+
+    private static long readUnsigned(DataInputStream input, int size, boolean bigEndian) throws IOException {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            long b = input.readUnsignedByte();
+            value = bigEndian ? (value << 8) | b : value | (b << (8 * i));
+        }
+        return value;
+    }
+
+    private static long invalidUnsigned(int size) {
+        return size == 2 ? 0xFFFFL : 0xFFFFFFFFL;
+    }
+
+    private static void skipFully(DataInputStream input, int count) throws IOException {
+        while (count > 0) {
+            int skipped = input.skipBytes(count);
+            if (skipped <= 0) {
+                throw new EOFException("FIT文件意外结束");
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * 本地消息定义
+     */
+    private static class Definition {
+        boolean bigEndian;
+        int globalNumber;
+        int fieldCount;
+        int[] numbers;
+        int[] sizes;
+        int dataSize;
+        int developerDataSize;
+        int definitionSize;
+    }
+}
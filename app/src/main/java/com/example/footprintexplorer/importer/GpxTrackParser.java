@@ -0,0 +1,98 @@
+package com.example.footprintexplorer.importer;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * GPX轨迹解析器
+ * 使用XmlPullParser流式解析trkpt，每个trk为一个会话。
+ * 支持GPX 1.0的speed元素和常见扩展中的速度字段
+ */
+public class GpxTrackParser implements TrackParser {
+
+    @Override
+    public void parse(InputStream in, PointSink sink) throws IOException {
+        try {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput(in, null);
+
+            boolean inPoint = false;
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            double altitude = Double.NaN;
+            float speed = Float.NaN;
+            long time = -1;
+
+            int event = parser.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG) {
+                    String name = localName(parser.getName());
+                    if (name.equals("trk")) {
+                        sink.beginTrack();
+                    } else if (name.equals("trkpt")) {
+                        inPoint = true;
+                        latitude = parseDouble(parser.getAttributeValue(null, "lat"));
+                        longitude = parseDouble(parser.getAttributeValue(null, "lon"));
+                        altitude = Double.NaN;
+                        speed = Float.NaN;
+                        time = -1;
+                    } else if (inPoint) {
+                        switch (name) {
+                            case "ele":
+                                altitude = parseDouble(parser.nextText());
+                                break;
+                            case "time":
+                                time = parseTime(parser.nextText());
+                                break;
+                            case "speed":
+                                speed = (float) parseDouble(parser.nextText());
+                                break;
+                        }
+                    }
+                } else if (event == XmlPullParser.END_TAG && inPoint && localName(parser.getName()).equals("trkpt")) {
+                    inPoint = false;
+                    // 没有时间的点无法排序和计算速度，跳过
+                    if (time >= 0) {
+                        sink.point(latitude, longitude, altitude, speed, time);
+                    }
+                }
+                event = parser.next();
+            }
+        } catch (XmlPullParserException e) {
+            throw new IOException("GPX格式错误: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 去掉命名空间前缀，如gpxtpx:speed
+     */
+    private static String localName(String name) {
+        int colon = name.indexOf(':');
+        return colon >= 0 ? name.substring(colon + 1) : name;
+    }
+
+    private static double parseDouble(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static long parseTime(String text) {
+        try {
+            return IsoTime.parse(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.footprintexplorer.importer;
+
+/**
+ * ISO 8601时间解析
+ * 支持 yyyy-MM-ddTHH:mm:ss[.SSS][Z|±HH:mm|±HHmm]，日期与时间之间也可为空格，
+ * 无时区时按UTC处理。直接按字符计算，比SimpleDateFormat快一个数量级，
+ * 导入时每个位置点都要解析一次
+ */
+final class IsoTime {
+
+    private IsoTime() {
+    }
+
+    /**
+     * 解析时间
+     * @return 毫秒时间戳
+     * @throws NumberFormatException 格式不正确
+     */
+    static long parse(String text) {
+        int length = text.length();
+        if (length < 19 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(13) != ':') {
+            throw new NumberFormatException("无法解析时间: " + text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+
+        int pos = 19;
+        int millis = 0;
+        if (pos < length && text.charAt(pos) == '.') {
+            pos++;
+            int scale = 100;
+            while (pos < length && Character.isDigit(text.charAt(pos))) {
+                millis += (text.charAt(pos) - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+        }
+
+        int offsetMinutes = 0;
+        if (pos < length) {
+            char sign = text.charAt(pos);
+            if (sign == '+' || sign == '-') {
+                int offsetHour = digits(text, pos + 1, 2);
+                int minutePos = text.length() > pos + 3 && text.charAt(pos + 3) == ':' ? pos + 4 : pos + 3;
+                int offsetMinute = minutePos + 2 <= length ? digits(text, minutePos, 2) : 0;
+                offsetMinutes = (offsetHour * 60 + offsetMinute) * (sign == '-' ? -1 : 1);
+            } else if (sign != 'Z') {
+                throw new NumberFormatException("无法解析时区: " + text);
+            }
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86400L
+                + hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+        return seconds * 1000 + millis;
+    }
+
+    /**
+     * 公历日期到1970-01-01的天数
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("无法解析时间: " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.footprintexplorer.importer;
+
+import android.content.Context;
+import android.location.Location;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.Badge;
+import com.example.footprintexplorer.data.entity.LocationRecord;
+import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.events.BadgeUnlocked;
+import com.example.footprintexplorer.events.DomainEventBus;
+import com.example.footprintexplorer.events.PlaceUnlocked;
+import com.example.footprintexplorer.services.CoverageIndex;
+import com.example.footprintexplorer.services.SessionStatsAccumulator;
+import com.example.footprintexplorer.services.TrackingSessionManager;
+import com.example.footprintexplorer.utils.BatteryOptimizer;
+import com.example.footprintexplorer.utils.LocationUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 轨迹导入器
+ * 流式解析GPX、CSV或FIT文件，按轨迹边界和时间间隔拆分为会话，
+ * 对每个点执行与实时追踪相同的处理：会话统计累加、按距离阈值决定是否入库、
+ * 定期记录候选位置。位置记录通过预编译的INSERT语句绑定基本类型写入，
+ * 每BATCH_SIZE个点提交一次事务。全部批次提交后才检查候选位置是否发现新地点，
+ * 导入失败时不留下地点、徽章和挑战进度。需在后台线程调用。
+ */
+public class TrackImporter implements TrackParser.PointSink {
+
+    private static final String TAG = "TrackImporter";
+
+    // 每个事务写入的位置点数
+    private static final int BATCH_SIZE = 5000;
+
+    // 相邻两点间隔超过此值（毫秒）时拆分为新会话
+    private static final long SESSION_GAP = 30 * 60 * 1000;
+
+    // 每行进此距离（米）检查一次是否发现新地点
+    private static final double PLACE_CHECK_DISTANCE = 500;
+
+    private static final String INSERT_LOCATION = "INSERT INTO location_records "
+            + "(sessionId, latitude, longitude, altitude, accuracy, speed, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 导入格式
+     */
+    public enum Format {
+        GPX,
+        CSV,
+        FIT;
+
+        /**
+         * 按文件扩展名识别格式
+         * @return 格式，无法识别时返回null
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gpx")) {
+                return GPX;
+            } else if (name.endsWith(".csv")) {
+                return CSV;
+            } else if (name.endsWith(".fit")) {
+                return FIT;
+            }
+            return null;
+        }
+    }
+
+    private final FootprintDatabase database;
+    private final TrackingSessionManager sessionManager;
+    private final CoverageIndex coverageIndex;
+    private final CoverageIndex.Batch coverageBatch = CoverageIndex.newBatch();
+    private final OnProgressListener progressListener;
+    private final SimpleDateFormat nameFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+    private final float minRecordDistance;
+    private final float[] distanceResult = new float[1];
+    private volatile boolean cancelled;
+
+    // 导入过程状态
+    private SupportSQLiteStatement insertStatement;
+    private CountingInputStream countingInput;
+    private long totalBytes;
+    private boolean inTransaction;
+    private int pointsInBatch;
+    private final List<Long> sessionIds = new ArrayList<>();
+    private final List<Location> placeCandidates = new ArrayList<>();
+    private int importedCount;
+    private int recordedCount;
+    private int skippedCount;
+
+    // 当前会话状态
+    private TrackingSession session;
+    private SessionStatsAccumulator stats;
+    private boolean trackBreak;
+    private boolean hasLast;
+    private double lastLatitude;
+    private double lastLongitude;
+    private long lastTime;
+    private double distanceSinceCheck;
+
+    public TrackImporter(Context context, OnProgressListener progressListener) {
+        this(FootprintDatabase.getInstance(context), TrackingSessionManager.getInstance(context),
+                CoverageIndex.getInstance(context), progressListener);
+    }
+
+    /**
+     * 导入到独立的数据库
+     * 供基准测试使用：会话ID由该数据库生成，地点、徽章和用户计数只写入该数据库，
+     * 不更新覆盖索引，也不发布解锁事件，不影响应用数据和挑战进度
+     * @param database 独立的数据库，不能是getInstance返回的实例
+     * @param progressListener 进度监听器，可为null
+     */
+    public TrackImporter(FootprintDatabase database, OnProgressListener progressListener) {
+        this(database, null, null, progressListener);
+    }
+
+    private TrackImporter(FootprintDatabase database, TrackingSessionManager sessionManager,
+                          CoverageIndex coverageIndex, OnProgressListener progressListener) {
+        this.database = database;
+        this.sessionManager = sessionManager;
+        this.coverageIndex = coverageIndex;
+        this.progressListener = progressListener;
+        // 导入不受电池限制，使用电量充足时的记录阈值
+        this.minRecordDistance = BatteryOptimizer.getOptimalLocationUpdateDistance(BatteryOptimizer.BatteryState.HIGH);
+    }
+
+    /**
+     * 导入轨迹
+     * 导入失败或被取消时删除本次已写入的会话和位置记录
+     * @param in 输入流，由调用方关闭
+     * @param totalBytes 输入长度，用于计算进度，未知时传入-1
+     * @param format 文件格式
+     * @return 导入结果
+     */
+    public ImportResult importStream(InputStream in, long totalBytes, Format format) throws IOException {
+        long startNanos = System.nanoTime();
+        countingInput = new CountingInputStream(in);
+        this.totalBytes = totalBytes;
+
+        insertStatement = database.compileStatement(INSERT_LOCATION);
+        try {
+            database.beginTransaction();
+            inTransaction = true;
+            createParser(format).parse(countingInput, this);
+            finishSession();
+            commitBatch(false);
+        } catch (IOException | RuntimeException e) {
+            if (inTransaction) {
+                database.endTransaction();
+                inTransaction = false;
+            }
+            deleteImported();
+            throw e;
+        } finally {
+            insertStatement.close();
+        }
+
+        // 覆盖索引、地点和徽章只在导入成功后更新，解锁事件不会指向被删除的会话
+        if (coverageIndex != null) {
+            coverageIndex.commit(coverageBatch);
+        }
+        discoverPlaces();
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1000000);
+        Log.d(TAG, "导入 " + format + ": " + sessionIds.size() + " 个会话, " + importedCount + " 点, 入库 "
+                + recordedCount + ", 跳过 " + skippedCount + ", " + elapsedMs + "ms, "
+                + importedCount * 1000L / elapsedMs + " 点/秒");
+        return new ImportResult(new ArrayList<>(sessionIds), importedCount, recordedCount, skippedCount);
+    }
+
+    /**
+     * 取消导入，在下一次提交时生效
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void beginTrack() {
+        trackBreak = true;
+    }
+
+    @Override
+    public void point(double latitude, double longitude, double altitude, float speed, long time) throws IOException {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || Math.abs(latitude) > 90
+                || Math.abs(longitude) > 180 || time <= 0) {
+            skippedCount++;
+            return;
+        }
+
+        if (session == null || trackBreak || time - lastTime > SESSION_GAP) {
+            finishSession();
+            startSession(time);
+        } else if (time <= lastTime) {
+            // 时间倒退或重复的点无法计算速度，跳过
+            skippedCount++;
+            return;
+        }
+
+        double distance = 0;
+        if (hasLast) {
+            Location.distanceBetween(lastLatitude, lastLongitude, latitude, longitude, distanceResult);
+            distance = distanceResult[0];
+        }
+        if (Float.isNaN(speed)) {
+            speed = hasLast ? (float) (distance * 1000 / (time - lastTime)) : 0;
+        }
+        stats.addFix(latitude, longitude, altitude, speed, time, distance);
+        if (coverageIndex != null) {
+            coverageBatch.add(latitude, longitude, time);
+        }
+
+        // 与实时追踪相同：会话第一个点总是入库，之后与上一个点的距离达到阈值才入库
+        if (!hasLast || distance >= minRecordDistance) {
+            insertStatement.bindLong(1, session.getId());
+            insertStatement.bindDouble(2, latitude);
+            insertStatement.bindDouble(3, longitude);
+            insertStatement.bindDouble(4, Double.isNaN(altitude) ? 0 : altitude);
+            insertStatement.bindDouble(5, LocationRecord.ACCURACY_UNKNOWN);
+            insertStatement.bindDouble(6, speed);
+            insertStatement.bindLong(7, time);
+            insertStatement.executeInsert();
+            stats.addRecordedPoints(1);
+            recordedCount++;
+            pointsInBatch++;
+        }
+
+        distanceSinceCheck += distance;
+        if (!hasLast || distanceSinceCheck >= PLACE_CHECK_DISTANCE) {
+            Location location = new Location("import");
+            location.setLatitude(latitude);
+            location.setLongitude(longitude);
+            location.setTime(time);
+            placeCandidates.add(location);
+            distanceSinceCheck = 0;
+        }
+
+        hasLast = true;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastTime = time;
+        importedCount++;
+
+        if (pointsInBatch >= BATCH_SIZE) {
+            commitBatch(true);
+        }
+    }
+
+    /**
+     * 开始新会话，ID与实时追踪共用计数器；导入独立数据库时由数据库生成
+     */
+    private void startSession(long time) {
+        session = new TrackingSession("导入轨迹 " + nameFormat.format(new Date(time)), time);
+        if (sessionManager != null) {
+            session.setId(sessionManager.reserveSessionId());
+            database.trackingSessionDao().insert(session);
+        } else {
+            session.setId(database.trackingSessionDao().insert(session));
+        }
+        sessionIds.add(session.getId());
+
+        stats = new SessionStatsAccumulator();
+        trackBreak = false;
+        hasLast = false;
+        distanceSinceCheck = 0;
+    }
+
+    /**
+     * 结束当前会话，写入最终统计
+     */
+    private void finishSession() {
+        if (session == null) {
+            return;
+        }
+        session.setEndTime(lastTime);
+        stats.applyTo(session);
+        database.trackingSessionDao().update(session);
+        session = null;
+    }
+
+    /**
+     * 提交当前批次
+     * @param continueImport 是否开始下一批次的事务
+     */
+    private void commitBatch(boolean continueImport) throws IOException {
+        database.setTransactionSuccessful();
+        database.endTransaction();
+        inTransaction = false;
+        pointsInBatch = 0;
+
+        if (progressListener != null) {
+            progressListener.onProgress(countingInput.getCount(), totalBytes);
+        }
+
+        if (continueImport) {
+            if (cancelled) {
+                throw new InterruptedIOException("轨迹导入已取消");
+            }
+            database.beginTransaction();
+            inTransaction = true;
+        }
+    }
+
+    /**
+     * 检查全部候选位置是否发现新地点
+     * 与实时追踪相同，事件在解锁事务提交后发布，挑战进度随事件推进；
+     * 地点和徽章的日期取候选位置的时间
+     */
+    private void discoverPlaces() {
+        DomainEventBus eventBus = DomainEventBus.getInstance();
+        for (Location location : placeCandidates) {
+            List<Badge> unlockedBadges = new ArrayList<>();
+            long placeId = LocationUtils.checkNewPlace(location, database,
+                    (id, badges) -> unlockedBadges.addAll(badges));
+            if (placeId < 0 || sessionManager == null) {
+                continue;
+            }
+            eventBus.publish(new PlaceUnlocked(placeId, location.getLatitude(), location.getLongitude(),
+                    unlockedBadges.size()));
+            for (Badge badge : unlockedBadges) {
+                eventBus.publish(new BadgeUnlocked(badge.getId(), placeId, badge.getCategory()));
+            }
+        }
+        placeCandidates.clear();
+    }
+
+    /**
+     * 删除本次导入已提交的会话和位置记录
+     * 地点、徽章和覆盖索引在此之前尚未更新，无需回滚
+     */
+    private void deleteImported() {
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        database.runInTransaction(() -> {
+            for (long sessionId : sessionIds) {
+                database.locationDao().deleteLocationsBySession(sessionId);
+                database.trackingSessionDao().deleteSessionById(sessionId);
+            }
+        });
+        Log.d(TAG, "导入未完成，已删除 " + sessionIds.size() + " 个会话");
+        sessionIds.clear();
+    }
+
+    private static TrackParser createParser(Format format) {
+        switch (format) {
+            case CSV:
+                return new CsvTrackParser();
+            case FIT:
+                return new FitTrackParser();
+            default:
+                return new GpxTrackParser();
+        }
+    }
+
+    /**
+     * 导入进度回调
+     */
+    public interface OnProgressListener {
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    /**
+     * 导入结果
+     */
+    public static class ImportResult {
+
+        private final List<Long> sessionIds;
+        private final int importedCount;
+        private final int recordedCount;
+        private final int skippedCount;
+
+        ImportResult(List<Long> sessionIds, int importedCount, int recordedCount, int skippedCount) {
+            this.sessionIds = sessionIds;
+            this.importedCount = importedCount;
+            this.recordedCount = recordedCount;
+            this.skippedCount = skippedCount;
+        }
+
+        /**
+         * 新建的会话ID
+         */
+        public List<Long> getSessionIds() {
+            return sessionIds;
+        }
+
+        /**
+         * 参与统计的位置点数
+         */
+        public int getImportedCount() {
+            return importedCount;
+        }
+
+        /**
+         * 写入数据库的位置点数
+         */
+        public int getRecordedCount() {
+            return recordedCount;
+        }
+
+        /**
+         * 无效或时间倒退而跳过的位置点数
+         */
+        public int getSkippedCount() {
+            return skippedCount;
+        }
+    }
+
+    /**
+     * 统计已读取字节数的输入流
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.footprintexplorer.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 轨迹文件解析器
+ * 流式解析输入，每解析出一个位置点立即交给PointSink，不在内存中保留点列表
+ */
+public interface TrackParser {
+
+    /**
+     * 解析输入流
+     * @param in 输入流，由调用方关闭
+     * @param sink 位置点接收器
+     */
+    void parse(InputStream in, PointSink sink) throws IOException;
+
+    /**
+     * 位置点接收器
+     * 以基本类型传递字段，解析过程中不为每个点分配对象
+     */
+    interface PointSink {
+
+        /**
+         * 文件中的轨迹边界（如GPX的trk），之后的点属于新会话
+         */
+        void beginTrack() throws IOException;
+
+        /**
+         * 接收一个位置点
+         * @param latitude 纬度
+         * @param longitude 经度
+         * @param altitude 海拔（米），缺失时为NaN
+         * @param speed 速度（米/秒），缺失时为NaN
+         * @param time 时间戳（毫秒）
+         */
+        void point(double latitude, double longitude, double altitude, float speed, long time) throws IOException;
+    }
+}
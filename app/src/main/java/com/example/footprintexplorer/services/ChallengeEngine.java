@@ -0,0 +1,355 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.Challenge;
+import com.example.footprintexplorer.data.entity.User;
+import com.example.footprintexplorer.events.BadgeUnlocked;
+import com.example.footprintexplorer.events.DomainEvent;
+import com.example.footprintexplorer.events.DomainEventBus;
+import com.example.footprintexplorer.events.FixRecorded;
+import com.example.footprintexplorer.events.SessionEnded;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 挑战任务引擎
+ * 在内存中按类型索引进行中的挑战，随领域事件（行进距离、解锁地点、
+ * 解锁徽章、会话结束）增量推进进度。每个事件只遍历对应类型的挑战，
+ * 距离进度的数据库写入会被合并，定期或在会话结束时批量提交。
+ * 所有事件都通过DomainEventBus批量接收，解锁事件在解锁事务提交后才发布。
+ * 引擎锁只保护内存索引，持有期间从不访问数据库，
+ * 也从不在别人的事务内被获取，避免与会话写线程互相等待。
+ * 变化的进度在写入提交之前一直保留，写入失败时下次提交重试。
+ */
+public class ChallengeEngine implements DomainEventBus.Subscriber {
+
+    private static final String TAG = "ChallengeEngine";
+
+    // 挑战类型
+    public static final String TYPE_DISTANCE = "distance";
+    public static final String TYPE_PLACE = "place";
+    public static final String TYPE_BADGE = "badge";
+    public static final String TYPE_SESSION = "session";
+
+    // 单用户应用，用户ID固定为1
+    private static final long USER_ID = 1;
+
+    // 距离进度合并写入的最小间隔（毫秒）
+    private static final long FLUSH_INTERVAL = 60 * 1000;
+
+    private static volatile ChallengeEngine instance;
+
+    private final FootprintDatabase database;
+
+    private Map<String, List<Challenge>> activeByType;
+    // 失效次数，加载期间索引再次失效时丢弃加载结果
+    private long generation;
+    private final Set<Challenge> dirty = new LinkedHashSet<>();
+    private double distanceRemainder;
+    private long lastFlushTime;
+    private boolean flushRequested;
+
+    private ChallengeEngine(Context context) {
+        database = FootprintDatabase.getInstance(context.getApplicationContext());
+        DomainEventBus.getInstance().subscribe(this,
+                DomainEvent.Type.FIX_RECORDED, DomainEvent.Type.SESSION_ENDED,
+                DomainEvent.Type.PLACE_UNLOCKED, DomainEvent.Type.BADGE_UNLOCKED);
+    }
+
+    /**
+     * 获取单例实例
+     * @param context 上下文
+     * @return 挑战任务引擎
+     */
+    public static ChallengeEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ChallengeEngine.class) {
+                if (instance == null) {
+                    instance = new ChallengeEngine(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 批量处理领域事件
+     * 一批位置点的距离合并为一次推进，会话结束前先推进之前累积的距离。
+     * 在锁外加载索引，在锁内推进内存进度并复制待写入的进度，在锁外提交，
+     * 提交成功后才清除已写入的变化，并把完成的挑战移出内存索引。
+     * 事件总线保证同一订阅者的调用不会并发，提交因此按事件顺序进行
+     */
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        List<PendingProgress> pending;
+        while (true) {
+            ensureLoaded();
+            synchronized (this) {
+                if (activeByType == null) {
+                    // 加载完成后索引又被失效，重新加载
+                    continue;
+                }
+                pending = process(events);
+                break;
+            }
+        }
+        if (pending != null) {
+            flush(pending);
+        }
+    }
+
+    /**
+     * 在引擎锁内推进一批事件的进度
+     * @return 需要提交的进度快照，不需要提交时返回null
+     */
+    private List<PendingProgress> process(List<DomainEvent> events) {
+        double meters = 0;
+        for (DomainEvent event : events) {
+            switch (event.getType()) {
+                case FIX_RECORDED:
+                    meters += ((FixRecorded) event).getDistanceDelta();
+                    break;
+                case SESSION_ENDED:
+                    handleDistanceAdded(meters);
+                    meters = 0;
+                    handleSessionEnded(((SessionEnded) event).getSessionId());
+                    break;
+                case PLACE_UNLOCKED:
+                    advance(TYPE_PLACE, 1, null);
+                    flushRequested = true;
+                    break;
+                case BADGE_UNLOCKED:
+                    advance(TYPE_BADGE, 1, ((BadgeUnlocked) event).getCategory());
+                    flushRequested = true;
+                    break;
+            }
+        }
+        handleDistanceAdded(meters);
+        return takePending();
+    }
+
+    /**
+     * 使内存索引失效
+     * 挑战被添加或删除后调用，下一个事件到来时重新加载；
+     * 尚未写入的进度保留，重新加载后并入仍然存在的挑战
+     */
+    public synchronized void invalidate() {
+        activeByType = null;
+        generation++;
+    }
+
+    private void handleDistanceAdded(double meters) {
+        if (meters <= 0) {
+            return;
+        }
+
+        // 挑战进度为整数米，不足一米的部分留到下一次
+        distanceRemainder += meters;
+        int whole = (int) distanceRemainder;
+        if (whole == 0) {
+            return;
+        }
+        distanceRemainder -= whole;
+
+        boolean completed = advance(TYPE_DISTANCE, whole, null);
+        if (completed || System.currentTimeMillis() - lastFlushTime >= FLUSH_INTERVAL) {
+            flushRequested = true;
+        }
+    }
+
+    private void handleSessionEnded(long sessionId) {
+        advance(TYPE_SESSION, 1, null);
+        flushRequested = true;
+        Log.d(TAG, "会话结束，ID: " + sessionId + "，提交挑战进度");
+    }
+
+    /**
+     * 推进指定类型的挑战
+     * 只遍历该类型的进行中挑战
+     * @param category 徽章类别，仅对限定类别的徽章挑战生效，可为null
+     * @return 是否有挑战因此完成
+     */
+    private boolean advance(String type, int amount, String category) {
+        List<Challenge> challenges = activeByType.get(type);
+        if (challenges == null) {
+            return false;
+        }
+
+        boolean completed = false;
+        for (Challenge challenge : challenges) {
+            String required = challenge.getBadgeCategory();
+            if (required != null && !required.isEmpty() && !required.equals(category)) {
+                continue;
+            }
+            challenge.setProgress(Math.min(challenge.getProgress() + amount, challenge.getTarget()));
+            dirty.add(challenge);
+            completed |= challenge.isCompleted();
+        }
+        return completed;
+    }
+
+    /**
+     * 复制需要提交的进度
+     * 在引擎锁内调用，不访问数据库；变化集合保留到写入提交之后
+     * @return 本批事件不需要提交或没有变化时返回null
+     */
+    private List<PendingProgress> takePending() {
+        if (!flushRequested) {
+            return null;
+        }
+        flushRequested = false;
+        lastFlushTime = System.currentTimeMillis();
+        if (dirty.isEmpty()) {
+            return null;
+        }
+        List<PendingProgress> pending = new ArrayList<>(dirty.size());
+        for (Challenge challenge : dirty) {
+            pending.add(new PendingProgress(challenge));
+        }
+        return pending;
+    }
+
+    /**
+     * 在一个事务中提交进度快照
+     * 在引擎锁外调用；完成的挑战发放经验值。提交后清除进度未再变化的挑战，
+     * 并把完成的挑战移出内存索引；写入失败时变化全部保留，下次提交重试
+     */
+    private void flush(List<PendingProgress> pending) {
+        try {
+            database.runInTransaction(() -> {
+                User user = null;
+                for (PendingProgress progress : pending) {
+                    database.challengeDao().updateProgress(progress.id, progress.progress);
+                    if (progress.completed) {
+                        database.challengeDao().markAsCompleted(progress.id, progress.completeTime);
+                        if (user == null) {
+                            user = database.userDao().getUserByIdSync(USER_ID);
+                            if (user == null) {
+                                user = new User();
+                                database.userDao().insert(user);
+                            }
+                        }
+                        user.addChallenge(progress.xpReward);
+                    }
+                }
+                if (user != null) {
+                    database.userDao().update(user);
+                }
+            });
+        } catch (RuntimeException e) {
+            Log.e(TAG, "提交挑战进度失败，保留进度等待重试: " + e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            Map<Long, Integer> written = new HashMap<>();
+            for (PendingProgress progress : pending) {
+                written.put(progress.id, progress.progress);
+            }
+            Iterator<Challenge> iterator = dirty.iterator();
+            while (iterator.hasNext()) {
+                Challenge challenge = iterator.next();
+                Integer progress = written.get(challenge.getId());
+                if (progress != null && progress == challenge.getProgress()) {
+                    iterator.remove();
+                }
+            }
+            // 提交期间索引可能已失效，重新加载时不会包含已完成的挑战
+            if (activeByType != null) {
+                removeCompleted();
+            }
+        }
+    }
+
+    /**
+     * 从内存索引中移除已完成的挑战
+     */
+    private void removeCompleted() {
+        for (List<Challenge> challenges : activeByType.values()) {
+            Iterator<Challenge> iterator = challenges.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isCompleted()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按类型加载进行中的挑战，只在首次或失效后查询数据库
+     * 查询在引擎锁外执行，加载期间索引再次失效时放弃结果，由调用方重试
+     */
+    private void ensureLoaded() {
+        long loadGeneration;
+        synchronized (this) {
+            if (activeByType != null) {
+                return;
+            }
+            loadGeneration = generation;
+        }
+        List<Challenge> loaded = database.challengeDao().getActiveChallengesSync();
+        synchronized (this) {
+            if (activeByType == null && generation == loadGeneration) {
+                install(loaded);
+            }
+        }
+    }
+
+    /**
+     * 安装加载的挑战
+     * 失效前尚未写入的进度并入同ID的挑战，已被删除的挑战随之丢弃
+     */
+    private void install(List<Challenge> loaded) {
+        Map<Long, Challenge> unsaved = new HashMap<>();
+        for (Challenge challenge : dirty) {
+            unsaved.put(challenge.getId(), challenge);
+        }
+        dirty.clear();
+
+        activeByType = new HashMap<>();
+        for (Challenge challenge : loaded) {
+            Challenge previous = unsaved.get(challenge.getId());
+            if (previous != null) {
+                challenge.setProgress(Math.min(Math.max(challenge.getProgress(), previous.getProgress()),
+                        challenge.getTarget()));
+                dirty.add(challenge);
+            }
+            List<Challenge> challenges = activeByType.get(challenge.getType());
+            if (challenges == null) {
+                challenges = new ArrayList<>();
+                activeByType.put(challenge.getType(), challenges);
+            }
+            challenges.add(challenge);
+        }
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 待写入的进度快照
+     * 在引擎锁内复制，写入在锁外进行，不读取可变的挑战对象
+     */
+    private static final class PendingProgress {
+        final long id;
+        final int progress;
+        final boolean completed;
+        final long completeTime;
+        final int xpReward;
+
+        PendingProgress(Challenge challenge) {
+            id = challenge.getId();
+            progress = challenge.getProgress();
+            completed = challenge.isCompleted();
+            completeTime = completed ? challenge.getCompleteTime().getTime() : 0;
+            xpReward = challenge.getXpReward();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.footprintexplorer.data.database.DatabaseMaintenance;
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.User;
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+
+import java.util.Date;
+
+/**
+ * 清除数据任务
+ * 按固定大小分块删除挑战、徽章、地点、位置记录和会话，每块为一个短事务，
+ * 写锁不会被长时间占用；追踪进行中时缩小块并让出写锁。
+ * 正在记录的会话以及提交任务之后开始的会话都会保留。
+ * 删除完成后重置用户统计并增量回收空闲页
+ */
+public class ClearDataWorker extends Worker {
+
+    private static final String TAG = "ClearDataWorker";
+
+    private static final String WORK_NAME = "clear_all_data";
+
+    // 进度
+    public static final String KEY_PROGRESS = "progress";
+
+    // 截止时间，此后开始的会话不删除，重试时保持不变
+    private static final String KEY_CUTOFF = "cutoff";
+
+    // 每个删除事务的行数，追踪进行中时缩小以减少写锁占用
+    private static final int DELETE_CHUNK = 1000;
+    private static final int DELETE_CHUNK_WHILE_TRACKING = 200;
+
+    // 追踪进行中时每块之间的让步时间（毫秒）
+    private static final long TRACKING_YIELD = 100;
+
+    // 每隔若干块执行一次被动检查点，避免WAL文件持续增长
+    private static final int CHECKPOINT_INTERVAL = 20;
+
+    // 每次增量回收的页数
+    private static final int VACUUM_PAGES = 512;
+
+    // 单用户应用，用户ID固定为1
+    private static final long USER_ID = 1;
+
+    private FootprintDatabase database;
+    private TrackingSessionManager sessionManager;
+    private int totalRows;
+    private int deletedRows;
+    private int chunks;
+    private int lastProgress = -1;
+
+    public ClearDataWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 提交清除数据任务
+     * 已有清除任务在进行时排在其后执行，前一个任务已删除的数据不会重复计入
+     * @return 本次任务的状态，进度见{@link #KEY_PROGRESS}
+     */
+    public static LiveData<WorkInfo> enqueue(Context context) {
+        Data input = new Data.Builder()
+                .putLong(KEY_CUTOFF, System.currentTimeMillis())
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ClearDataWorker.class)
+                .setInputData(input)
+                .build();
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+        return workManager.getWorkInfoByIdLiveData(request.getId());
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        database = FootprintDatabase.getInstance(getApplicationContext());
+        sessionManager = TrackingSessionManager.getInstance(getApplicationContext());
+        long startTime = System.currentTimeMillis();
+        long cutoff = getInputData().getLong(KEY_CUTOFF, startTime);
+
+        totalRows = database.challengeDao().getChallengeCount()
+                + database.badgeDao().getBadgeCount()
+                + database.placeDao().getPlaceCount()
+                + database.locationDao().getLocationCountExcluding(sessionManager.getCurrentSessionId(), cutoff)
+                + database.trackingSessionDao().getSessionCount();
+
+        // 挑战引用地点，先于地点删除
+        // 会话和位置点每块都重新读取正在记录的会话，清除过程中开始的会话由截止时间保留
+        boolean finished = deleteInChunks(limit -> database.challengeDao().deleteChallengesChunk(limit))
+                && deleteInChunks(limit -> database.badgeDao().deleteBadgesChunk(limit))
+                && deleteInChunks(limit -> database.placeDao().deletePlacesChunk(limit))
+                && deleteInChunks(limit -> database.locationDao().deleteLocationsChunk(
+                        sessionManager.getCurrentSessionId(), cutoff, limit))
+                && deleteInChunks(limit -> database.trackingSessionDao().deleteSessionsChunk(
+                        sessionManager.getCurrentSessionId(), cutoff, limit));
+        if (!finished) {
+            // 已删除的部分不恢复，重试时继续删除剩余数据
+            return Result.retry();
+        }
+
+        LocationPartitionRouter.getInstance(getApplicationContext()).dropAllArchives();
+        CoverageIndex.getInstance(getApplicationContext()).clear();
+        resetUser();
+        ChallengeEngine.getInstance(getApplicationContext()).invalidate();
+
+        // 分批增量回收空闲页，每批之间可被停止
+        long freePages = DatabaseMaintenance.getFreelistCount(database);
+        while (freePages > 0 && !isStopped()) {
+            DatabaseMaintenance.incrementalVacuum(database, VACUUM_PAGES);
+            long remaining = DatabaseMaintenance.getFreelistCount(database);
+            if (remaining >= freePages) {
+                // 未启用增量回收
+                break;
+            }
+            freePages = remaining;
+        }
+        DatabaseMaintenance.checkpoint(database);
+
+        Log.d(TAG, "数据已清除: " + deletedRows + " 行, 耗时 " + (System.currentTimeMillis() - startTime) + "ms");
+        return Result.success();
+    }
+
+    /**
+     * 分块删除直到没有可删除的行
+     * @return 全部删除返回true，被停止返回false
+     */
+    private boolean deleteInChunks(ChunkDelete delete) {
+        while (true) {
+            if (isStopped()) {
+                return false;
+            }
+            boolean tracking = sessionManager.getState() == TrackingSessionManager.State.ACTIVE;
+            int deleted = delete.deleteChunk(tracking ? DELETE_CHUNK_WHILE_TRACKING : DELETE_CHUNK);
+            if (deleted == 0) {
+                return true;
+            }
+            deletedRows += deleted;
+            reportProgress();
+
+            if (++chunks % CHECKPOINT_INTERVAL == 0) {
+                DatabaseMaintenance.checkpoint(database);
+            }
+
+            // 追踪进行中时让会话写线程有机会获得写锁
+            if (tracking) {
+                try {
+                    Thread.sleep(TRACKING_YIELD);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 重置用户统计
+     */
+    private void resetUser() {
+        User user = database.userDao().getUserByIdSync(USER_ID);
+        if (user != null) {
+            user.setTotalDistance(0);
+            user.setTotalPlaces(0);
+            user.setTotalBadges(0);
+            user.setTotalChallenges(0);
+            user.setXp(0);
+            user.setLevel(1);
+            user.setXpToNextLevel(100);
+            user.setLastActiveDate(new Date());
+            database.userDao().update(user);
+        }
+    }
+
+    /**
+     * 报告进度
+     * 只在百分比变化时更新，避免频繁写入WorkManager数据库
+     */
+    private void reportProgress() {
+        int progress = totalRows > 0 ? (int) Math.min(100, deletedRows * 100L / totalRows) : 100;
+        if (progress == lastProgress) {
+            return;
+        }
+        lastProgress = progress;
+        setProgressAsync(new Data.Builder().putInt(KEY_PROGRESS, progress).build());
+    }
+
+    /**
+     * 删除一块数据
+     */
+    private interface ChunkDelete {
+        int deleteChunk(int limit);
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+import com.example.footprintexplorer.events.DomainEvent;
+import com.example.footprintexplorer.events.DomainEventBus;
+import com.example.footprintexplorer.events.FixRecorded;
+import com.example.footprintexplorer.utils.CellBitmap;
+import com.example.footprintexplorer.utils.GeoCells;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+
+/**
+ * 探索覆盖索引
+ * 把每个位置点映射到固定级别的网格单元（GeoCells），已访问的单元保存在CellBitmap中；
+ * 另按周保存当周首次访问的单元，用于"本周新探索"统计，周由位置点的时间决定，
+ * 后加入的更早的点（导入的历史轨迹）会把单元移到更早的周。位置点事件到达时增量更新，
+ * 会话结束或积累一段时间后写入文件。覆盖率和新单元数量都只读内存中的位图。
+ * 索引文件不存在时（首次启用或文件损坏）从全部位置记录重建，重建期间到达的位置点先排队，
+ * 重建完成后再加入。
+ */
+public class CoverageIndex implements DomainEventBus.Subscriber {
+
+    private static final String TAG = "CoverageIndex";
+
+    private static final String FILE_NAME = "coverage_index.bin";
+    private static final int FILE_VERSION = 1;
+
+    // 有新单元时写入文件的最小间隔（毫秒）
+    private static final long SAVE_INTERVAL = 60 * 1000;
+
+    private static volatile CoverageIndex instance;
+
+    private final File file;
+    private final Context context;
+
+    private CellBitmap visited = new CellBitmap();
+    // 周开始时间 -> 当周首次访问的单元
+    private TreeMap<Long, CellBitmap> weekly = new TreeMap<>();
+    private boolean dirty;
+    private long lastSaveTime;
+    // 重建期间到达的位置点，不在重建时为null
+    private Batch pendingFixes;
+
+    private CoverageIndex(Context context) {
+        this.context = context;
+        file = new File(context.getFilesDir(), FILE_NAME);
+        if (!load()) {
+            pendingFixes = new Batch();
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "coverage-rebuild")).execute(this::rebuild);
+        }
+        DomainEventBus.getInstance().subscribe(this,
+                DomainEvent.Type.FIX_RECORDED, DomainEvent.Type.SESSION_ENDED);
+    }
+
+    /**
+     * 获取单例实例
+     * @param context 上下文
+     * @return 覆盖索引
+     */
+    public static CoverageIndex getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CoverageIndex.class) {
+                if (instance == null) {
+                    instance = new CoverageIndex(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void onEvents(List<DomainEvent> events) {
+        boolean sessionEnded = false;
+        for (DomainEvent event : events) {
+            if (event.getType() == DomainEvent.Type.FIX_RECORDED) {
+                FixRecorded fix = (FixRecorded) event;
+                if (pendingFixes != null) {
+                    pendingFixes.add(fix.getLatitude(), fix.getLongitude(), fix.getTime());
+                } else {
+                    add(GeoCells.cellOf(fix.getLatitude(), fix.getLongitude()), fix.getTime());
+                }
+            } else {
+                sessionEnded = true;
+            }
+        }
+        if (pendingFixes == null && dirty && (sessionEnded || System.currentTimeMillis() - lastSaveTime >= SAVE_INTERVAL)) {
+            save();
+        }
+    }
+
+    /**
+     * 已访问的单元数量
+     */
+    public synchronized long getVisitedCellCount() {
+        return visited.getCardinality();
+    }
+
+    /**
+     * 矩形范围的覆盖率
+     * 只遍历位图中落在范围Z序区间内的桶，完全在范围内的桶直接计数，
+     * 耗时取决于已访问单元的数量而不是范围面积
+     * @return 已访问单元占范围内单元的比例，0到1
+     */
+    public synchronized double getCoverage(double minLatitude, double minLongitude,
+                                           double maxLatitude, double maxLongitude) {
+        int fromRow = GeoCells.latitudeIndex(minLatitude);
+        int toRow = GeoCells.latitudeIndex(maxLatitude);
+        int fromColumn = GeoCells.longitudeIndex(minLongitude);
+        int toColumn = GeoCells.longitudeIndex(maxLongitude);
+        long total = GeoCells.countCells(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        if (total == 0 || visited.isEmpty()) {
+            return 0;
+        }
+        long covered = visited.countInBox(fromRow, toRow, fromColumn, toColumn);
+        return (double) covered / total;
+    }
+
+    /**
+     * 以某点为中心的正方形范围的覆盖率，用于地点所在区域
+     * @param radiusMeters 中心到边的距离（米）
+     */
+    public double getCoverageAround(double latitude, double longitude, double radiusMeters) {
+        double latitudeDelta = radiusMeters / 111320;
+        double longitudeDelta = radiusMeters / (111320 * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        return getCoverage(latitude - latitudeDelta, longitude - longitudeDelta,
+                latitude + latitudeDelta, longitude + longitudeDelta);
+    }
+
+    /**
+     * 时间范围内首次访问的单元数量
+     * 按周统计，范围两端所在的周整周计入
+     */
+    public synchronized long getNewCellCount(long startTime, long endTime) {
+        long count = 0;
+        for (CellBitmap cells : weekly.subMap(weekStart(startTime), true, endTime, true).values()) {
+            count += cells.getCardinality();
+        }
+        return count;
+    }
+
+    /**
+     * 本周首次访问的单元数量
+     */
+    public long getNewCellsThisWeek() {
+        long now = System.currentTimeMillis();
+        return getNewCellCount(now, now);
+    }
+
+    /**
+     * 创建批量更新，用于导入等不经过事件总线的位置点
+     * 批量更新在commit前不影响索引，导入失败时直接丢弃
+     */
+    public static Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * 提交批量更新并写入文件
+     */
+    public synchronized void commit(Batch batch) {
+        apply(batch);
+        if (dirty) {
+            save();
+        }
+    }
+
+    /**
+     * 清空索引并删除文件
+     */
+    public synchronized void clear() {
+        visited = new CellBitmap();
+        weekly = new TreeMap<>();
+        dirty = false;
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "无法删除覆盖索引文件");
+        }
+    }
+
+    /**
+     * 按周从早到晚加入批量更新中的单元
+     */
+    private void apply(Batch batch) {
+        for (Map.Entry<Long, CellBitmap> entry : batch.weeks.entrySet()) {
+            long week = entry.getKey();
+            entry.getValue().forEach(cell -> add(cell, week));
+        }
+    }
+
+    private void add(long cell, long time) {
+        long week = weekStart(time);
+        if (!visited.add(cell)) {
+            // 已访问的单元只可能记在同一周或更晚的周，记在更晚的周时移到本周
+            boolean moved = false;
+            Iterator<CellBitmap> later = weekly.tailMap(week, false).values().iterator();
+            while (!moved && later.hasNext()) {
+                CellBitmap cells = later.next();
+                if (cells.remove(cell)) {
+                    moved = true;
+                    if (cells.isEmpty()) {
+                        later.remove();
+                    }
+                }
+            }
+            if (!moved) {
+                return;
+            }
+        }
+        CellBitmap cells = weekly.get(week);
+        if (cells == null) {
+            cells = new CellBitmap();
+            weekly.put(week, cells);
+        }
+        cells.add(cell);
+        dirty = true;
+    }
+
+    /**
+     * 从全部位置记录重建索引
+     * 扫描不持有锁，期间到达的位置点事件排队，重建结果加入后再加入排队的点
+     */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        Batch batch = new Batch();
+        LocationPartitionRouter.getInstance(context).scanLocations(0, start,
+                (sessionId, time, latitude, longitude, speed) -> batch.add(latitude, longitude, time));
+        synchronized (this) {
+            apply(batch);
+            apply(pendingFixes);
+            pendingFixes = null;
+            if (dirty) {
+                save();
+            }
+        }
+        Log.d(TAG, "重建覆盖索引: " + getVisitedCellCount() + " 个单元, 耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 写入文件，先写临时文件再替换
+     */
+    private void save() {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(FILE_VERSION);
+            visited.writeTo(output);
+            output.writeInt(weekly.size());
+            for (Map.Entry<Long, CellBitmap> entry : weekly.entrySet()) {
+                output.writeLong(entry.getKey());
+                entry.getValue().writeTo(output);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "保存覆盖索引失败: " + e.getMessage());
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "无法替换覆盖索引文件");
+            return;
+        }
+        dirty = false;
+        lastSaveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 读取索引文件
+     * @return 文件不存在或无法读取时返回false
+     */
+    private boolean load() {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_VERSION) {
+                return false;
+            }
+            visited = CellBitmap.readFrom(input);
+            int weeks = input.readInt();
+            for (int i = 0; i < weeks; i++) {
+                weekly.put(input.readLong(), CellBitmap.readFrom(input));
+            }
+            lastSaveTime = System.currentTimeMillis();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "读取覆盖索引失败: " + e.getMessage());
+            visited = new CellBitmap();
+            weekly = new TreeMap<>();
+            return false;
+        }
+    }
+
+    /**
+     * 时间所在周（周一开始，本地时区）的开始时间
+     */
+    private static long weekStart(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setFirstDayOfWeek(Calendar.MONDAY);
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 批量更新
+     * 按周收集单元，不加锁，只在一个线程中使用
+     */
+    public static final class Batch {
+
+        private final TreeMap<Long, CellBitmap> weeks = new TreeMap<>();
+
+        // 最近一个点所在的周，连续的点大多在同一周内，避免逐点计算日历
+        private long currentStart = Long.MAX_VALUE;
+        private long currentEnd = Long.MIN_VALUE;
+        private CellBitmap current;
+
+        private Batch() {
+        }
+
+        public void add(double latitude, double longitude, long time) {
+            if (time < currentStart || time >= currentEnd) {
+                currentStart = weekStart(time);
+                currentEnd = weekStart(currentStart + 8 * 24 * 60 * 60 * 1000L);
+                current = weeks.get(currentStart);
+                if (current == null) {
+                    current = new CellBitmap();
+                    weeks.put(currentStart, current);
+                }
+            }
+            current.add(GeoCells.cellOf(latitude, longitude));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.footprintexplorer.data.database.DatabaseMaintenance;
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.utils.PerformanceMonitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库整理任务
+ * 每天在充电且设备空闲时运行：首次运行将数据库转换为增量auto_vacuum，
+ * 之后分小步回收空闲页，按需更新查询规划统计信息，最后截断WAL文件。
+ * 整理前后的文件大小、回收页数和耗时记录在偏好设置中并写入性能日志。
+ */
+public class DatabaseMaintenanceWorker extends Worker {
+
+    private static final String TAG = "DatabaseMaintenance";
+
+    private static final String WORK_NAME = "database_maintenance";
+
+    // 指标记录
+    private static final String PREFS_NAME = "database_maintenance";
+    public static final String KEY_LAST_RUN = "last_run";
+    public static final String KEY_SIZE_BEFORE_KB = "size_before_kb";
+    public static final String KEY_SIZE_AFTER_KB = "size_after_kb";
+    public static final String KEY_RECLAIMED_PAGES = "reclaimed_pages";
+    public static final String KEY_DURATION_MS = "duration_ms";
+    private static final String KEY_LAST_ANALYZE = "last_analyze";
+
+    // 每步回收的页数，每步是一个短事务
+    private static final int VACUUM_STEP_PAGES = 512;
+
+    // 追踪进行中时每步之间的让步时间（毫秒）
+    private static final long TRACKING_YIELD = 100;
+
+    // 完整ANALYZE的间隔，期间只执行PRAGMA optimize
+    private static final long ANALYZE_INTERVAL = 7L * 24 * 60 * 60 * 1000;
+
+    public DatabaseMaintenanceWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 注册每日整理任务
+     * 已注册时保留原有计划
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(DatabaseMaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * 获取最近一次整理的指标
+     */
+    public static SharedPreferences getMetrics(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        FootprintDatabase database = FootprintDatabase.getInstance(context);
+        TrackingSessionManager sessionManager = TrackingSessionManager.getInstance(context);
+        SharedPreferences metrics = getMetrics(context);
+
+        long startTime = System.currentTimeMillis();
+        long sizeBefore = PerformanceMonitor.checkDatabaseSize(context);
+
+        // 完整VACUUM会阻塞写入，追踪进行中或剩余空间不足时推迟到下次
+        if (DatabaseMaintenance.getAutoVacuumMode(database) != DatabaseMaintenance.AUTO_VACUUM_INCREMENTAL) {
+            boolean tracking = sessionManager.getState() == TrackingSessionManager.State.ACTIVE;
+            long availableKb = PerformanceMonitor.checkAvailableStorage(context) * 1024;
+            if (!tracking && availableKb > sizeBefore * 2) {
+                DatabaseMaintenance.enableIncrementalAutoVacuum(database);
+                Log.d(TAG, "已启用增量auto_vacuum");
+            } else {
+                Log.d(TAG, "推迟启用增量auto_vacuum");
+            }
+        }
+
+        // 分步回收空闲页
+        long reclaimed = 0;
+        if (DatabaseMaintenance.getAutoVacuumMode(database) == DatabaseMaintenance.AUTO_VACUUM_INCREMENTAL) {
+            long free = DatabaseMaintenance.getFreelistCount(database);
+            while (free > 0) {
+                if (isStopped()) {
+                    return Result.retry();
+                }
+                DatabaseMaintenance.incrementalVacuum(database, VACUUM_STEP_PAGES);
+                long remaining = DatabaseMaintenance.getFreelistCount(database);
+                if (remaining >= free) {
+                    // 没有回收到页（并发删除产生新空闲页或vacuum未生效），留到下次避免空转
+                    Log.d(TAG, "增量vacuum无进展，剩余空闲页: " + remaining);
+                    break;
+                }
+                reclaimed += free - remaining;
+                free = remaining;
+
+                // 追踪进行中时让会话写线程有机会获得写锁
+                if (sessionManager.getState() == TrackingSessionManager.State.ACTIVE) {
+                    try {
+                        Thread.sleep(TRACKING_YIELD);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return Result.retry();
+                    }
+                }
+            }
+        }
+
+        if (isStopped()) {
+            return Result.retry();
+        }
+
+        // 更新查询规划统计信息
+        long lastAnalyze = metrics.getLong(KEY_LAST_ANALYZE, 0);
+        if (!DatabaseMaintenance.hasStatistics(database) || startTime - lastAnalyze >= ANALYZE_INTERVAL) {
+            DatabaseMaintenance.analyze(database);
+            lastAnalyze = startTime;
+        } else {
+            DatabaseMaintenance.optimize(database);
+        }
+
+        // 截断WAL文件，追踪进行中时只做被动检查点
+        if (sessionManager.getState() == TrackingSessionManager.State.ACTIVE) {
+            DatabaseMaintenance.checkpoint(database);
+        } else {
+            DatabaseMaintenance.truncateWal(database);
+        }
+
+        long sizeAfter = PerformanceMonitor.checkDatabaseSize(context);
+        long duration = System.currentTimeMillis() - startTime;
+        metrics.edit()
+                .putLong(KEY_LAST_RUN, startTime)
+                .putLong(KEY_SIZE_BEFORE_KB, sizeBefore)
+                .putLong(KEY_SIZE_AFTER_KB, sizeAfter)
+                .putLong(KEY_RECLAIMED_PAGES, reclaimed)
+                .putLong(KEY_DURATION_MS, duration)
+                .putLong(KEY_LAST_ANALYZE, lastAnalyze)
+                .apply();
+        PerformanceMonitor.logPerformance(TAG, "数据库整理: " + sizeBefore + "KB -> " + sizeAfter
+                + "KB, 回收 " + reclaimed + " 页, 耗时 " + duration + "ms");
+        return Result.success();
+    }
+}
@@ -1,9 +1,7 @@
 package com.example.footprintexplorer.services;
 
-import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -16,18 +14,23 @@ import android.os.IBinder;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
-import androidx.core.app.NotificationCompat;
 
-import com.example.footprintexplorer.R;
 import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.Badge;
 import com.example.footprintexplorer.data.entity.LocationRecord;
-import com.example.footprintexplorer.data.entity.TrackingSession;
-import com.example.footprintexplorer.ui.activities.MainActivity;
+import com.example.footprintexplorer.events.BadgeUnlocked;
+import com.example.footprintexplorer.events.DomainEventBus;
+import com.example.footprintexplorer.events.FixRecorded;
+import com.example.footprintexplorer.events.PlaceUnlocked;
 import com.example.footprintexplorer.utils.BatteryOptimizer;
+import com.example.footprintexplorer.utils.BatteryStateProvider;
 import com.example.footprintexplorer.utils.LocationUtils;
 import com.example.footprintexplorer.utils.PerformanceMonitor;
 
-import java.util.concurrent.Executors;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 /**
  * 位置追踪服务
@@ -41,9 +44,12 @@ public class LocationTrackingService extends Service implements LocationListener
 
     private LocationManager locationManager;
     private FootprintDatabase database;
-    private long currentSessionId = -1;
+    private BatteryStateProvider batteryStateProvider;
+    private TrackingNotificationUpdater notificationUpdater;
+    private TrackingSessionManager sessionManager;
+    private TrackingJournal journal;
+    private DomainEventBus eventBus;
     private Location lastLocation = null;
-    private long startTime;
     private float totalDistance = 0;
     private boolean isTracking = false;
 
@@ -58,15 +64,39 @@ public class LocationTrackingService extends Service implements LocationListener
         // 初始化数据库
         database = FootprintDatabase.getInstance(this);
         
+        // 会话生命周期与写入统一由会话管理器负责
+        sessionManager = TrackingSessionManager.getInstance(this);
+        
+        // 追踪事件经事件总线分发，挑战任务随事件增量推进
+        eventBus = DomainEventBus.getInstance();
+        ChallengeEngine.getInstance(this);
+        
+        // 打开预写日志，用于进程被杀死后恢复会话
+        try {
+            journal = new TrackingJournal(this);
+        } catch (IOException e) {
+            Log.e(TAG, "无法打开追踪日志: " + e.getMessage());
+        }
+        
+        // 订阅电池状态变化，电量级别变化时调整采样参数
+        batteryStateProvider = BatteryStateProvider.getInstance(this);
+        batteryStateProvider.addListener(batteryListener);
+        
         // 创建通知渠道
         createNotificationChannel();
+        
+        // 通知更新器复用同一个Builder，并对更新进行限流
+        notificationUpdater = new TrackingNotificationUpdater(this, CHANNEL_ID, NOTIFICATION_ID);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "服务启动");
         
-        if (intent != null) {
+        if (intent == null) {
+            // 服务被系统杀死后以START_STICKY重启，从预写日志恢复会话
+            recoverFromJournal();
+        } else {
             String action = intent.getAction();
             if (action != null) {
                 switch (action) {
@@ -76,6 +106,14 @@ public class LocationTrackingService extends Service implements LocationListener
                     case "STOP_TRACKING":
                         stopTracking();
                         break;
+                    case "PAUSE_TRACKING":
+                        sessionManager.pauseSession();
+                        break;
+                    case "RESUME_TRACKING":
+                        // 恢复后不把暂停期间的位移计入距离
+                        lastLocation = null;
+                        sessionManager.resumeSession();
+                        break;
                 }
             }
         }
@@ -94,20 +132,105 @@ public class LocationTrackingService extends Service implements LocationListener
         }
         
         Log.d(TAG, "开始追踪");
+        
+        // 上次会话未正常结束时先补写并结束它
+        closeOrphanSession();
         isTracking = true;
         
-        // 创建新的追踪会话
-        startTime = System.currentTimeMillis();
-        createNewSession();
+        // 创建新的追踪会话，会话ID同步分配，第一个位置点即可记录
+        totalDistance = 0;
+        lastLocation = null;
+        long sessionId = sessionManager.startSession("足迹记录 " + new Date(), false);
+        Log.d(TAG, "当前会话ID: " + sessionId);
+        if (journal != null) {
+            journal.beginSession(sessionId, System.currentTimeMillis());
+        }
         
         // 启动前台服务
-        startForeground(NOTIFICATION_ID, createNotification("正在追踪您的位置"));
+        startForeground(NOTIFICATION_ID, notificationUpdater.buildInitial("正在追踪您的位置"));
         
         // 请求位置更新
+        requestLocationUpdates(BatteryOptimizer.getBatteryState(batteryStateProvider.getSnapshot()));
+    }
+
+    /**
+     * 从预写日志恢复被中断的会话并继续追踪
+     */
+    private void recoverFromJournal() {
+        TrackingJournal.RecoveredSession recovered = journal != null ? journal.recover() : null;
+        if (recovered == null || isTracking) {
+            return;
+        }
+        
+        Log.d(TAG, "恢复被中断的会话，ID: " + recovered.getSessionId());
+        if (recovered.getSessionId() == sessionManager.getCurrentSessionId()) {
+            // 进程仍在，日志中的会话就是进行中的会话，直接继续记录
+            totalDistance = (float) recovered.getTotalDistance();
+        } else if (!restoreSession(recovered)) {
+            // 已有其他进行中的会话（如界面开始的手动记录），日志中的会话直接结束
+            closeRecoveredSession(recovered);
+            return;
+        }
+        isTracking = true;
+        
+        // 恢复最后位置，使后续距离计算连续
+        if (recovered.hasLastLocation()) {
+            Location restored = new Location(LocationManager.GPS_PROVIDER);
+            restored.setLatitude(recovered.getLastLatitude());
+            restored.setLongitude(recovered.getLastLongitude());
+            restored.setTime(recovered.getLastTime());
+            lastLocation = restored;
+        }
+        
+        startForeground(NOTIFICATION_ID, notificationUpdater.buildInitial("正在追踪您的位置"));
+        requestLocationUpdates(BatteryOptimizer.getBatteryState(batteryStateProvider.getSnapshot()));
+    }
+
+    /**
+     * 结束上次未正常结束的会话
+     * 补写日志中的位置点，并以日志中的距离结束该会话
+     */
+    private void closeOrphanSession() {
+        TrackingJournal.RecoveredSession recovered = journal != null ? journal.recover() : null;
+        if (recovered == null) {
+            return;
+        }
+        
+        Log.d(TAG, "结束上次未正常结束的会话，ID: " + recovered.getSessionId());
+        closeRecoveredSession(recovered);
+    }
+
+    /**
+     * 补写并结束日志中的会话，不影响进行中的会话
+     * 补写的位置点入库后再清空日志；新会话此时已开始记录时不会被清空
+     */
+    private void closeRecoveredSession(TrackingJournal.RecoveredSession recovered) {
+        long sessionId = recovered.getSessionId();
+        sessionManager.closeRecoveredSession(recovered, () -> journal.endSession(sessionId));
+    }
+
+    /**
+     * 将日志中的会话交给会话管理器并恢复累计距离
+     * @return 是否已接管，已有进行中的会话时返回false
+     */
+    private boolean restoreSession(TrackingJournal.RecoveredSession recovered) {
+        long sessionId = recovered.getSessionId();
+        long lastSeq = recovered.getNextSeq() - 1;
+        if (!sessionManager.restoreSession(recovered, () -> journal.markPersisted(sessionId, lastSeq))) {
+            return false;
+        }
+        totalDistance = (float) recovered.getTotalDistance();
+        return true;
+    }
+
+    /**
+     * 按指定电池状态请求位置更新
+     */
+    private void requestLocationUpdates(BatteryOptimizer.BatteryState state) {
         try {
             // 根据电池状态获取最佳位置更新参数
-            long interval = BatteryOptimizer.getOptimalLocationUpdateInterval(this);
-            float minDistance = BatteryOptimizer.getOptimalLocationUpdateDistance(this);
+            long interval = BatteryOptimizer.getOptimalLocationUpdateInterval(state);
+            float minDistance = BatteryOptimizer.getOptimalLocationUpdateDistance(state);
             
             Log.d(TAG, "请求位置更新，间隔: " + interval + "ms, 最小距离: " + minDistance + "m");
             
@@ -130,6 +253,19 @@ public class LocationTrackingService extends Service implements LocationListener
         }
     }
 
+    /**
+     * 电池状态监听器
+     * 电池级别变化时重新注册位置更新，使采样频率跟随电量调整
+     */
+    private final BatteryStateProvider.OnBatteryStateChangedListener batteryListener = (previous, current) -> {
+        BatteryOptimizer.BatteryState oldState = BatteryOptimizer.getBatteryState(previous);
+        BatteryOptimizer.BatteryState newState = BatteryOptimizer.getBatteryState(current);
+        if (isTracking && oldState != newState) {
+            Log.d(TAG, "电池状态变化: " + oldState + " -> " + newState + "，调整位置更新参数");
+            requestLocationUpdates(newState);
+        }
+    };
+
     /**
      * 停止追踪
      */
@@ -148,39 +284,24 @@ public class LocationTrackingService extends Service implements LocationListener
         // 结束当前会话
         endCurrentSession();
         
-        // 停止前台服务
+        // 停止前台服务，推迟的通知更新不再发布
+        notificationUpdater.cancelPending();
         stopForeground(true);
         stopSelf();
     }
 
-    /**
-     * 创建新的追踪会话
-     */
-    private void createNewSession() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            TrackingSession session = new TrackingSession();
-            session.setStartTime(startTime);
-            session.setDistance(0);
-            currentSessionId = database.trackingSessionDao().insert(session);
-            Log.d(TAG, "创建新会话，ID: " + currentSessionId);
-        });
-    }
-
     /**
      * 结束当前会话
+     * 会话管理器在写入最终统计后发布SessionEnded事件
      */
     private void endCurrentSession() {
-        if (currentSessionId != -1) {
-            Executors.newSingleThreadExecutor().execute(() -> {
-                TrackingSession session = database.trackingSessionDao().getSessionByIdSync(currentSessionId);
-                if (session != null) {
-                    session.setEndTime(System.currentTimeMillis());
-                    session.setDistance(totalDistance);
-                    database.trackingSessionDao().update(session);
-                    Log.d(TAG, "结束会话，ID: " + currentSessionId + ", 总距离: " + totalDistance + "m");
-                }
-            });
+        if (journal == null) {
+            sessionManager.endSession();
+            return;
         }
+        // 日志在该会话的位置点全部入库后清空，进程在此之前被杀死时仍可补写
+        long sessionId = sessionManager.getCurrentSessionId();
+        sessionManager.endSession(() -> journal.endSession(sessionId));
     }
 
     /**
@@ -199,55 +320,34 @@ public class LocationTrackingService extends Service implements LocationListener
         }
     }
 
-    /**
-     * 创建通知
-     */
-    private Notification createNotification(String text) {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this,
-                0,
-                notificationIntent,
-                PendingIntent.FLAG_IMMUTABLE);
-        
-        // 添加电池状态信息
-        String batteryInfo = BatteryOptimizer.getBatteryStateDescription(this);
-        
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("足迹探索")
-                .setContentText(text)
-                .setSubText(batteryInfo)
-                .setSmallIcon(R.drawable.ic_launcher_foreground)
-                .setContentIntent(pendingIntent)
-                .build();
-    }
-
-    /**
-     * 更新通知
-     */
-    private void updateNotification(String text) {
-        NotificationManager notificationManager = getSystemService(NotificationManager.class);
-        notificationManager.notify(NOTIFICATION_ID, createNotification(text));
-    }
-
     @Override
     public void onLocationChanged(Location location) {
-        if (!isTracking || currentSessionId == -1) {
+        if (!isTracking || sessionManager.getState() != TrackingSessionManager.State.ACTIVE) {
             return;
         }
         
         Log.d(TAG, "位置更新: " + location.getLatitude() + ", " + location.getLongitude());
         
         // 计算距离
-        if (lastLocation != null) {
-            float distance = lastLocation.distanceTo(location);
-            totalDistance += distance;
-            
+        float distance = lastLocation != null ? lastLocation.distanceTo(location) : 0;
+        totalDistance += distance;
+        
+        // 增量维护会话统计，O(1)
+        sessionManager.addToStats(
+                location.getLatitude(),
+                location.getLongitude(),
+                location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                location.getSpeed(),
+                location.getTime(),
+                distance);
+        
+        boolean[] recorded = new boolean[1];
+        if (lastLocation != null) {            
             // 记录性能数据
             long operationTime = PerformanceMonitor.measureOperationTime(() -> {
                 // 检查是否应该记录此位置点（根据电池状态）
                 if (BatteryOptimizer.shouldRecordLocation(this, lastLocation, location)) {
-                    saveLocationRecord(location);
+                    recorded[0] = saveLocationRecord(location);
                 } else {
                     Log.d(TAG, "跳过记录位置点（电池优化）");
                 }
@@ -255,12 +355,27 @@ public class LocationTrackingService extends Service implements LocationListener
             
             Log.d(TAG, "位置处理耗时: " + operationTime + "ms");
             
-            // 更新通知
-            String distanceText = String.format("已行进 %.2f 公里", totalDistance / 1000);
-            updateNotification(distanceText);
+            // 更新通知（内容未变化或间隔过短时不会发布）
+            notificationUpdater.updateDistance(totalDistance);
         } else {
             // 第一个位置点，直接记录
-            saveLocationRecord(location);
+            recorded[0] = saveLocationRecord(location);
+        }
+        
+        // 发布位置点事件，挑战等订阅者在各自的分发线程上处理，不阻塞此处
+        eventBus.publish(new FixRecorded(
+                sessionManager.getCurrentSessionId(),
+                location.getLatitude(),
+                location.getLongitude(),
+                location.hasAltitude() ? location.getAltitude() : Double.NaN,
+                location.getSpeed(),
+                location.getTime(),
+                distance,
+                recorded[0]));
+        
+        // 写入预写日志，仅为内存映射写入
+        if (journal != null) {
+            journal.updateProgress(totalDistance, location.getLatitude(), location.getLongitude(), location.getTime());
         }
         
         lastLocation = location;
@@ -268,23 +383,52 @@ public class LocationTrackingService extends Service implements LocationListener
 
     /**
      * 保存位置记录
+     * @return 会话是否接受了该位置点
      */
-    private void saveLocationRecord(Location location) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            LocationRecord record = new LocationRecord();
-            record.setSessionId(currentSessionId);
-            record.setLatitude(location.getLatitude());
-            record.setLongitude(location.getLongitude());
-            record.setAltitude(location.getAltitude());
-            record.setSpeed(location.getSpeed());
-            record.setTimestamp(location.getTime());
-            
-            long recordId = database.locationDao().insert(record);
-            Log.d(TAG, "保存位置记录，ID: " + recordId);
-            
-            // 检查是否发现新地点
-            LocationUtils.checkForNewPlace(this, location, database);
+    private boolean saveLocationRecord(Location location) {
+        LocationRecord record = new LocationRecord(
+                TrackingSessionManager.NO_SESSION,
+                location.getLatitude(),
+                location.getLongitude(),
+                location.getAltitude(),
+                location.hasAccuracy() ? location.getAccuracy() : LocationRecord.ACCURACY_UNKNOWN,
+                location.getSpeed(),
+                location.getTime());
+        
+        // 先追加到预写日志，入库后再确认，进程被杀死时可补写
+        long seq = journal != null ? journal.appendFix(record) : -1;
+        
+        // 写入在会话写线程上按顺序执行，插入后检查是否发现新地点
+        boolean accepted = sessionManager.recordFix(record, () -> {
+            if (journal != null) {
+                journal.markPersisted(record.getSessionId(), seq);
+            }
+            checkNewPlace(location);
         });
+        if (!accepted && journal != null) {
+            // 暂停或空闲时会话不接受位置点，撤销日志记录，恢复时不会补写
+            journal.discardFix(seq);
+        }
+        return accepted;
+    }
+
+    /**
+     * 检查是否发现新地点
+     * 解锁事件在事务提交后发布，挑战进度随事件推进，不在解锁事务内获取挑战引擎的锁
+     */
+    private void checkNewPlace(Location location) {
+        List<Badge> unlockedBadges = new ArrayList<>();
+        long placeId = LocationUtils.checkNewPlace(location, database,
+                (id, badges) -> unlockedBadges.addAll(badges));
+        if (placeId < 0) {
+            return;
+        }
+        
+        eventBus.publish(new PlaceUnlocked(placeId, location.getLatitude(), location.getLongitude(),
+                unlockedBadges.size()));
+        for (Badge badge : unlockedBadges) {
+            eventBus.publish(new BadgeUnlocked(badge.getId(), placeId, badge.getCategory()));
+        }
     }
 
     @Override
@@ -317,6 +461,8 @@ public class LocationTrackingService extends Service implements LocationListener
             stopTracking();
         }
         
+        batteryStateProvider.removeListener(batteryListener);
+        
         super.onDestroy();
     }
 }
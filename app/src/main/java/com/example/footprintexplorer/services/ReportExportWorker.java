@@ -0,0 +1,112 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.os.Environment;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.utils.ReportPdfRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 报告导出任务
+ * 在WorkManager后台线程中逐页渲染PDF报告，通过进度数据报告已渲染的百分比，
+ * 成功后在输出数据中返回文件路径
+ */
+public class ReportExportWorker extends Worker {
+
+    private static final String TAG = "ReportExportWorker";
+
+    // 输入参数
+    public static final String KEY_REPORT_TYPE = "report_type";
+    public static final String KEY_START_TIME = "start_time";
+    public static final String KEY_END_TIME = "end_time";
+    public static final String KEY_CHART_PATHS = "chart_paths";
+    public static final String KEY_FILE_NAME = "file_name";
+
+    // 进度和输出
+    public static final String KEY_PROGRESS = "progress";
+    public static final String KEY_FILE_PATH = "file_path";
+
+    private volatile ReportPdfRenderer renderer;
+    private int lastProgress = -1;
+
+    public ReportExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        String reportType = input.getString(KEY_REPORT_TYPE);
+        String fileName = input.getString(KEY_FILE_NAME);
+        Date startTime = new Date(input.getLong(KEY_START_TIME, 0));
+        Date endTime = new Date(input.getLong(KEY_END_TIME, System.currentTimeMillis()));
+
+        List<File> charts = new ArrayList<>();
+        String[] chartPaths = input.getStringArray(KEY_CHART_PATHS);
+        if (chartPaths != null) {
+            for (String path : chartPaths) {
+                charts.add(new File(path));
+            }
+        }
+
+        File file = new File(getApplicationContext().getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
+        FootprintDatabase database = FootprintDatabase.getInstance(getApplicationContext());
+        renderer = new ReportPdfRenderer(database, CoverageIndex.getInstance(getApplicationContext()),
+                this::onRenderProgress);
+        if (isStopped()) {
+            return Result.failure();
+        }
+
+        try {
+            renderer.render(reportType, startTime, endTime, charts, file);
+        } catch (IOException e) {
+            Log.e(TAG, "导出报告失败: " + e.getMessage());
+            file.delete();
+            return Result.failure();
+        } finally {
+            // 预生成的图表只用于本次导出
+            for (File chart : charts) {
+                chart.delete();
+            }
+        }
+
+        return Result.success(new Data.Builder()
+                .putString(KEY_FILE_PATH, file.getAbsolutePath())
+                .build());
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        ReportPdfRenderer current = renderer;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * 渲染进度回调
+     * 只在百分比变化时更新，避免频繁写入WorkManager数据库
+     */
+    private void onRenderProgress(int renderedRows, int totalRows) {
+        int progress = totalRows > 0 ? renderedRows * 100 / totalRows : 100;
+        if (progress == lastProgress) {
+            return;
+        }
+        lastProgress = progress;
+        setProgressAsync(new Data.Builder().putInt(KEY_PROGRESS, progress).build());
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.database.DatabaseMaintenance;
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.utils.TrackBuffer;
+import com.example.footprintexplorer.utils.TrackSimplifier;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 位置历史保留引擎
+ * 按会话年龄分级降采样位置记录：超过一定天数的会话简化为较精细的轨迹，
+ * 更久远的会话进一步简化。停留点总是保留，会话表中的统计不受影响。
+ * 删除按小块提交，追踪进行中时缩小块并让出写锁；每个会话完成后记录级别，
+ * 中断后再次运行会从未完成的会话继续。需在后台线程调用。
+ */
+public class RetentionEngine {
+
+    private static final String TAG = "RetentionEngine";
+
+    // 降采样级别
+    public static final int TIER_RAW = 0;
+    public static final int TIER_SIMPLIFIED = 1;
+    public static final int TIER_COARSE = 2;
+
+    // 默认降采样时机（天）
+    public static final int DEFAULT_SIMPLIFY_AFTER_DAYS = 30;
+    public static final int DEFAULT_COARSEN_AFTER_DAYS = 365;
+
+    // 各级别的简化容差（米）
+    private static final double SIMPLIFIED_TOLERANCE = 5;
+    private static final double COARSE_TOLERANCE = 25;
+
+    // 停留点：半径（米）和最短停留时间（毫秒）
+    private static final double STAY_RADIUS = 50;
+    private static final long STAY_DURATION = 5 * 60 * 1000;
+
+    // 每个删除事务的行数，追踪进行中时缩小以减少写锁占用
+    private static final int DELETE_CHUNK = 500;
+    private static final int DELETE_CHUNK_WHILE_TRACKING = 100;
+
+    // 追踪进行中时每块之间的让步时间（毫秒）
+    private static final long TRACKING_YIELD = 200;
+
+    // 每次查询待处理会话的数量
+    private static final int SESSION_BATCH = 20;
+
+    // 每个会话完成后增量回收的最大页数，仅在auto_vacuum=INCREMENTAL时生效
+    private static final int VACUUM_PAGES = 256;
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private final FootprintDatabase database;
+    private final TrackingSessionManager sessionManager;
+    private volatile boolean cancelled;
+
+    private int processedSessions;
+    private long removedPoints;
+    private int stayPoints;
+
+    public RetentionEngine(Context context) {
+        database = FootprintDatabase.getInstance(context);
+        sessionManager = TrackingSessionManager.getInstance(context);
+    }
+
+    /**
+     * 执行保留策略
+     * @param simplifyAfterDays 超过此天数的会话简化为TIER_SIMPLIFIED
+     * @param coarsenAfterDays 超过此天数的会话简化为TIER_COARSE
+     * @return 全部处理完成返回true，被取消返回false
+     */
+    public boolean run(int simplifyAfterDays, int coarsenAfterDays) {
+        long now = System.currentTimeMillis();
+
+        // 先处理最旧的级别，直接从原始数据简化到粗略级别的会话不会被处理两次
+        boolean finished = processTier(now - coarsenAfterDays * DAY, TIER_COARSE, COARSE_TOLERANCE)
+                && processTier(now - simplifyAfterDays * DAY, TIER_SIMPLIFIED, SIMPLIFIED_TOLERANCE);
+
+        Log.d(TAG, (finished ? "保留策略完成" : "保留策略中断") + ": 会话 " + processedSessions
+                + ", 删除位置点 " + removedPoints + ", 保留停留 " + stayPoints
+                + ", 耗时 " + (System.currentTimeMillis() - now) + "ms");
+        return finished;
+    }
+
+    /**
+     * 取消执行，在下一个删除块前生效
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public int getProcessedSessions() {
+        return processedSessions;
+    }
+
+    public long getRemovedPoints() {
+        return removedPoints;
+    }
+
+    private boolean processTier(long cutoff, int tier, double tolerance) {
+        List<Long> sessionIds;
+        do {
+            sessionIds = database.trackingSessionDao().getSessionIdsForRetention(cutoff, tier, SESSION_BATCH);
+            for (long sessionId : sessionIds) {
+                if (!downsampleSession(sessionId, tier, tolerance)) {
+                    return false;
+                }
+            }
+        } while (sessionIds.size() == SESSION_BATCH);
+        return true;
+    }
+
+    /**
+     * 降采样单个会话
+     * 读取坐标、计算保留集合后分块删除其余位置点，最后记录级别
+     */
+    private boolean downsampleSession(long sessionId, int tier, double tolerance) {
+        TrackBuffer track = new TrackBuffer();
+        try (Cursor cursor = database.locationDao().getTrackCursor(sessionId)) {
+            track.appendFrom(cursor);
+        }
+
+        int count = track.size();
+        long[] ids = track.ids();
+        boolean[] keep = new boolean[count];
+        stayPoints += TrackSimplifier.markStayPoints(track.latitudes(), track.longitudes(), track.times(), count,
+                STAY_RADIUS, STAY_DURATION, keep);
+        TrackSimplifier.simplify(track.latitudes(), track.longitudes(), count, tolerance, keep);
+
+        long[] removed = new long[count];
+        int removedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (!keep[i]) {
+                removed[removedCount++] = ids[i];
+            }
+        }
+
+        int offset = 0;
+        while (offset < removedCount) {
+            if (cancelled) {
+                return false;
+            }
+            boolean tracking = sessionManager.getState() == TrackingSessionManager.State.ACTIVE;
+            int chunk = Math.min(tracking ? DELETE_CHUNK_WHILE_TRACKING : DELETE_CHUNK, removedCount - offset);
+            database.locationDao().deleteLocationsByIds(Arrays.copyOfRange(removed, offset, offset + chunk));
+            offset += chunk;
+            removedPoints += chunk;
+
+            // 追踪进行中时让会话写线程有机会获得写锁
+            if (tracking) {
+                try {
+                    Thread.sleep(TRACKING_YIELD);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        database.trackingSessionDao().updateRetentionTier(sessionId, tier);
+        processedSessions++;
+        DatabaseMaintenance.incrementalVacuum(database, VACUUM_PAGES);
+        Log.d(TAG, "会话 " + sessionId + " 降采样到级别 " + tier + ": " + count + " -> " + (count - removedCount));
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 位置历史保留任务
+ * 每天在电量充足时运行一次RetentionEngine，被系统中断时请求重试，
+ * 重试会从未完成的会话继续；完成后将已降采样到最终级别的整月移到归档文件
+ */
+public class RetentionWorker extends Worker {
+
+    private static final String TAG = "RetentionWorker";
+
+    private static final String WORK_NAME = "location_retention";
+
+    // 输入参数，未设置时使用RetentionEngine的默认值
+    public static final String KEY_SIMPLIFY_AFTER_DAYS = "simplify_after_days";
+    public static final String KEY_COARSEN_AFTER_DAYS = "coarsen_after_days";
+
+    private volatile RetentionEngine engine;
+
+    public RetentionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 注册每日保留任务
+     * 已注册时保留原有计划
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(RetentionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        int simplifyAfterDays = input.getInt(KEY_SIMPLIFY_AFTER_DAYS, RetentionEngine.DEFAULT_SIMPLIFY_AFTER_DAYS);
+        int coarsenAfterDays = input.getInt(KEY_COARSEN_AFTER_DAYS, RetentionEngine.DEFAULT_COARSEN_AFTER_DAYS);
+
+        engine = new RetentionEngine(getApplicationContext());
+        if (isStopped()) {
+            return Result.retry();
+        }
+        if (!engine.run(simplifyAfterDays, coarsenAfterDays)) {
+            return Result.retry();
+        }
+
+        // 已降采样到最终级别的整月移到归档文件
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(coarsenAfterDays);
+        try {
+            LocationPartitionRouter.getInstance(getApplicationContext()).archiveMonthsBefore(cutoff);
+        } catch (IOException e) {
+            Log.e(TAG, "归档位置记录失败: " + e.getMessage());
+            return Result.retry();
+        }
+        return Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        RetentionEngine current = engine;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.footprintexplorer.services;
+
+import com.example.footprintexplorer.data.entity.TrackingSession;
+
+/**
+ * 会话统计累加器
+ * 在追踪过程中以O(1)的代价逐点维护会话统计：点数、距离、移动时间、
+ * 最大/平均速度、累计爬升/下降和经纬度边界框
+ */
+public class SessionStatsAccumulator {
+
+    // 低于此速度（米/秒）的时间段不计入移动时间
+    private static final float MOVING_SPEED_THRESHOLD = 0.5f;
+
+    // 两点间隔超过此值（毫秒）视为信号中断，不计入移动时间
+    private static final long MAX_SEGMENT_GAP = 5 * 60 * 1000;
+
+    // 海拔变化超过此值（米）才计入爬升/下降，过滤GPS海拔噪声
+    private static final double ELEVATION_HYSTERESIS = 3.0;
+
+    private int locationCount;
+    private double totalDistance;
+    private long movingTime;
+    private float maxSpeed;
+    private double elevationGain;
+    private double elevationLoss;
+    private double minLatitude = Double.NaN;
+    private double maxLatitude = Double.NaN;
+    private double minLongitude = Double.NaN;
+    private double maxLongitude = Double.NaN;
+
+    private long lastTime = -1;
+    private double referenceAltitude = Double.NaN;
+
+    /**
+     * 累加一个位置点
+     * @param latitude 纬度
+     * @param longitude 经度
+     * @param altitude 海拔（米），无海拔数据时传入NaN
+     * @param speed 速度（米/秒）
+     * @param time 时间戳（毫秒）
+     * @param distanceDelta 与上一个位置点的距离（米）
+     */
+    public void addFix(double latitude, double longitude, double altitude,
+                       float speed, long time, double distanceDelta) {
+        totalDistance += distanceDelta;
+
+        // 移动时间：按相邻两点的平均速度判断该时间段是否在移动
+        if (lastTime >= 0) {
+            long dt = time - lastTime;
+            if (dt > 0 && dt <= MAX_SEGMENT_GAP && distanceDelta * 1000.0 / dt >= MOVING_SPEED_THRESHOLD) {
+                movingTime += dt;
+            }
+        }
+        lastTime = time;
+
+        if (speed > maxSpeed) {
+            maxSpeed = speed;
+        }
+
+        // 带滞回的爬升/下降统计
+        if (!Double.isNaN(altitude)) {
+            if (Double.isNaN(referenceAltitude)) {
+                referenceAltitude = altitude;
+            } else if (altitude - referenceAltitude >= ELEVATION_HYSTERESIS) {
+                elevationGain += altitude - referenceAltitude;
+                referenceAltitude = altitude;
+            } else if (referenceAltitude - altitude >= ELEVATION_HYSTERESIS) {
+                elevationLoss += referenceAltitude - altitude;
+                referenceAltitude = altitude;
+            }
+        }
+
+        if (Double.isNaN(minLatitude)) {
+            minLatitude = maxLatitude = latitude;
+            minLongitude = maxLongitude = longitude;
+        } else {
+            minLatitude = Math.min(minLatitude, latitude);
+            maxLatitude = Math.max(maxLatitude, latitude);
+            minLongitude = Math.min(minLongitude, longitude);
+            maxLongitude = Math.max(maxLongitude, longitude);
+        }
+    }
+
+    /**
+     * 记录一个已入库的位置点
+     */
+    public void addRecordedPoints(int count) {
+        locationCount += count;
+    }
+
+    /**
+     * 合并已持久化的统计，用于恢复被中断的会话
+     * 距离以预写日志中的值为准，不做累加；点数可能落后于最后一次持久化之后入库的位置点，
+     * 由调用方按位置记录表的实际行数另行累加
+     */
+    public void mergePersisted(TrackingSession session) {
+        movingTime += session.getMovingTime();
+        maxSpeed = Math.max(maxSpeed, session.getMaxSpeed());
+        elevationGain += session.getElevationGain();
+        elevationLoss += session.getElevationLoss();
+        if (session.getLocationCount() > 0) {
+            minLatitude = Double.isNaN(minLatitude) ? session.getMinLatitude() : Math.min(minLatitude, session.getMinLatitude());
+            maxLatitude = Double.isNaN(maxLatitude) ? session.getMaxLatitude() : Math.max(maxLatitude, session.getMaxLatitude());
+            minLongitude = Double.isNaN(minLongitude) ? session.getMinLongitude() : Math.min(minLongitude, session.getMinLongitude());
+            maxLongitude = Double.isNaN(maxLongitude) ? session.getMaxLongitude() : Math.max(maxLongitude, session.getMaxLongitude());
+        }
+    }
+
+    /**
+     * 设置累计距离，用于从预写日志恢复
+     */
+    public void setTotalDistance(double totalDistance) {
+        this.totalDistance = totalDistance;
+    }
+
+    /**
+     * 将当前统计写入会话实体
+     */
+    public void applyTo(TrackingSession session) {
+        session.setLocationCount(locationCount);
+        session.setTotalDistance(totalDistance);
+        session.setMovingTime(movingTime);
+        session.setAverageSpeed(getAverageSpeed());
+        session.setMaxSpeed(maxSpeed);
+        session.setElevationGain(elevationGain);
+        session.setElevationLoss(elevationLoss);
+        if (!Double.isNaN(minLatitude)) {
+            session.setMinLatitude(minLatitude);
+            session.setMaxLatitude(maxLatitude);
+            session.setMinLongitude(minLongitude);
+            session.setMaxLongitude(maxLongitude);
+        }
+    }
+
+    /**
+     * 获取平均移动速度（米/秒）
+     */
+    public float getAverageSpeed() {
+        return movingTime > 0 ? (float) (totalDistance * 1000.0 / movingTime) : 0;
+    }
+
+    public int getLocationCount() {
+        return locationCount;
+    }
+
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    public long getMovingTime() {
+        return movingTime;
+    }
+
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public double getElevationGain() {
+        return elevationGain;
+    }
+
+    public double getElevationLoss() {
+        return elevationLoss;
+    }
+
+    public boolean hasBounds() {
+        return !Double.isNaN(minLatitude);
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    /**
+     * 创建当前统计的副本，供写线程持久化使用
+     */
+    public SessionStatsAccumulator copy() {
+        SessionStatsAccumulator copy = new SessionStatsAccumulator();
+        copy.locationCount = locationCount;
+        copy.totalDistance = totalDistance;
+        copy.movingTime = movingTime;
+        copy.maxSpeed = maxSpeed;
+        copy.elevationGain = elevationGain;
+        copy.elevationLoss = elevationLoss;
+        copy.minLatitude = minLatitude;
+        copy.maxLatitude = maxLatitude;
+        copy.minLongitude = minLongitude;
+        copy.maxLongitude = maxLongitude;
+        copy.lastTime = lastTime;
+        copy.referenceAltitude = referenceAltitude;
+        return copy;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.os.Environment;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+import com.example.footprintexplorer.utils.TrackExporter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 轨迹导出任务
+ * 在WorkManager后台线程中流式导出单个会话或时间范围内的轨迹，
+ * 通过进度数据报告已导出的百分比，成功后在输出数据中返回文件路径
+ */
+public class TrackExportWorker extends Worker {
+
+    private static final String TAG = "TrackExportWorker";
+
+    // 输入参数
+    public static final String KEY_FORMAT = "format";
+    public static final String KEY_GZIP = "gzip";
+    public static final String KEY_SESSION_ID = "session_id";
+    public static final String KEY_START_TIME = "start_time";
+    public static final String KEY_END_TIME = "end_time";
+    public static final String KEY_FILE_NAME = "file_name";
+
+    // 进度和输出
+    public static final String KEY_PROGRESS = "progress";
+    public static final String KEY_FILE_PATH = "file_path";
+    public static final String KEY_POINT_COUNT = "point_count";
+
+    private volatile TrackExporter exporter;
+    private int lastProgress = -1;
+
+    public TrackExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        TrackExporter.Format format = TrackExporter.Format.valueOf(input.getString(KEY_FORMAT));
+        boolean gzip = input.getBoolean(KEY_GZIP, false);
+        long sessionId = input.getLong(KEY_SESSION_ID, -1);
+
+        File file = new File(getApplicationContext().getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS),
+                input.getString(KEY_FILE_NAME));
+        FootprintDatabase database = FootprintDatabase.getInstance(getApplicationContext());
+        exporter = new TrackExporter(database, LocationPartitionRouter.getInstance(getApplicationContext()),
+                this::onExportProgress);
+        if (isStopped()) {
+            return Result.failure();
+        }
+
+        int pointCount;
+        try {
+            if (sessionId != -1) {
+                pointCount = exporter.exportSession(sessionId, format, gzip, file);
+            } else {
+                long startTime = input.getLong(KEY_START_TIME, 0);
+                long endTime = input.getLong(KEY_END_TIME, System.currentTimeMillis());
+                pointCount = exporter.exportRange(startTime, endTime, format, gzip, file);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "导出轨迹失败: " + e.getMessage());
+            file.delete();
+            return Result.failure();
+        }
+
+        return Result.success(new Data.Builder()
+                .putString(KEY_FILE_PATH, file.getAbsolutePath())
+                .putInt(KEY_POINT_COUNT, pointCount)
+                .build());
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        TrackExporter current = exporter;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * 导出进度回调
+     * 只在百分比变化时更新，避免频繁写入WorkManager数据库
+     */
+    private void onExportProgress(int exportedPoints, int totalPoints) {
+        int progress = totalPoints > 0 ? (int) (exportedPoints * 100L / totalPoints) : 100;
+        if (progress == lastProgress) {
+            return;
+        }
+        lastProgress = progress;
+        setProgressAsync(new Data.Builder().putInt(KEY_PROGRESS, progress).build());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.footprintexplorer.services;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.footprintexplorer.importer.TrackImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 轨迹导入任务
+ * 在WorkManager后台线程中导入用户选择的GPX、CSV或FIT文件，
+ * 按已读取的字节数报告进度，成功后在输出数据中返回会话数和点数
+ */
+public class TrackImportWorker extends Worker {
+
+    private static final String TAG = "TrackImportWorker";
+
+    // 输入参数
+    public static final String KEY_URI = "uri";
+    public static final String KEY_FORMAT = "format";
+
+    // 进度和输出
+    public static final String KEY_PROGRESS = "progress";
+    public static final String KEY_SESSION_COUNT = "session_count";
+    public static final String KEY_POINT_COUNT = "point_count";
+
+    private volatile TrackImporter importer;
+    private int lastProgress = -1;
+
+    public TrackImportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Uri uri = Uri.parse(getInputData().getString(KEY_URI));
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+
+        TrackImporter.Format format = null;
+        String formatName = getInputData().getString(KEY_FORMAT);
+        if (formatName != null) {
+            format = TrackImporter.Format.valueOf(formatName);
+        }
+        long size = -1;
+        try (Cursor cursor = resolver.query(uri, null, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                if (format == null && nameIndex >= 0 && !cursor.isNull(nameIndex)) {
+                    format = TrackImporter.Format.fromFileName(cursor.getString(nameIndex));
+                }
+                if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) {
+                    size = cursor.getLong(sizeIndex);
+                }
+            }
+        }
+        if (format == null) {
+            Log.e(TAG, "无法识别导入文件格式: " + uri);
+            return Result.failure();
+        }
+
+        importer = new TrackImporter(getApplicationContext(), this::onImportProgress);
+        if (isStopped()) {
+            return Result.failure();
+        }
+
+        TrackImporter.ImportResult result;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                return Result.failure();
+            }
+            result = importer.importStream(in, size, format);
+        } catch (IOException e) {
+            Log.e(TAG, "导入轨迹失败: " + e.getMessage());
+            return Result.failure();
+        }
+
+        return Result.success(new Data.Builder()
+                .putInt(KEY_SESSION_COUNT, result.getSessionIds().size())
+                .putInt(KEY_POINT_COUNT, result.getImportedCount())
+                .build());
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        TrackImporter current = importer;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * 导入进度回调
+     * 只在百分比变化时更新，避免频繁写入WorkManager数据库
+     */
+    private void onImportProgress(long bytesRead, long totalBytes) {
+        if (totalBytes <= 0) {
+            return;
+        }
+        int progress = (int) Math.min(100, bytesRead * 100 / totalBytes);
+        if (progress == lastProgress) {
+            return;
+        }
+        lastProgress = progress;
+        setProgressAsync(new Data.Builder().putInt(KEY_PROGRESS, progress).build());
+    }
+}
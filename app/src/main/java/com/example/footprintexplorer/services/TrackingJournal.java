@@ -0,0 +1,302 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.entity.LocationRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 追踪预写日志
+ * 基于内存映射文件的定长环形日志，记录进行中会话的状态和最近的位置点。
+ * 每个位置点只是若干次内存写入；进程被杀死后数据仍保留在页缓存中，
+ * 服务以START_STICKY重启时可据此恢复会话并补写尚未入库的位置点。
+ * 文件大小固定，因此恢复耗时与会话长度无关。
+ * 写线程落后超过容量时最旧的未入库位置点会被覆盖，覆盖时记录日志，
+ * 恢复时可由序号算出缺口大小。
+ */
+public class TrackingJournal {
+
+    private static final String TAG = "TrackingJournal";
+    private static final String FILE_NAME = "tracking.journal";
+
+    private static final int MAGIC = 0x46504A31; // "FPJ1"
+    private static final int VERSION = 1;
+
+    // 日志中保留的最近位置点数量
+    private static final int CAPACITY = 1024;
+
+    // 文件头布局
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_SESSION_ID = 8;
+    private static final int OFFSET_START_TIME = 16;
+    private static final int OFFSET_TOTAL_DISTANCE = 24;
+    private static final int OFFSET_LAST_LATITUDE = 32;
+    private static final int OFFSET_LAST_LONGITUDE = 40;
+    private static final int OFFSET_LAST_TIME = 48;
+    private static final int OFFSET_NEXT_SEQ = 56;
+    private static final int OFFSET_PERSISTED_SEQ = 64;
+    private static final int HEADER_SIZE = 128;
+
+    // 位置点记录布局：seq, timestamp, latitude, longitude, altitude, accuracy, speed
+    private static final int RECORD_SIZE = 48;
+
+    private static final int FILE_SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+    private final MappedByteBuffer buffer;
+
+    // 本进程中被覆盖的未入库位置点数量
+    private long overwrittenCount;
+
+    public TrackingJournal(Context context) throws IOException {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(FILE_SIZE);
+            // 映射在通道关闭后仍然有效
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+
+        if (buffer.getInt(OFFSET_MAGIC) != MAGIC || buffer.getInt(OFFSET_VERSION) != VERSION) {
+            reset(TrackingSessionManager.NO_SESSION, 0);
+        }
+    }
+
+    /**
+     * 开始记录新会话
+     */
+    public synchronized void beginSession(long sessionId, long startTime) {
+        reset(sessionId, startTime);
+    }
+
+    /**
+     * 结束会话，清空日志
+     * 会话已正常结束，无需恢复。应在该会话的位置点全部入库后调用；
+     * 日志已开始记录其他会话时忽略
+     */
+    public synchronized void endSession(long sessionId) {
+        if (buffer.getLong(OFFSET_SESSION_ID) != sessionId) {
+            return;
+        }
+        reset(TrackingSessionManager.NO_SESSION, 0);
+        buffer.force();
+    }
+
+    /**
+     * 更新会话进度
+     * 每个位置点调用一次，记录累计距离和最后位置
+     */
+    public synchronized void updateProgress(double totalDistance, double latitude, double longitude, long time) {
+        buffer.putDouble(OFFSET_TOTAL_DISTANCE, totalDistance);
+        buffer.putDouble(OFFSET_LAST_LATITUDE, latitude);
+        buffer.putDouble(OFFSET_LAST_LONGITUDE, longitude);
+        buffer.putLong(OFFSET_LAST_TIME, time);
+    }
+
+    /**
+     * 追加一个待入库的位置点
+     * @return 该位置点的序号，入库后通过markPersisted确认
+     */
+    public synchronized long appendFix(LocationRecord record) {
+        long seq = buffer.getLong(OFFSET_NEXT_SEQ);
+        if (seq - buffer.getLong(OFFSET_PERSISTED_SEQ) >= CAPACITY) {
+            // 写线程落后超过容量，将覆盖的槽位尚未确认入库；它仍在写队列中，只在进程被杀死时丢失
+            overwrittenCount++;
+            if (overwrittenCount == 1 || overwrittenCount % 100 == 0) {
+                Log.w(TAG, "日志已满，覆盖未入库的位置点，序号: " + (seq - CAPACITY)
+                        + "，累计覆盖: " + overwrittenCount);
+            }
+        }
+        int offset = HEADER_SIZE + (int) (seq % CAPACITY) * RECORD_SIZE;
+
+        buffer.putLong(offset + 8, record.getTimestamp());
+        buffer.putDouble(offset + 16, record.getLatitude());
+        buffer.putDouble(offset + 24, record.getLongitude());
+        buffer.putDouble(offset + 32, record.getAltitude());
+        buffer.putFloat(offset + 40, record.getAccuracy());
+        buffer.putFloat(offset + 44, record.getSpeed());
+        // 最后写入序号，恢复时序号不匹配的槽位视为未写完整
+        buffer.putLong(offset, seq);
+
+        buffer.putLong(OFFSET_NEXT_SEQ, seq + 1);
+        return seq;
+    }
+
+    /**
+     * 撤销最后追加的位置点
+     * 会话拒绝了该位置点（暂停或空闲）时调用，恢复时不会补写被拒绝的位置点
+     * @param seq appendFix返回的序号，之后又有追加时忽略
+     */
+    public synchronized void discardFix(long seq) {
+        if (buffer.getLong(OFFSET_NEXT_SEQ) != seq + 1) {
+            return;
+        }
+        buffer.putLong(HEADER_SIZE + (int) (seq % CAPACITY) * RECORD_SIZE, -1);
+        buffer.putLong(OFFSET_NEXT_SEQ, seq);
+    }
+
+    /**
+     * 确认位置点已写入数据库
+     * 写线程按顺序入库，因此只需记录已确认的最大序号。确认在写线程上异步到达，
+     * 日志已开始记录其他会话时忽略，不会跳过新会话中未入库的位置点
+     * @param sessionId 位置点所属的会话
+     */
+    public synchronized void markPersisted(long sessionId, long seq) {
+        if (buffer.getLong(OFFSET_SESSION_ID) != sessionId) {
+            return;
+        }
+        if (seq + 1 > buffer.getLong(OFFSET_PERSISTED_SEQ)) {
+            buffer.putLong(OFFSET_PERSISTED_SEQ, seq + 1);
+        }
+    }
+
+    /**
+     * 读取需要恢复的会话
+     * @return 上次未正常结束的会话；没有需要恢复的会话时返回null
+     */
+    public synchronized RecoveredSession recover() {
+        long sessionId = buffer.getLong(OFFSET_SESSION_ID);
+        if (sessionId == TrackingSessionManager.NO_SESSION) {
+            return null;
+        }
+
+        long nextSeq = buffer.getLong(OFFSET_NEXT_SEQ);
+        long persistedSeq = buffer.getLong(OFFSET_PERSISTED_SEQ);
+        long firstSeq = Math.max(persistedSeq, nextSeq - CAPACITY);
+        long lostCount = firstSeq - persistedSeq;
+        if (lostCount > 0) {
+            Log.w(TAG, "日志已被覆盖，会话 " + sessionId + " 有 " + lostCount + " 个位置点无法补写，序号: "
+                    + persistedSeq + " 到 " + (firstSeq - 1));
+        }
+
+        List<LocationRecord> pending = new ArrayList<>();
+        for (long seq = firstSeq; seq < nextSeq; seq++) {
+            int offset = HEADER_SIZE + (int) (seq % CAPACITY) * RECORD_SIZE;
+            if (buffer.getLong(offset) != seq) {
+                continue;
+            }
+            pending.add(new LocationRecord(
+                    sessionId,
+                    buffer.getDouble(offset + 16),
+                    buffer.getDouble(offset + 24),
+                    buffer.getDouble(offset + 32),
+                    buffer.getFloat(offset + 40),
+                    buffer.getFloat(offset + 44),
+                    buffer.getLong(offset + 8)));
+        }
+
+        Log.d(TAG, "发现未结束的会话，ID: " + sessionId + ", 待补写位置点: " + pending.size());
+        return new RecoveredSession(
+                sessionId,
+                buffer.getLong(OFFSET_START_TIME),
+                buffer.getDouble(OFFSET_TOTAL_DISTANCE),
+                buffer.getDouble(OFFSET_LAST_LATITUDE),
+                buffer.getDouble(OFFSET_LAST_LONGITUDE),
+                buffer.getLong(OFFSET_LAST_TIME),
+                nextSeq,
+                lostCount,
+                pending);
+    }
+
+    /**
+     * 重置文件头
+     */
+    private void reset(long sessionId, long startTime) {
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        buffer.putLong(OFFSET_SESSION_ID, sessionId);
+        buffer.putLong(OFFSET_START_TIME, startTime);
+        buffer.putDouble(OFFSET_TOTAL_DISTANCE, 0);
+        buffer.putDouble(OFFSET_LAST_LATITUDE, 0);
+        buffer.putDouble(OFFSET_LAST_LONGITUDE, 0);
+        buffer.putLong(OFFSET_LAST_TIME, 0);
+        buffer.putLong(OFFSET_NEXT_SEQ, 0);
+        buffer.putLong(OFFSET_PERSISTED_SEQ, 0);
+        // 清除旧槽位的序号，避免被误认为新会话的数据
+        for (int i = 0; i < CAPACITY; i++) {
+            buffer.putLong(HEADER_SIZE + i * RECORD_SIZE, -1);
+        }
+    }
+
+    /**
+     * 待恢复的会话
+     */
+    public static class RecoveredSession {
+        private final long sessionId;
+        private final long startTime;
+        private final double totalDistance;
+        private final double lastLatitude;
+        private final double lastLongitude;
+        private final long lastTime;
+        private final long nextSeq;
+        private final long lostCount;
+        private final List<LocationRecord> pendingRecords;
+
+        RecoveredSession(long sessionId, long startTime, double totalDistance,
+                         double lastLatitude, double lastLongitude, long lastTime,
+                         long nextSeq, long lostCount, List<LocationRecord> pendingRecords) {
+            this.sessionId = sessionId;
+            this.startTime = startTime;
+            this.totalDistance = totalDistance;
+            this.lastLatitude = lastLatitude;
+            this.lastLongitude = lastLongitude;
+            this.lastTime = lastTime;
+            this.nextSeq = nextSeq;
+            this.lostCount = lostCount;
+            this.pendingRecords = pendingRecords;
+        }
+
+        public long getSessionId() {
+            return sessionId;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public double getTotalDistance() {
+            return totalDistance;
+        }
+
+        public double getLastLatitude() {
+            return lastLatitude;
+        }
+
+        public double getLastLongitude() {
+            return lastLongitude;
+        }
+
+        public long getLastTime() {
+            return lastTime;
+        }
+
+        /**
+         * 恢复时日志中的下一个序号，补写完成后据此确认已入库
+         */
+        public long getNextSeq() {
+            return nextSeq;
+        }
+
+        /**
+         * 未入库就被覆盖、无法补写的位置点数量
+         */
+        public long getLostCount() {
+            return lostCount;
+        }
+
+        public boolean hasLastLocation() {
+            return lastTime > 0;
+        }
+
+        public List<LocationRecord> getPendingRecords() {
+            return pendingRecords;
+        }
+    }
+}
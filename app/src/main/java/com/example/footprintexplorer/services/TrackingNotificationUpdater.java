@@ -0,0 +1,150 @@
+package com.example.footprintexplorer.services;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+
+import com.example.footprintexplorer.R;
+import com.example.footprintexplorer.ui.activities.MainActivity;
+import com.example.footprintexplorer.utils.BatteryOptimizer;
+
+/**
+ * 追踪通知更新器
+ * 复用同一个NotificationCompat.Builder和PendingIntent，
+ * 仅在显示内容变化时发布通知，并按配置的最小间隔限流；
+ * 间隔内的最后一次变化推迟到间隔结束时发布，不会因为之后没有新位置点而一直过时
+ */
+public class TrackingNotificationUpdater {
+
+    // 默认最小通知更新间隔（毫秒）
+    public static final long DEFAULT_MIN_UPDATE_INTERVAL = 5000;
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final NotificationCompat.Builder builder;
+    private final int notificationId;
+    private final long minUpdateInterval;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable trailingUpdate = this::postPending;
+
+    private String lastText;
+    private String lastSubText;
+    private long lastPostTime;
+
+    // 间隔内尚未发布的文本，为null时没有待发布的更新
+    private String pendingText;
+
+    public TrackingNotificationUpdater(Context context, String channelId, int notificationId) {
+        this(context, channelId, notificationId, DEFAULT_MIN_UPDATE_INTERVAL);
+    }
+
+    public TrackingNotificationUpdater(Context context, String channelId, int notificationId, long minUpdateInterval) {
+        this.context = context;
+        this.notificationManager = context.getSystemService(NotificationManager.class);
+        this.notificationId = notificationId;
+        this.minUpdateInterval = minUpdateInterval;
+
+        Intent notificationIntent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context,
+                0,
+                notificationIntent,
+                PendingIntent.FLAG_IMMUTABLE);
+
+        this.builder = new NotificationCompat.Builder(context, channelId)
+                .setContentTitle("足迹探索")
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true);
+    }
+
+    /**
+     * 构建初始通知，用于startForeground
+     */
+    public synchronized Notification buildInitial(String text) {
+        cancelPending();
+        lastText = text;
+        lastSubText = BatteryOptimizer.getBatteryStateDescription(context);
+        lastPostTime = SystemClock.elapsedRealtime();
+        return builder.setContentText(lastText).setSubText(lastSubText).build();
+    }
+
+    /**
+     * 按行进距离更新通知
+     * 距离按0.01公里取整，未变化时不会产生任何系统调用
+     * @param totalDistance 总距离（米）
+     */
+    public void updateDistance(float totalDistance) {
+        update(String.format("已行进 %.2f 公里", totalDistance / 1000));
+    }
+
+    /**
+     * 更新通知文本
+     * 仅在文本或电池描述变化时发布；距上次发布不足最小间隔时，
+     * 只保留最新的文本并在间隔结束时发布
+     */
+    public synchronized void update(String text) {
+        String subText = BatteryOptimizer.getBatteryStateDescription(context);
+        if (text.equals(lastText) && subText.equals(lastSubText)) {
+            // 内容已恢复为当前显示的内容，之前推迟的更新不再需要
+            cancelPending();
+            return;
+        }
+
+        long wait = lastPostTime + minUpdateInterval - SystemClock.elapsedRealtime();
+        if (wait > 0) {
+            if (pendingText == null) {
+                handler.postDelayed(trailingUpdate, wait);
+            }
+            pendingText = text;
+            return;
+        }
+
+        cancelPending();
+        post(text, subText);
+    }
+
+    /**
+     * 取消推迟的更新
+     * 停止前台服务前调用，避免通知被移除后又被重新发布
+     */
+    public synchronized void cancelPending() {
+        if (pendingText != null) {
+            handler.removeCallbacks(trailingUpdate);
+            pendingText = null;
+        }
+    }
+
+    /**
+     * 间隔结束时发布推迟的文本，电池描述取发布时的值
+     */
+    private synchronized void postPending() {
+        if (pendingText == null) {
+            return;
+        }
+        String text = pendingText;
+        pendingText = null;
+        String subText = BatteryOptimizer.getBatteryStateDescription(context);
+        if (!text.equals(lastText) || !subText.equals(lastSubText)) {
+            post(text, subText);
+        }
+    }
+
+    private void post(String text, String subText) {
+        lastText = text;
+        lastSubText = subText;
+        lastPostTime = SystemClock.elapsedRealtime();
+        notificationManager.notify(notificationId, builder
+                .setContentText(text)
+                .setSubText(subText)
+                .build());
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.footprintexplorer.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.LocationRecord;
+import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.events.DomainEventBus;
+import com.example.footprintexplorer.events.SessionEnded;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 追踪会话管理器
+ * 统一负责会话的开始、暂停、恢复和结束，会话ID在调用线程上同步分配且不等待数据库，
+ * 所有数据库写入都在同一个写线程上按提交顺序执行，
+ * 因此会话插入一定先于该会话的位置记录写入，也不会结束错误的会话
+ */
+public class TrackingSessionManager {
+
+    private static final String TAG = "TrackingSessionManager";
+
+    // 统计持久化节奏：每隔若干个位置点或一段时间写入一次
+    private static final int STATS_FLUSH_POINTS = 20;
+    private static final long STATS_FLUSH_INTERVAL = 60 * 1000;
+
+    public static final long NO_SESSION = -1;
+
+    // 会话状态
+    public enum State {
+        IDLE,    // 没有进行中的会话
+        ACTIVE,  // 正在记录
+        PAUSED   // 已暂停，忽略位置点
+    }
+
+    private static volatile TrackingSessionManager instance;
+
+    private final FootprintDatabase database;
+    private final ExecutorService writeExecutor;
+    private final Future<Long> idSeed;
+    private boolean seeded;
+    private long nextSessionId;
+
+    private State state = State.IDLE;
+    private long currentSessionId = NO_SESSION;
+    private SessionStatsAccumulator stats = new SessionStatsAccumulator();
+    private int pointsSinceFlush;
+    private long lastFlushTime;
+
+    private TrackingSessionManager(Context context) {
+        database = FootprintDatabase.getInstance(context.getApplicationContext());
+        writeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "session-writer"));
+
+        // 预先读取最大会话ID，之后的ID分配无需访问数据库
+        idSeed = writeExecutor.submit(() -> database.trackingSessionDao().getMaxSessionId());
+    }
+
+    /**
+     * 获取单例实例
+     * @param context 上下文
+     * @return 会话管理器
+     */
+    public static TrackingSessionManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TrackingSessionManager.class) {
+                if (instance == null) {
+                    instance = new TrackingSessionManager(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始新会话
+     * 会话ID立即返回，插入操作在写线程上排队执行
+     * @param name 会话名称
+     * @param isManual 是否为手动记录
+     * @return 新会话ID；若已有会话在进行中，返回该会话ID
+     */
+    public synchronized long startSession(String name, boolean isManual) {
+        if (state != State.IDLE) {
+            Log.d(TAG, "已有进行中的会话，ID: " + currentSessionId);
+            return currentSessionId;
+        }
+
+        long sessionId = allocateSessionId();
+        TrackingSession session = new TrackingSession(name, System.currentTimeMillis());
+        session.setId(sessionId);
+        session.setManualRecording(isManual);
+
+        currentSessionId = sessionId;
+        state = State.ACTIVE;
+        resetStats();
+
+        writeExecutor.execute(() -> {
+            database.trackingSessionDao().insert(session);
+            Log.d(TAG, "创建新会话，ID: " + sessionId);
+        });
+        return sessionId;
+    }
+
+    /**
+     * 恢复进程被杀死前未结束的会话并继续记录
+     * 会话行缺失时补插入，并批量补写日志中尚未入库的位置点。
+     * 只在没有进行中的会话时接管；否则不做任何操作，由调用方通过closeRecoveredSession结束它
+     * @param recovered 预写日志中读取的会话
+     * @param afterRestore 补写完成后在写线程上执行的操作，可为null
+     * @return 是否已接管为当前会话
+     */
+    public synchronized boolean restoreSession(TrackingJournal.RecoveredSession recovered, Runnable afterRestore) {
+        if (state != State.IDLE) {
+            Log.d(TAG, "已有进行中的会话，ID: " + currentSessionId + "，不接管恢复的会话");
+            return false;
+        }
+
+        long sessionId = recovered.getSessionId();
+        reserveRecoveredId(sessionId);
+        currentSessionId = sessionId;
+        state = State.ACTIVE;
+        resetStats();
+        stats.setTotalDistance(recovered.getTotalDistance());
+
+        SessionStatsAccumulator restoredStats = stats;
+        writeExecutor.execute(() -> {
+            writeRecovered(recovered, restoredStats);
+            Log.d(TAG, "恢复会话，ID: " + sessionId + ", 补写位置点: " + recovered.getPendingRecords().size()
+                    + ", 无法补写: " + recovered.getLostCount());
+            if (afterRestore != null) {
+                afterRestore.run();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 结束进程被杀死前未结束的会话
+     * 在写线程上补写会话行和位置点，以日志中的距离和最后位置时间结束它，并发布SessionEnded事件；
+     * 不影响当前会话的ID和统计。日志中的会话就是当前会话时忽略
+     * @param recovered 预写日志中读取的会话
+     * @param afterClose 全部写入完成后在写线程上执行的操作，可为null
+     */
+    public synchronized void closeRecoveredSession(TrackingJournal.RecoveredSession recovered, Runnable afterClose) {
+        long sessionId = recovered.getSessionId();
+        if (sessionId == currentSessionId) {
+            return;
+        }
+        reserveRecoveredId(sessionId);
+
+        SessionStatsAccumulator orphanStats = new SessionStatsAccumulator();
+        orphanStats.setTotalDistance(recovered.getTotalDistance());
+        long endTime = recovered.hasLastLocation() ? recovered.getLastTime() : System.currentTimeMillis();
+        writeExecutor.execute(() -> {
+            TrackingSession session = writeRecovered(recovered, orphanStats);
+            session.setEndTime(Math.max(endTime, session.getStartTime()));
+            orphanStats.applyTo(session);
+            database.trackingSessionDao().update(session);
+            Log.d(TAG, "结束恢复的会话，ID: " + sessionId + ", 补写位置点: " + recovered.getPendingRecords().size()
+                    + ", 无法补写: " + recovered.getLostCount() + ", 位置点: " + orphanStats.getLocationCount());
+            DomainEventBus.getInstance().publish(new SessionEnded(sessionId,
+                    orphanStats.getTotalDistance(), orphanStats.getLocationCount()));
+            if (afterClose != null) {
+                afterClose.run();
+            }
+        });
+    }
+
+    /**
+     * 补写恢复的会话
+     * 在写线程上调用：会话行缺失时补插入，插入日志中尚未入库的位置点，
+     * 并把已持久化的统计和位置记录表的实际行数合并到累加器
+     * @return 会话行
+     */
+    private TrackingSession writeRecovered(TrackingJournal.RecoveredSession recovered,
+                                           SessionStatsAccumulator target) {
+        long sessionId = recovered.getSessionId();
+        TrackingSession persisted = database.trackingSessionDao().getSessionByIdSync(sessionId);
+        TrackingSession session = persisted;
+        if (session == null) {
+            session = new TrackingSession("足迹记录 " + new Date(recovered.getStartTime()),
+                    recovered.getStartTime());
+            session.setId(sessionId);
+            database.trackingSessionDao().insert(session);
+        }
+        List<LocationRecord> pending = recovered.getPendingRecords();
+        if (!pending.isEmpty()) {
+            database.locationDao().insertAll(pending);
+        }
+        // 会话表中的点数只在定期持久化时更新，以位置记录表的实际行数为准；
+        // 接管之后记录的位置点排在此任务之后入库，已计入累加器
+        int persistedCount = database.locationDao().getLocationCountBySession(sessionId);
+        synchronized (this) {
+            if (persisted != null) {
+                target.mergePersisted(persisted);
+            }
+            target.addRecordedPoints(persistedCount);
+        }
+        return session;
+    }
+
+    /**
+     * 暂停当前会话
+     */
+    public synchronized void pauseSession() {
+        if (state == State.ACTIVE) {
+            state = State.PAUSED;
+            Log.d(TAG, "暂停会话，ID: " + currentSessionId);
+        }
+    }
+
+    /**
+     * 恢复当前会话
+     */
+    public synchronized void resumeSession() {
+        if (state == State.PAUSED) {
+            state = State.ACTIVE;
+            Log.d(TAG, "恢复会话，ID: " + currentSessionId);
+        }
+    }
+
+    /**
+     * 结束当前会话
+     * 最终统计与结束时间一起写入，写入后发布SessionEnded事件
+     * @return 被结束的会话ID，没有进行中的会话时返回NO_SESSION
+     */
+    public long endSession() {
+        return endSession(null);
+    }
+
+    /**
+     * 结束当前会话
+     * @param afterEnd 会话的全部写入完成后在写线程上执行的操作，可为null
+     * @return 被结束的会话ID，没有进行中的会话时返回NO_SESSION
+     */
+    public synchronized long endSession(Runnable afterEnd) {
+        if (state == State.IDLE) {
+            return NO_SESSION;
+        }
+
+        // 在调用线程上捕获会话ID和统计，之后开始的新会话不会被误结束
+        // 统计在写线程上再复制，以包含恢复会话时排在前面的合并结果
+        long sessionId = currentSessionId;
+        SessionStatsAccumulator sessionStats = stats;
+        long endTime = System.currentTimeMillis();
+        currentSessionId = NO_SESSION;
+        state = State.IDLE;
+
+        writeExecutor.execute(() -> {
+            SessionStatsAccumulator finalStats;
+            synchronized (TrackingSessionManager.this) {
+                finalStats = sessionStats.copy();
+            }
+            TrackingSession session = database.trackingSessionDao().getSessionByIdSync(sessionId);
+            if (session != null) {
+                session.setEndTime(endTime);
+                finalStats.applyTo(session);
+                database.trackingSessionDao().update(session);
+                Log.d(TAG, "结束会话，ID: " + sessionId + ", 总距离: " + finalStats.getTotalDistance() + "m"
+                        + ", 位置点: " + finalStats.getLocationCount());
+            }
+            DomainEventBus.getInstance().publish(new SessionEnded(sessionId,
+                    finalStats.getTotalDistance(), finalStats.getLocationCount()));
+            if (afterEnd != null) {
+                afterEnd.run();
+            }
+        });
+        return sessionId;
+    }
+
+    /**
+     * 累加会话统计
+     * 每个有效位置点调用一次，无论该点是否入库
+     * @param distanceDelta 与上一个位置点的距离（米）
+     */
+    public synchronized void addToStats(double latitude, double longitude, double altitude,
+                                        float speed, long time, double distanceDelta) {
+        if (state != State.ACTIVE) {
+            return;
+        }
+        stats.addFix(latitude, longitude, altitude, speed, time, distanceDelta);
+    }
+
+    /**
+     * 获取当前会话的统计
+     * 返回副本，可在任意线程读取
+     */
+    public synchronized SessionStatsAccumulator getStats() {
+        return stats.copy();
+    }
+
+    /**
+     * 记录位置点
+     * 位置点绑定到调用时的会话，暂停或空闲状态下忽略
+     * @param record 位置记录（sessionId由管理器填写）
+     * @param afterInsert 插入完成后在写线程上执行的操作，可为null
+     * @return 是否已接受该位置点
+     */
+    public synchronized boolean recordFix(LocationRecord record, Runnable afterInsert) {
+        if (state != State.ACTIVE) {
+            return false;
+        }
+
+        record.setSessionId(currentSessionId);
+        stats.addRecordedPoints(1);
+        writeExecutor.execute(() -> {
+            database.locationDao().insert(record);
+            if (afterInsert != null) {
+                afterInsert.run();
+            }
+        });
+        maybeFlushStats();
+        return true;
+    }
+
+    /**
+     * 按节奏持久化会话统计
+     * 会话列表和报告直接读取会话表，无需扫描位置记录
+     */
+    private void maybeFlushStats() {
+        pointsSinceFlush++;
+        long now = System.currentTimeMillis();
+        if (pointsSinceFlush < STATS_FLUSH_POINTS && now - lastFlushTime < STATS_FLUSH_INTERVAL) {
+            return;
+        }
+        if (!stats.hasBounds()) {
+            return;
+        }
+        pointsSinceFlush = 0;
+        lastFlushTime = now;
+
+        long sessionId = currentSessionId;
+        SessionStatsAccumulator snapshot = stats.copy();
+        writeExecutor.execute(() -> database.trackingSessionDao().updateStats(
+                sessionId,
+                snapshot.getLocationCount(),
+                snapshot.getTotalDistance(),
+                snapshot.getMovingTime(),
+                snapshot.getAverageSpeed(),
+                snapshot.getMaxSpeed(),
+                snapshot.getElevationGain(),
+                snapshot.getElevationLoss(),
+                snapshot.getMinLatitude(),
+                snapshot.getMaxLatitude(),
+                snapshot.getMinLongitude(),
+                snapshot.getMaxLongitude()));
+    }
+
+    /**
+     * 为新会话重置统计
+     */
+    private void resetStats() {
+        stats = new SessionStatsAccumulator();
+        pointsSinceFlush = 0;
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取当前会话ID
+     */
+    public synchronized long getCurrentSessionId() {
+        return currentSessionId;
+    }
+
+    /**
+     * 获取当前会话状态
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 为导入等不经过追踪流程的会话分配ID
+     * 与实时会话共用同一个计数器，两者的ID不会冲突
+     */
+    public long reserveSessionId() {
+        return allocateSessionId();
+    }
+
+    /**
+     * 分配下一个会话ID
+     * 从不等待数据库：预读的最大ID到达后以它为起点；尚未到达时以当前时间（毫秒）为起点，
+     * 它远大于自增产生的ID，预读到达后计数器取两者中较大的值，之后的ID仍然递增
+     */
+    private synchronized long allocateSessionId() {
+        if (!seeded) {
+            if (idSeed.isDone()) {
+                nextSessionId = Math.max(nextSessionId, readSeed() + 1);
+                seeded = true;
+            } else {
+                nextSessionId = Math.max(nextSessionId, System.currentTimeMillis());
+            }
+        }
+        return nextSessionId++;
+    }
+
+    /**
+     * 恢复的会话行可能尚未插入，保证之后分配的ID不会与之冲突
+     */
+    private void reserveRecoveredId(long sessionId) {
+        nextSessionId = Math.max(nextSessionId, sessionId + 1);
+    }
+
+    /**
+     * 读取已完成的最大ID预读
+     * 预读失败时以当前时间为起点
+     */
+    private long readSeed() {
+        try {
+            return idSeed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "读取最大会话ID失败: " + e.getMessage());
+        }
+        return System.currentTimeMillis();
+    }
+}
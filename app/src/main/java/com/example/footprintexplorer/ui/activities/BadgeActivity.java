@@ -61,8 +61,15 @@ public class BadgeActivity extends AppCompatActivity {
             showBadgeDetails(badge);
         });
         
+        // 滚动接近已加载末尾时预取下一页
+        adapter.setOnPositionBoundListener(viewModel::loadAround);
+        
         binding.recyclerView.setLayoutManager(new GridLayoutManager(this, 3));
         binding.recyclerView.setAdapter(adapter);
+        
+        // 列表项尺寸固定，多缓存一行视图，来回滚动时无需重新绑定
+        binding.recyclerView.setHasFixedSize(true);
+        binding.recyclerView.setItemViewCacheSize(6);
     }
     
     /**
@@ -81,8 +88,8 @@ public class BadgeActivity extends AppCompatActivity {
     private void observeViewModel() {
         // 观察徽章列表
         viewModel.getBadges().observe(this, badges -> {
+            adapter.submitList(badges);
             if (badges != null && !badges.isEmpty()) {
-                adapter.submitList(badges);
                 binding.emptyView.setVisibility(View.GONE);
             } else {
                 binding.emptyView.setVisibility(View.VISIBLE);
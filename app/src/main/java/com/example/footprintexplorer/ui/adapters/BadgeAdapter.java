@@ -11,9 +11,9 @@ import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.footprintexplorer.R;
 import com.example.footprintexplorer.data.entity.Badge;
+import com.example.footprintexplorer.utils.BadgeImageLoader;
 
 /**
  * 徽章适配器
@@ -22,10 +22,20 @@ import com.example.footprintexplorer.data.entity.Badge;
 public class BadgeAdapter extends ListAdapter<Badge, BadgeAdapter.BadgeViewHolder> {
 
     private final OnBadgeClickListener listener;
+    private OnPositionBoundListener positionBoundListener;
 
     public BadgeAdapter(OnBadgeClickListener listener) {
-        super(DIFF_CALLBACK);
+        super(DiffExecutor.config(DIFF_CALLBACK));
         this.listener = listener;
+        // 使用稳定ID，数据集变化时RecyclerView可复用未变化的列表项
+        setHasStableIds(true);
+    }
+
+    /**
+     * 设置列表项绑定监听，用于分页预取
+     */
+    public void setOnPositionBoundListener(OnPositionBoundListener positionBoundListener) {
+        this.positionBoundListener = positionBoundListener;
     }
 
     private static final DiffUtil.ItemCallback<Badge> DIFF_CALLBACK = new DiffUtil.ItemCallback<Badge>() {
@@ -36,12 +46,18 @@ public class BadgeAdapter extends ListAdapter<Badge, BadgeAdapter.BadgeViewHolde
 
         @Override
         public boolean areContentsTheSame(@NonNull Badge oldItem, @NonNull Badge newItem) {
-            return oldItem.getName().equals(newItem.getName()) &&
-                   oldItem.getCategory().equals(newItem.getCategory()) &&
-                   oldItem.isUnlocked() == newItem.isUnlocked();
+            // 摘要在加载时已计算，不同时直接判定变化，相同时再逐字段确认
+            return oldItem.hasSameContent(newItem);
         }
     };
 
+    @Override
+    public long getItemId(int position) {
+        Badge badge = getItem(position);
+        // 占位符按位置取负数ID，不与数据库ID冲突
+        return badge != null ? badge.getId() : -1 - position;
+    }
+
     @NonNull
     @Override
     public BadgeViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -53,7 +69,15 @@ public class BadgeAdapter extends ListAdapter<Badge, BadgeAdapter.BadgeViewHolde
     @Override
     public void onBindViewHolder(@NonNull BadgeViewHolder holder, int position) {
         Badge badge = getItem(position);
-        holder.bind(badge, listener);
+        if (badge != null) {
+            holder.bind(badge, listener);
+        } else {
+            // 尚未加载的位置显示占位符
+            holder.bindPlaceholder();
+        }
+        if (positionBoundListener != null) {
+            positionBoundListener.onPositionBound(position);
+        }
     }
 
     static class BadgeViewHolder extends RecyclerView.ViewHolder {
@@ -74,32 +98,8 @@ public class BadgeAdapter extends ListAdapter<Badge, BadgeAdapter.BadgeViewHolde
             textName.setText(badge.getName());
             textCategory.setText(badge.getCategory());
             
-            // 设置徽章图片
-            if (badge.getImageUrl() != null && !badge.getImageUrl().isEmpty()) {
-                Glide.with(itemView.getContext())
-                        .load(badge.getImageUrl())
-                        .placeholder(R.drawable.badge_placeholder)
-                        .error(R.drawable.badge_placeholder)
-                        .into(imageView);
-            } else {
-                // 根据类别设置默认图片
-                int resourceId;
-                switch (badge.getCategory()) {
-                    case "美食":
-                        resourceId = R.drawable.badge_food;
-                        break;
-                    case "文物":
-                        resourceId = R.drawable.badge_culture;
-                        break;
-                    case "动物":
-                        resourceId = R.drawable.badge_animal;
-                        break;
-                    default:
-                        resourceId = R.drawable.badge_placeholder;
-                        break;
-                }
-                imageView.setImageResource(resourceId);
-            }
+            // 设置徽章图片：默认图片取自类别精灵图，自定义图片按缩略图尺寸解码并缓存
+            BadgeImageLoader.getInstance(itemView.getContext()).loadInto(imageView, badge);
             
             // 设置锁定状态
             lockOverlay.setVisibility(badge.isUnlocked() ? View.GONE : View.VISIBLE);
@@ -111,6 +111,14 @@ public class BadgeAdapter extends ListAdapter<Badge, BadgeAdapter.BadgeViewHolde
                 }
             });
         }
+
+        void bindPlaceholder() {
+            textName.setText("");
+            textCategory.setText("");
+            BadgeImageLoader.getInstance(itemView.getContext()).loadPlaceholder(imageView);
+            lockOverlay.setVisibility(View.GONE);
+            itemView.setOnClickListener(null);
+        }
     }
 
     public interface OnBadgeClickListener {
@@ -22,10 +22,20 @@ import com.google.android.material.card.MaterialCardView;
 public class ChallengeAdapter extends ListAdapter<Challenge, ChallengeAdapter.ChallengeViewHolder> {
 
     private final OnChallengeClickListener listener;
+    private OnPositionBoundListener positionBoundListener;
 
     public ChallengeAdapter(OnChallengeClickListener listener) {
-        super(DIFF_CALLBACK);
+        super(DiffExecutor.config(DIFF_CALLBACK));
         this.listener = listener;
+        // 使用稳定ID，数据集变化时RecyclerView可复用未变化的列表项
+        setHasStableIds(true);
+    }
+
+    /**
+     * 设置列表项绑定监听，用于分页预取
+     */
+    public void setOnPositionBoundListener(OnPositionBoundListener positionBoundListener) {
+        this.positionBoundListener = positionBoundListener;
     }
 
     private static final DiffUtil.ItemCallback<Challenge> DIFF_CALLBACK = new DiffUtil.ItemCallback<Challenge>() {
@@ -36,12 +46,18 @@ public class ChallengeAdapter extends ListAdapter<Challenge, ChallengeAdapter.Ch
 
         @Override
         public boolean areContentsTheSame(@NonNull Challenge oldItem, @NonNull Challenge newItem) {
-            return oldItem.getTitle().equals(newItem.getTitle()) &&
-                    oldItem.getProgress() == newItem.getProgress() &&
-                    oldItem.isCompleted() == newItem.isCompleted();
+            // 摘要在加载时已计算，不同时直接判定变化，相同时再逐字段确认
+            return oldItem.hasSameContent(newItem);
         }
     };
 
+    @Override
+    public long getItemId(int position) {
+        Challenge challenge = getItem(position);
+        // 占位符按位置取负数ID，不与数据库ID冲突
+        return challenge != null ? challenge.getId() : -1 - position;
+    }
+
     @NonNull
     @Override
     public ChallengeViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -53,7 +69,15 @@ public class ChallengeAdapter extends ListAdapter<Challenge, ChallengeAdapter.Ch
     @Override
     public void onBindViewHolder(@NonNull ChallengeViewHolder holder, int position) {
         Challenge challenge = getItem(position);
-        holder.bind(challenge, listener);
+        if (challenge != null) {
+            holder.bind(challenge, listener);
+        } else {
+            // 尚未加载的位置显示占位符
+            holder.bindPlaceholder();
+        }
+        if (positionBoundListener != null) {
+            positionBoundListener.onPositionBound(position);
+        }
     }
 
     static class ChallengeViewHolder extends RecyclerView.ViewHolder {
@@ -114,6 +138,17 @@ public class ChallengeAdapter extends ListAdapter<Challenge, ChallengeAdapter.Ch
                 }
             });
         }
+
+        public void bindPlaceholder() {
+            titleTextView.setText("");
+            descriptionTextView.setText("");
+            progressTextView.setText("");
+            progressBar.setProgress(0);
+            rewardTextView.setText("");
+            difficultyTextView.setText("");
+            statusTextView.setText("");
+            cardView.setOnClickListener(null);
+        }
     }
 
     public interface OnChallengeClickListener {
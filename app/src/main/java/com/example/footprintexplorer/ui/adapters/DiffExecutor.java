@@ -0,0 +1,33 @@
+package com.example.footprintexplorer.ui.adapters;
+
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 列表差异计算线程
+ * 所有适配器共用一个后台线程计算DiffUtil差异，不为每个适配器各开线程，
+ * 也不与其他后台任务争用线程池
+ */
+public final class DiffExecutor {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "list-diff");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private DiffExecutor() {
+    }
+
+    /**
+     * 创建使用共享差异计算线程的配置
+     */
+    public static <T> AsyncDifferConfig<T> config(DiffUtil.ItemCallback<T> callback) {
+        return new AsyncDifferConfig.Builder<>(callback)
+                .setBackgroundThreadExecutor(EXECUTOR)
+                .build();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.footprintexplorer.ui.adapters;
+
+/**
+ * 列表项绑定监听接口
+ * 分页列表据此在滚动接近已加载末尾时预取下一页
+ */
+public interface OnPositionBoundListener {
+    void onPositionBound(int position);
+}
@@ -58,6 +58,9 @@ public class BadgesFragment extends Fragment {
             showBadgeDetails(badge);
         });
         
+        // 滚动接近已加载末尾时预取下一页
+        adapter.setOnPositionBoundListener(viewModel::loadAround);
+        
         binding.recyclerView.setLayoutManager(new GridLayoutManager(requireContext(), 3));
         binding.recyclerView.setAdapter(adapter);
     }
@@ -78,8 +81,8 @@ public class BadgesFragment extends Fragment {
     private void observeViewModel() {
         // 观察徽章列表
         viewModel.getBadges().observe(getViewLifecycleOwner(), badges -> {
+            adapter.submitList(badges);
             if (badges != null && !badges.isEmpty()) {
-                adapter.submitList(badges);
                 binding.emptyView.setVisibility(View.GONE);
             } else {
                 binding.emptyView.setVisibility(View.VISIBLE);
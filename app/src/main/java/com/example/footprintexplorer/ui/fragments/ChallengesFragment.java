@@ -63,6 +63,9 @@ public class ChallengesFragment extends Fragment implements ChallengeAdapter.OnC
      */
     private void setupRecyclerView() {
         adapter = new ChallengeAdapter(this);
+        
+        // 滚动接近已加载末尾时预取下一页
+        adapter.setOnPositionBoundListener(viewModel::loadAround);
         binding.recyclerView.setAdapter(adapter);
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
     }
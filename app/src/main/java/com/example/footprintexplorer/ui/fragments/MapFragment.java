@@ -130,21 +130,24 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                 // 清除现有轨迹
                 googleMap.clear();
                 
-                // 绘制轨迹
-                PolylineOptions polylineOptions = new PolylineOptions()
-                        .color(getResources().getColor(R.color.primary, null))
-                        .width(10);
-                
-                for (LatLng point : tracks) {
-                    polylineOptions.add(point);
+                // 每个会话绘制一条轨迹，直接读取缓冲区中的坐标
+                int color = getResources().getColor(R.color.primary, null);
+                for (int start = 0; start < tracks.size(); ) {
+                    int end = tracks.segmentEnd(start);
+                    PolylineOptions polylineOptions = new PolylineOptions()
+                            .color(color)
+                            .width(10);
+                    for (int i = start; i < end; i++) {
+                        polylineOptions.add(new LatLng(tracks.getLatitude(i), tracks.getLongitude(i)));
+                    }
+                    googleMap.addPolyline(polylineOptions);
+                    start = end;
                 }
                 
-                googleMap.addPolyline(polylineOptions);
-                
                 // 移动相机到最后一个点
-                if (!tracks.isEmpty()) {
-                    googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(tracks.get(tracks.size() - 1), 15));
-                }
+                int last = tracks.size() - 1;
+                googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(
+                        new LatLng(tracks.getLatitude(last), tracks.getLongitude(last)), 15));
             }
         });
     }
@@ -10,7 +10,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.work.WorkInfo;
 
 import com.example.footprintexplorer.R;
 import com.example.footprintexplorer.databinding.FragmentSettingsBinding;
@@ -187,8 +190,21 @@ public class SettingsFragment extends Fragment {
         builder.setTitle("清除数据");
         builder.setMessage("确定要清除所有足迹数据吗？此操作不可撤销。");
         builder.setPositiveButton("确定", (dialog, which) -> {
-            viewModel.clearAllData();
-            Toast.makeText(requireContext(), "数据已清除", Toast.LENGTH_SHORT).show();
+            Toast.makeText(requireContext(), "正在清除数据…", Toast.LENGTH_SHORT).show();
+            // 每次提交只观察本次任务，任务结束后移除观察者
+            LiveData<WorkInfo> clearState = viewModel.clearAllData();
+            clearState.observe(getViewLifecycleOwner(), new Observer<WorkInfo>() {
+                @Override
+                public void onChanged(WorkInfo workInfo) {
+                    if (workInfo == null || !workInfo.getState().isFinished()) {
+                        return;
+                    }
+                    clearState.removeObserver(this);
+                    if (workInfo.getState() == WorkInfo.State.SUCCEEDED) {
+                        Toast.makeText(requireContext(), "数据已清除", Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         });
         builder.setNegativeButton("取消", (dialog, which) -> dialog.dismiss());
         builder.create().show();
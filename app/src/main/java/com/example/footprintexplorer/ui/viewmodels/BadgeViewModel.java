@@ -4,11 +4,14 @@ import android.app.Application;
 
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
 
 import com.example.footprintexplorer.data.database.FootprintDatabase;
 import com.example.footprintexplorer.data.entity.Badge;
+import com.example.footprintexplorer.data.paging.KeysetPager;
+import com.example.footprintexplorer.data.paging.PageLoaders;
 
 import java.util.List;
 
@@ -22,6 +25,7 @@ public class BadgeViewModel extends AndroidViewModel {
     private MutableLiveData<String> currentFilter = new MutableLiveData<>(null);
     private MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private LiveData<List<Badge>> badges;
+    private KeysetPager<Badge> pager;
 
     public BadgeViewModel(Application application) {
         super(application);
@@ -33,22 +37,24 @@ public class BadgeViewModel extends AndroidViewModel {
 
     /**
      * 初始化徽章数据
+     * 按过滤器分页加载，先加载一屏，滚动时预取后续页
      */
     private void initBadges() {
-        // 根据过滤器获取徽章
         badges = Transformations.switchMap(currentFilter, filter -> {
             isLoading.setValue(true);
             
-            LiveData<List<Badge>> result;
-            if (filter == null || filter.isEmpty()) {
-                // 获取所有徽章
-                result = database.badgeDao().getAllBadges();
-            } else {
-                // 获取指定类别的徽章
-                result = database.badgeDao().getBadgesByCategory(filter);
+            // 切换过滤器时关闭上一个分页加载器
+            if (pager != null) {
+                pager.close();
             }
+            pager = new KeysetPager<>(database, new String[]{"badges"},
+                    PageLoaders.badges(database, filter), new KeysetPager.Config());
             
-            isLoading.setValue(false);
+            MediatorLiveData<List<Badge>> result = new MediatorLiveData<>();
+            result.addSource(pager.getItems(), page -> {
+                result.setValue(page);
+                isLoading.setValue(false);
+            });
             return result;
         });
     }
@@ -60,8 +66,18 @@ public class BadgeViewModel extends AndroidViewModel {
         currentFilter.setValue(category);
     }
     
+    /**
+     * 列表项即将显示时调用，接近已加载末尾时预取下一页
+     */
+    public void loadAround(int position) {
+        if (pager != null) {
+            pager.loadAround(position);
+        }
+    }
+    
     /**
      * 获取徽章数据
+     * 未加载的位置为null（占位符）
      */
     public LiveData<List<Badge>> getBadges() {
         return badges;
@@ -87,4 +103,12 @@ public class BadgeViewModel extends AndroidViewModel {
     public int getUnlockedBadgesCountByCategory(String category) {
         return database.badgeDao().getUnlockedBadgesCountByCategory(category);
     }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (pager != null) {
+            pager.close();
+        }
+    }
 }
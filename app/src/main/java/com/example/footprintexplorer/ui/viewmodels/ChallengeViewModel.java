@@ -4,15 +4,21 @@ import android.app.Application;
 
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import com.example.footprintexplorer.data.database.FootprintDatabase;
 import com.example.footprintexplorer.data.entity.Challenge;
 import com.example.footprintexplorer.data.entity.User;
+import com.example.footprintexplorer.data.paging.KeysetPager;
+import com.example.footprintexplorer.data.paging.PageLoaders;
+import com.example.footprintexplorer.services.ChallengeEngine;
 
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Executors;
 
 /**
@@ -21,8 +27,20 @@ import java.util.concurrent.Executors;
  */
 public class ChallengeViewModel extends AndroidViewModel {
 
+    // 按筛选条件缓存的查询结果数量上限
+    private static final int MAX_CACHED_FILTERS = 8;
+
     private FootprintDatabase database;
-    private MutableLiveData<List<Challenge>> challenges = new MutableLiveData<>(new ArrayList<>());
+    private MutableLiveData<ChallengeFilter> currentFilter = new MutableLiveData<>(ChallengeFilter.ALL);
+    private LiveData<List<Challenge>> challenges;
+    private KeysetPager<Challenge> pager;
+    private final Map<ChallengeFilter, List<Challenge>> resultCache =
+            new LinkedHashMap<ChallengeFilter, List<Challenge>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ChallengeFilter, List<Challenge>> eldest) {
+                    return size() > MAX_CACHED_FILTERS;
+                }
+            };
     private MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private MutableLiveData<Integer> userLevel = new MutableLiveData<>(1);
     private MutableLiveData<Integer> userXp = new MutableLiveData<>(0);
@@ -36,8 +54,8 @@ public class ChallengeViewModel extends AndroidViewModel {
         // 加载用户数据
         loadUserData();
         
-        // 加载所有挑战任务
-        loadAllChallenges();
+        // 初始化挑战任务数据
+        initChallenges();
     }
     
     /**
@@ -63,81 +81,112 @@ public class ChallengeViewModel extends AndroidViewModel {
     }
     
     /**
-     * 加载所有挑战任务
+     * 初始化挑战任务数据
+     * 根据筛选条件切换查询，切换时关闭上一个分页加载器，
+     * 因此无论切换多少次，始终只有一个观察者在监听数据表变化
      */
-    public void loadAllChallenges() {
-        isLoading.setValue(true);
+    private void initChallenges() {
+        challenges = Transformations.switchMap(currentFilter, this::queryChallenges);
+    }
+    
+    /**
+     * 查询指定筛选条件的挑战任务
+     * 有缓存时先显示缓存结果，第一页加载完成后再更新为最新结果
+     */
+    private LiveData<List<Challenge>> queryChallenges(ChallengeFilter filter) {
+        if (pager != null) {
+            pager.close();
+        }
+        pager = new KeysetPager<>(database, new String[]{"challenges"},
+                createLoader(filter), new KeysetPager.Config());
         
-        Executors.newSingleThreadExecutor().execute(() -> {
-            LiveData<List<Challenge>> challengesLiveData = database.challengeDao().getAllChallenges();
-            
-            // 观察LiveData变化
-            observeChallengesLiveData(challengesLiveData);
+        MediatorLiveData<List<Challenge>> result = new MediatorLiveData<>();
+        
+        List<Challenge> cached = resultCache.get(filter);
+        if (cached != null) {
+            result.setValue(cached);
+        } else {
+            isLoading.setValue(true);
+        }
+        
+        result.addSource(pager.getItems(), challengeList -> {
+            resultCache.put(filter, challengeList);
+            result.setValue(challengeList);
+            isLoading.setValue(false);
         });
+        return result;
+    }
+    
+    /**
+     * 创建筛选条件对应的分页查询
+     */
+    private KeysetPager.PageLoader<Challenge> createLoader(ChallengeFilter filter) {
+        switch (filter.getKind()) {
+            case ACTIVE:
+                return PageLoaders.activeChallenges(database);
+            case COMPLETED:
+                return PageLoaders.completedChallenges(database);
+            case TYPE:
+                return PageLoaders.challengesByType(database, filter.getType());
+            default:
+                return PageLoaders.challenges(database);
+        }
+    }
+    
+    /**
+     * 列表项即将显示时调用，接近已加载末尾时预取下一页
+     */
+    public void loadAround(int position) {
+        if (pager != null) {
+            pager.loadAround(position);
+        }
+    }
+    
+    /**
+     * 加载所有挑战任务
+     */
+    public void loadAllChallenges() {
+        setFilter(ChallengeFilter.ALL);
     }
     
     /**
      * 加载进行中的挑战任务
      */
     public void loadActiveChallenges() {
-        isLoading.setValue(true);
-        
-        Executors.newSingleThreadExecutor().execute(() -> {
-            LiveData<List<Challenge>> challengesLiveData = database.challengeDao().getActiveChallenges();
-            
-            // 观察LiveData变化
-            observeChallengesLiveData(challengesLiveData);
-        });
+        setFilter(ChallengeFilter.ACTIVE);
     }
     
     /**
      * 加载已完成的挑战任务
      */
     public void loadCompletedChallenges() {
-        isLoading.setValue(true);
-        
-        Executors.newSingleThreadExecutor().execute(() -> {
-            LiveData<List<Challenge>> challengesLiveData = database.challengeDao().getCompletedChallenges();
-            
-            // 观察LiveData变化
-            observeChallengesLiveData(challengesLiveData);
-        });
+        setFilter(ChallengeFilter.COMPLETED);
     }
     
     /**
      * 按类型加载挑战任务
      */
     public void loadChallengesByType(String type) {
-        isLoading.setValue(true);
-        
-        Executors.newSingleThreadExecutor().execute(() -> {
-            LiveData<List<Challenge>> challengesLiveData = database.challengeDao().getChallengesByType(type);
-            
-            // 观察LiveData变化
-            observeChallengesLiveData(challengesLiveData);
-        });
+        setFilter(ChallengeFilter.byType(type));
     }
     
     /**
-     * 观察挑战任务LiveData变化
+     * 切换筛选条件
+     * 条件未变化时不重新查询
      */
-    private void observeChallengesLiveData(LiveData<List<Challenge>> challengesLiveData) {
-        // 在主线程中观察LiveData
-        android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
-        mainHandler.post(() -> {
-            challengesLiveData.observeForever(challengeList -> {
-                challenges.setValue(challengeList);
-                isLoading.setValue(false);
-            });
-        });
+    private void setFilter(ChallengeFilter filter) {
+        if (!filter.equals(currentFilter.getValue())) {
+            currentFilter.setValue(filter);
+        }
     }
     
     /**
      * 刷新挑战任务
+     * 挑战列表随数据表变化自动更新，这里重新执行当前查询并刷新用户数据
      */
     public void refreshChallenges() {
-        // 重新加载当前显示的挑战任务
-        loadAllChallenges();
+        loadUserData();
+        currentFilter.setValue(currentFilter.getValue());
     }
     
     /**
@@ -147,13 +196,16 @@ public class ChallengeViewModel extends AndroidViewModel {
         Executors.newSingleThreadExecutor().execute(() -> {
             database.challengeDao().delete(challenge);
             
-            // 刷新挑战任务列表
-            refreshChallenges();
+            // 挑战引擎重新加载进行中的挑战
+            ChallengeEngine.getInstance(getApplication()).invalidate();
+            
+            // 挑战列表由当前查询自动更新
         });
     }
     
     /**
      * 获取挑战任务列表
+     * 未加载的位置为null（占位符）
      */
     public LiveData<List<Challenge>> getChallenges() {
         return challenges;
@@ -193,4 +245,63 @@ public class ChallengeViewModel extends AndroidViewModel {
     public LiveData<Integer> getUserXpToNextLevel() {
         return userXpToNextLevel;
     }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (pager != null) {
+            pager.close();
+        }
+    }
+    
+    /**
+     * 挑战任务筛选条件
+     * 作为查询切换和结果缓存的键
+     */
+    public static final class ChallengeFilter {
+        
+        public enum Kind {
+            ALL,
+            ACTIVE,
+            COMPLETED,
+            TYPE
+        }
+        
+        public static final ChallengeFilter ALL = new ChallengeFilter(Kind.ALL, null);
+        public static final ChallengeFilter ACTIVE = new ChallengeFilter(Kind.ACTIVE, null);
+        public static final ChallengeFilter COMPLETED = new ChallengeFilter(Kind.COMPLETED, null);
+        
+        private final Kind kind;
+        private final String type;
+        
+        private ChallengeFilter(Kind kind, String type) {
+            this.kind = kind;
+            this.type = type;
+        }
+        
+        public static ChallengeFilter byType(String type) {
+            return new ChallengeFilter(Kind.TYPE, type);
+        }
+        
+        public Kind getKind() {
+            return kind;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChallengeFilter)) return false;
+            ChallengeFilter that = (ChallengeFilter) o;
+            return kind == that.kind && Objects.equals(type, that.type);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, type);
+        }
+    }
 }
@@ -6,11 +6,9 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.example.footprintexplorer.data.database.FootprintDatabase;
-import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.services.TrackingSessionManager;
 
 import java.util.Date;
-import java.util.concurrent.Executors;
 
 /**
  * 主视图模型
@@ -18,30 +16,24 @@ import java.util.concurrent.Executors;
  */
 public class MainViewModel extends AndroidViewModel {
 
-    private FootprintDatabase database;
+    private TrackingSessionManager sessionManager;
     private MutableLiveData<Boolean> isTracking = new MutableLiveData<>(false);
     private MutableLiveData<Boolean> permissionsGranted = new MutableLiveData<>(false);
     private MutableLiveData<Long> currentSessionId = new MutableLiveData<>(-1L);
 
     public MainViewModel(Application application) {
         super(application);
-        database = FootprintDatabase.getInstance(application);
+        sessionManager = TrackingSessionManager.getInstance(application);
     }
 
     /**
      * 创建新的追踪会话
+     * 会话ID由会话管理器同步分配，返回值即为新会话的真实ID
      */
     public long createNewSession(boolean isManual) {
-        TrackingSession session = new TrackingSession("足迹记录 " + new Date(), new Date());
-        session.setManualRecording(isManual);
-        
-        // 在后台线程中插入会话
-        Executors.newSingleThreadExecutor().execute(() -> {
-            long sessionId = database.trackingSessionDao().insert(session);
-            currentSessionId.postValue(sessionId);
-        });
-        
-        return currentSessionId.getValue() != null ? currentSessionId.getValue() : -1;
+        long sessionId = sessionManager.startSession("足迹记录 " + new Date(), isManual);
+        currentSessionId.setValue(sessionId);
+        return sessionId;
     }
 
     /**
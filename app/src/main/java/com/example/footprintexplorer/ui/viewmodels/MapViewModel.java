@@ -2,21 +2,27 @@ package com.example.footprintexplorer.ui.viewmodels;
 
 import android.app.Application;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Transformations;
+import androidx.room.InvalidationTracker;
 
 import com.example.footprintexplorer.data.database.FootprintDatabase;
-import com.example.footprintexplorer.data.entity.LocationRecord;
 import com.example.footprintexplorer.data.entity.Place;
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+import com.example.footprintexplorer.data.projection.LocationPoint;
+import com.example.footprintexplorer.utils.TrackBuffer;
 import com.google.android.gms.maps.model.LatLng;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 地图视图模型
@@ -24,64 +30,71 @@ import java.util.concurrent.Executors;
  */
 public class MapViewModel extends AndroidViewModel {
 
+    // 绘制前的简化容差（米），远小于常用缩放级别下一个像素对应的距离
+    private static final double RENDER_TOLERANCE = 2;
+
     private FootprintDatabase database;
-    private MutableLiveData<String> currentFilter = new MutableLiveData<>("all");
-    private MutableLiveData<Date> selectedDate = new MutableLiveData<>(new Date());
-    private LiveData<List<LocationRecord>> locationRecords;
-    private MutableLiveData<List<LatLng>> tracks = new MutableLiveData<>(new ArrayList<>());
+    private LocationPartitionRouter router;
+    private String currentFilter = "all";
+    private Date selectedDate = new Date();
+    private MutableLiveData<TrackBuffer> tracks = new MutableLiveData<>(new TrackBuffer());
     private LiveData<List<Place>> places;
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "map-track"));
+    private final AtomicBoolean loadPending = new AtomicBoolean(false);
+    private final InvalidationTracker.Observer locationObserver;
 
     public MapViewModel(Application application) {
         super(application);
         database = FootprintDatabase.getInstance(application);
+        router = LocationPartitionRouter.getInstance(application);
         
-        // 初始化位置记录数据
-        initLocationRecords();
+        // 位置记录变化时重新加载轨迹
+        locationObserver = new InvalidationTracker.Observer("location_records") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                loadTracks();
+            }
+        };
+        database.getInvalidationTracker().addObserver(locationObserver);
+        loadTracks();
         
         // 初始化地点数据
         initPlaces();
     }
 
     /**
-     * 初始化位置记录数据
+     * 在后台加载当前范围的轨迹
+     * 追踪时位置记录频繁变化，尚未开始的加载只保留一次
      */
-    private void initLocationRecords() {
-        // 根据过滤器获取位置记录
-        locationRecords = Transformations.switchMap(currentFilter, filter -> {
-            Date startDate = getStartDateForFilter(filter);
-            Date endDate = new Date(); // 当前时间
-            
-            if (startDate != null) {
-                return database.locationDao().getLocationsBetween(startDate, endDate);
-            } else {
-                // 使用选择的日期
-                return Transformations.switchMap(selectedDate, date -> {
+    private void loadTracks() {
+        if (!loadPending.compareAndSet(false, true)) {
+            return;
+        }
+        submit(() -> {
+            loadPending.set(false);
+            Date startDate;
+            Date endDate;
+            synchronized (this) {
+                startDate = getStartDateForFilter(currentFilter);
+                endDate = new Date(); // 当前时间
+                if (startDate == null) {
+                    // 使用选择的日期
                     Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(date);
+                    calendar.setTime(selectedDate);
                     calendar.set(Calendar.HOUR_OF_DAY, 0);
                     calendar.set(Calendar.MINUTE, 0);
                     calendar.set(Calendar.SECOND, 0);
-                    Date start = calendar.getTime();
+                    startDate = calendar.getTime();
                     
                     calendar.set(Calendar.HOUR_OF_DAY, 23);
                     calendar.set(Calendar.MINUTE, 59);
                     calendar.set(Calendar.SECOND, 59);
-                    Date end = calendar.getTime();
-                    
-                    return database.locationDao().getLocationsBetween(start, end);
-                });
-            }
-        });
-        
-        // 将位置记录转换为轨迹点
-        locationRecords.observeForever(records -> {
-            if (records != null) {
-                List<LatLng> points = new ArrayList<>();
-                for (LocationRecord record : records) {
-                    points.add(new LatLng(record.getLatitude(), record.getLongitude()));
+                    endDate = calendar.getTime();
                 }
-                tracks.postValue(points);
             }
+            TrackBuffer track = router.getTrack(startDate.getTime(), endDate.getTime());
+            track.simplify(RENDER_TOLERANCE);
+            tracks.postValue(track);
         });
     }
     
@@ -127,21 +140,28 @@ public class MapViewModel extends AndroidViewModel {
      * 设置过滤器
      */
     public void filterTracks(String filter) {
-        currentFilter.setValue(filter != null ? filter : "all");
+        synchronized (this) {
+            currentFilter = filter != null ? filter : "all";
+        }
+        loadTracks();
     }
     
     /**
      * 设置选择的日期
      */
     public void setSelectedDate(Date date) {
-        selectedDate.setValue(date);
-        currentFilter.setValue(null); // 清除预定义过滤器
+        synchronized (this) {
+            selectedDate = date;
+            currentFilter = null; // 清除预定义过滤器
+        }
+        loadTracks();
     }
     
     /**
      * 获取轨迹数据
+     * 每次加载发布新的缓冲区，已发布的缓冲区不再修改
      */
-    public LiveData<List<LatLng>> getTracks() {
+    public LiveData<TrackBuffer> getTracks() {
         return tracks;
     }
     
@@ -156,15 +176,9 @@ public class MapViewModel extends AndroidViewModel {
      * 获取当前位置
      */
     public void getCurrentLocation(OnLocationReadyCallback callback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            LocationRecord lastLocation = null;
-            
-            // 获取最新的位置记录
-            List<TrackingSession> sessions = database.trackingSessionDao().getAllSessions().getValue();
-            if (sessions != null && !sessions.isEmpty()) {
-                TrackingSession latestSession = sessions.get(0);
-                lastLocation = database.locationDao().getLastLocationBySession(latestSession.getId());
-            }
+        submit(() -> {
+            // 只读取最新位置点的坐标
+            LocationPoint lastLocation = database.locationDao().getLatestPoint();
             
             if (lastLocation != null) {
                 LatLng location = new LatLng(lastLocation.getLatitude(), lastLocation.getLongitude());
@@ -175,6 +189,25 @@ public class MapViewModel extends AndroidViewModel {
         });
     }
     
+    /**
+     * 提交后台任务
+     * ViewModel清除后执行器已关闭，之后到达的请求（如界面销毁前最后一次定位）直接丢弃
+     */
+    private void submit(Runnable task) {
+        try {
+            loadExecutor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // 已清除，没有观察者需要结果
+        }
+    }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        database.getInvalidationTracker().removeObserver(locationObserver);
+        loadExecutor.shutdown();
+    }
+    
     /**
      * 位置准备回调接口
      */
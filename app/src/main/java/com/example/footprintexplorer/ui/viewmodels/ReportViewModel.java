@@ -7,8 +7,10 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.footprintexplorer.data.database.FootprintDatabase;
-import com.example.footprintexplorer.data.entity.LocationRecord;
 import com.example.footprintexplorer.data.entity.Place;
+import com.example.footprintexplorer.data.projection.SessionSummary;
+import com.example.footprintexplorer.events.DomainEvent;
+import com.example.footprintexplorer.events.DomainEventBus;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -28,6 +30,7 @@ public class ReportViewModel extends AndroidViewModel {
     private MutableLiveData<Integer> totalBadges = new MutableLiveData<>(0);
     private MutableLiveData<List<Float>> weeklyDistances = new MutableLiveData<>(new ArrayList<>());
     private MutableLiveData<List<Integer>> placeTypeCount = new MutableLiveData<>(new ArrayList<>());
+    private DomainEventBus.Subscription statisticsSubscription;
 
     public ReportViewModel(Application application) {
         super(application);
@@ -35,66 +38,60 @@ public class ReportViewModel extends AndroidViewModel {
         
         // 初始化数据
         loadStatistics();
+        
+        // 统计只在会话结束或解锁地点、徽章后刷新，一批事件只刷新一次；
+        // 刷新总是重新查询数据库，积压时丢弃旧事件不影响结果
+        statisticsSubscription = DomainEventBus.getInstance().subscribeDropOldest(
+                events -> refreshStatistics(), 16, DomainEventBus.DEFAULT_MAX_BATCH,
+                DomainEvent.Type.SESSION_ENDED,
+                DomainEvent.Type.PLACE_UNLOCKED,
+                DomainEvent.Type.BADGE_UNLOCKED);
     }
 
     /**
      * 加载统计数据
      */
     private void loadStatistics() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            // 计算总距离
-            float distance = calculateTotalDistance();
-            totalDistance.postValue(distance);
-            
-            // 获取地点总数
-            int places = database.placeDao().getPlaceCount();
-            totalPlaces.postValue(places);
-            
-            // 获取徽章总数
-            int badges = database.badgeDao().getUnlockedBadgesCount();
-            totalBadges.postValue(badges);
-            
-            // 获取每周距离
-            List<Float> distances = calculateWeeklyDistances();
-            weeklyDistances.postValue(distances);
-            
-            // 获取地点类型统计
-            List<Integer> typeCounts = calculatePlaceTypeCounts();
-            placeTypeCount.postValue(typeCounts);
-        });
+        Executors.newSingleThreadExecutor().execute(this::refreshStatistics);
     }
     
     /**
-     * 计算总距离
+     * 刷新统计数据
+     * 需在后台线程调用
      */
-    private float calculateTotalDistance() {
-        float totalDistance = 0;
-        List<LocationRecord> records = database.locationDao().getAllLocations();
+    private void refreshStatistics() {
+        // 计算总距离
+        float distance = calculateTotalDistance();
+        totalDistance.postValue(distance);
         
-        if (records.size() < 2) {
-            return totalDistance;
-        }
+        // 获取地点总数
+        int places = database.placeDao().getPlaceCount();
+        totalPlaces.postValue(places);
         
-        for (int i = 1; i < records.size(); i++) {
-            LocationRecord prev = records.get(i - 1);
-            LocationRecord curr = records.get(i);
-            
-            // 如果是同一个会话的记录，计算距离
-            if (prev.getSessionId() == curr.getSessionId()) {
-                float[] results = new float[1];
-                android.location.Location.distanceBetween(
-                        prev.getLatitude(), prev.getLongitude(),
-                        curr.getLatitude(), curr.getLongitude(),
-                        results);
-                totalDistance += results[0];
-            }
-        }
+        // 获取徽章总数
+        int badges = database.badgeDao().getUnlockedBadgesCount();
+        totalBadges.postValue(badges);
         
-        return totalDistance;
+        // 获取每周距离
+        List<Float> distances = calculateWeeklyDistances();
+        weeklyDistances.postValue(distances);
+        
+        // 获取地点类型统计
+        List<Integer> typeCounts = calculatePlaceTypeCounts();
+        placeTypeCount.postValue(typeCounts);
+    }
+    
+    /**
+     * 计算总距离
+     * 直接汇总会话表中增量维护的距离，无需扫描位置记录
+     */
+    private float calculateTotalDistance() {
+        return (float) database.trackingSessionDao().getTotalDistance();
     }
     
     /**
      * 计算每周距离
+     * 按会话开始时间归入每周的某一天
      */
     private List<Float> calculateWeeklyDistances() {
         List<Float> distances = new ArrayList<>();
@@ -118,36 +115,21 @@ public class ReportViewModel extends AndroidViewModel {
         calendar.set(Calendar.SECOND, 59);
         Date weekEnd = calendar.getTime();
         
-        // 获取本周的位置记录
-        List<LocationRecord> records = database.locationDao().getLocationsBetween(weekStart, weekEnd);
+        // 获取本周的追踪会话
+        List<SessionSummary> sessions = database.trackingSessionDao().getSessionSummariesBetween(weekStart.getTime(),
+                weekEnd.getTime());
         
-        if (records.size() < 2) {
-            return distances;
-        }
-        
-        for (int i = 1; i < records.size(); i++) {
-            LocationRecord prev = records.get(i - 1);
-            LocationRecord curr = records.get(i);
-            
-            // 如果是同一个会话的记录，计算距离
-            if (prev.getSessionId() == curr.getSessionId()) {
-                float[] results = new float[1];
-                android.location.Location.distanceBetween(
-                        prev.getLatitude(), prev.getLongitude(),
-                        curr.getLatitude(), curr.getLongitude(),
-                        results);
-                
-                // 确定记录属于周几
-                Calendar recordCal = Calendar.getInstance();
-                recordCal.setTime(curr.getTimestamp());
-                int dayOfWeek = recordCal.get(Calendar.DAY_OF_WEEK) - recordCal.getFirstDayOfWeek();
-                if (dayOfWeek < 0) {
-                    dayOfWeek += 7;
-                }
-                
-                // 累加距离
-                distances.set(dayOfWeek, distances.get(dayOfWeek) + results[0]);
+        Calendar sessionCal = Calendar.getInstance();
+        for (SessionSummary session : sessions) {
+            // 确定会话属于周几
+            sessionCal.setTimeInMillis(session.getStartTime());
+            int dayOfWeek = sessionCal.get(Calendar.DAY_OF_WEEK) - sessionCal.getFirstDayOfWeek();
+            if (dayOfWeek < 0) {
+                dayOfWeek += 7;
             }
+            
+            // 累加距离
+            distances.set(dayOfWeek, distances.get(dayOfWeek) + (float) session.getTotalDistance());
         }
         
         return distances;
@@ -305,27 +287,9 @@ public class ReportViewModel extends AndroidViewModel {
     private ReportData generateReportData(Date startDate, Date endDate) {
         ReportData reportData = new ReportData();
         
-        // 获取时间段内的位置记录
-        List<LocationRecord> records = database.locationDao().getLocationsBetween(startDate, endDate);
-        
-        // 计算总距离
-        float totalDistance = 0;
-        if (records.size() >= 2) {
-            for (int i = 1; i < records.size(); i++) {
-                LocationRecord prev = records.get(i - 1);
-                LocationRecord curr = records.get(i);
-                
-                // 如果是同一个会话的记录，计算距离
-                if (prev.getSessionId() == curr.getSessionId()) {
-                    float[] results = new float[1];
-                    android.location.Location.distanceBetween(
-                            prev.getLatitude(), prev.getLongitude(),
-                            curr.getLatitude(), curr.getLongitude(),
-                            results);
-                    totalDistance += results[0];
-                }
-            }
-        }
+        // 汇总时间段内会话的距离
+        float totalDistance = (float) database.trackingSessionDao().getTotalDistanceBetween(startDate.getTime(),
+                endDate.getTime());
         reportData.setTotalDistance(totalDistance);
         
         // 获取时间段内解锁的地点
@@ -372,6 +336,12 @@ public class ReportViewModel extends AndroidViewModel {
         }
     }
     
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        DomainEventBus.getInstance().unsubscribe(statisticsSubscription);
+    }
+    
     /**
      * 报告生成回调接口
      */
@@ -5,11 +5,12 @@ import android.app.Application;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.work.WorkInfo;
 
 import com.example.footprintexplorer.data.database.FootprintDatabase;
 import com.example.footprintexplorer.data.entity.User;
+import com.example.footprintexplorer.services.ClearDataWorker;
 
-import java.util.Date;
 import java.util.concurrent.Executors;
 
 /**
@@ -130,38 +131,11 @@ public class SettingsViewModel extends AndroidViewModel {
     
     /**
      * 清除所有数据
+     * 在后台任务中分块删除，正在记录的会话保留
+     * @return 任务状态，进度见{@link ClearDataWorker#KEY_PROGRESS}
      */
-    public void clearAllData() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            // 清除位置记录
-            database.locationDao().deleteAllLocations();
-            
-            // 清除追踪会话
-            database.trackingSessionDao().deleteAllSessions();
-            
-            // 清除地点
-            database.placeDao().deleteAllPlaces();
-            
-            // 清除徽章
-            database.badgeDao().deleteAllBadges();
-            
-            // 清除挑战
-            database.challengeDao().deleteAllChallenges();
-            
-            // 重置用户数据
-            User user = database.userDao().getUserByIdSync(1);
-            if (user != null) {
-                user.setTotalDistance(0);
-                user.setTotalPlaces(0);
-                user.setTotalBadges(0);
-                user.setTotalChallenges(0);
-                user.setXp(0);
-                user.setLevel(1);
-                user.setXpToNextLevel(100);
-                user.setLastActiveDate(new Date());
-                database.userDao().update(user);
-            }
-        });
+    public LiveData<WorkInfo> clearAllData() {
+        return ClearDataWorker.enqueue(getApplication());
     }
     
     /**
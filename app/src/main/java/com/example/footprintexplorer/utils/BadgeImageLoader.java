@@ -0,0 +1,412 @@
+package com.example.footprintexplorer.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.example.footprintexplorer.R;
+import com.example.footprintexplorer.data.entity.Badge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 徽章图片加载器
+ * 各类别（美食/文物/动物）的默认徽章只绘制一次，合成为一张精灵图，
+ * 列表项通过绘制精灵图中的区域显示，滚动时不分配新的位图。
+ * 自定义徽章图片按目标尺寸解码，不透明图片使用RGB_565，解码结果保存在
+ * 按字节数限制大小的LRU缓存中，由徽章列表、徽章页面和分享共用。
+ */
+public class BadgeImageLoader {
+
+    private static final String TAG = "BadgeImageLoader";
+
+    // 列表中徽章缩略图的尺寸（dp），与item_badge布局一致
+    public static final int THUMBNAIL_SIZE_DP = 80;
+
+    // 分享图片的尺寸（像素）
+    public static final int SHARE_SIZE = 512;
+
+    // 精灵图中的类别行，最后一行为未知类别的占位图
+    private static final String[] ATLAS_CATEGORIES = {"美食", "文物", "动物"};
+    private static final int[] ATLAS_DRAWABLES = {
+            R.drawable.badge_food,
+            R.drawable.badge_culture,
+            R.drawable.badge_animal,
+            R.drawable.badge_placeholder
+    };
+
+    // 精灵图中的等级列：已解锁、未解锁（灰度）
+    private static final int TIER_UNLOCKED = 0;
+    private static final int TIER_LOCKED = 1;
+    private static final int TIER_COUNT = 2;
+
+    // 视图标签：表示该视图上有进行中的Glide请求
+    private static final Object GLIDE_REQUEST = new Object();
+
+    private static volatile BadgeImageLoader instance;
+
+    private final Context context;
+    private final int thumbnailSize;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService decodeExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Bitmap atlas;
+
+    private BadgeImageLoader(Context context) {
+        this.context = context.getApplicationContext();
+        this.thumbnailSize = Math.round(THUMBNAIL_SIZE_DP * this.context.getResources().getDisplayMetrics().density);
+
+        // 缓存上限为最大堆内存的1/16，按位图实际占用的字节数计算
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 16, Integer.MAX_VALUE);
+        this.memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+        this.decodeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "badge-decoder"));
+    }
+
+    /**
+     * 获取单例实例
+     * @param context 上下文
+     * @return 徽章图片加载器
+     */
+    public static BadgeImageLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BadgeImageLoader.class) {
+                if (instance == null) {
+                    instance = new BadgeImageLoader(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 将徽章图片显示到ImageView
+     * 需在主线程调用；视图被复用时，先前未完成的加载结果会被丢弃
+     */
+    public void loadInto(ImageView imageView, Badge badge) {
+        String imageUrl = badge.getImageUrl();
+        Drawable categoryDrawable = getCategoryDrawable(badge.getCategory(), badge.isUnlocked());
+
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            clearPending(imageView);
+            imageView.setImageDrawable(categoryDrawable);
+            return;
+        }
+
+        if (isRemote(imageUrl)) {
+            // 网络图片交给Glide下载，按目标尺寸解码，结果由Glide的内存缓存管理
+            imageView.setTag(R.id.image_badge, GLIDE_REQUEST);
+            Glide.with(imageView)
+                    .load(imageUrl)
+                    .override(thumbnailSize)
+                    .format(DecodeFormat.PREFER_RGB_565)
+                    .dontAnimate()
+                    .placeholder(categoryDrawable)
+                    .error(categoryDrawable)
+                    .into(imageView);
+            return;
+        }
+
+        clearPending(imageView);
+        String key = cacheKey(imageUrl, thumbnailSize);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+
+        imageView.setImageDrawable(categoryDrawable);
+        imageView.setTag(R.id.image_badge, key);
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = decodeLocal(imageUrl, thumbnailSize);
+            if (bitmap == null) {
+                return;
+            }
+            memoryCache.put(key, bitmap);
+            mainHandler.post(() -> {
+                if (key.equals(imageView.getTag(R.id.image_badge))) {
+                    imageView.setTag(R.id.image_badge, null);
+                    imageView.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    /**
+     * 显示占位图
+     * 用于尚未加载的分页位置
+     */
+    public void loadPlaceholder(ImageView imageView) {
+        clearPending(imageView);
+        imageView.setImageDrawable(getCategoryDrawable(null, true));
+    }
+
+    /**
+     * 获取类别默认徽章
+     * 返回绘制精灵图区域的轻量Drawable，不分配位图
+     */
+    public Drawable getCategoryDrawable(String category, boolean unlocked) {
+        return new AtlasRegionDrawable(getAtlas(), categoryRow(category),
+                unlocked ? TIER_UNLOCKED : TIER_LOCKED, thumbnailSize);
+    }
+
+    /**
+     * 生成用于分享的徽章图片
+     * 解码在后台线程执行，回调在主线程调用
+     */
+    public void loadShareBitmap(Badge badge, OnBitmapLoadedListener listener) {
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = null;
+            String imageUrl = badge.getImageUrl();
+            if (imageUrl != null && !imageUrl.isEmpty()) {
+                if (isRemote(imageUrl)) {
+                    try {
+                        bitmap = Glide.with(context)
+                                .asBitmap()
+                                .load(imageUrl)
+                                .submit(SHARE_SIZE, SHARE_SIZE)
+                                .get();
+                    } catch (Exception e) {
+                        Log.e(TAG, "下载徽章图片失败: " + e.getMessage());
+                    }
+                } else {
+                    String key = cacheKey(imageUrl, SHARE_SIZE);
+                    bitmap = memoryCache.get(key);
+                    if (bitmap == null) {
+                        bitmap = decodeLocal(imageUrl, SHARE_SIZE);
+                        if (bitmap != null) {
+                            memoryCache.put(key, bitmap);
+                        }
+                    }
+                }
+            }
+            if (bitmap == null) {
+                bitmap = renderCategory(badge.getCategory(), badge.isUnlocked(), SHARE_SIZE);
+            }
+            Bitmap result = bitmap;
+            mainHandler.post(() -> listener.onBitmapLoaded(result));
+        });
+    }
+
+    /**
+     * 清空解码缓存，内存紧张时调用
+     */
+    public void trimMemory() {
+        memoryCache.evictAll();
+    }
+
+    /**
+     * 获取精灵图，首次调用时绘制
+     * 每个类别一行，每个等级一列，单元格为缩略图尺寸
+     */
+    private synchronized Bitmap getAtlas() {
+        if (atlas != null) {
+            return atlas;
+        }
+
+        Drawable[] drawables = new Drawable[ATLAS_DRAWABLES.length];
+        boolean opaque = true;
+        for (int i = 0; i < ATLAS_DRAWABLES.length; i++) {
+            drawables[i] = ContextCompat.getDrawable(context, ATLAS_DRAWABLES[i]);
+            opaque &= drawables[i].getOpacity() == PixelFormat.OPAQUE;
+        }
+
+        // 所有类别图片都不透明时使用RGB_565，占用内存减半
+        atlas = Bitmap.createBitmap(thumbnailSize * TIER_COUNT, thumbnailSize * drawables.length,
+                opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+
+        ColorMatrix grayscale = new ColorMatrix();
+        grayscale.setSaturation(0);
+        ColorFilter lockedFilter = new ColorMatrixColorFilter(grayscale);
+
+        for (int row = 0; row < drawables.length; row++) {
+            Drawable drawable = drawables[row].mutate();
+            int top = row * thumbnailSize;
+            for (int tier = 0; tier < TIER_COUNT; tier++) {
+                int left = tier * thumbnailSize;
+                drawable.setBounds(left, top, left + thumbnailSize, top + thumbnailSize);
+                drawable.setColorFilter(tier == TIER_LOCKED ? lockedFilter : null);
+                drawable.draw(canvas);
+            }
+        }
+        Log.d(TAG, "徽章精灵图已生成: " + atlas.getWidth() + "x" + atlas.getHeight() + ", " + atlas.getConfig());
+        return atlas;
+    }
+
+    /**
+     * 将类别默认徽章绘制为独立位图，用于分享
+     */
+    private Bitmap renderCategory(String category, boolean unlocked, int size) {
+        Bitmap atlasBitmap = getAtlas();
+        Bitmap bitmap = Bitmap.createBitmap(size, size, atlasBitmap.getConfig());
+        Drawable drawable = new AtlasRegionDrawable(atlasBitmap, categoryRow(category),
+                unlocked ? TIER_UNLOCKED : TIER_LOCKED, size);
+        drawable.setBounds(0, 0, size, size);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    /**
+     * 按目标尺寸解码本地图片
+     * 先读取尺寸计算采样率，再以RGB_565解码（带透明通道的图片系统会自动使用ARGB_8888），
+     * 最后缩放到精确尺寸
+     */
+    @Nullable
+    private Bitmap decodeLocal(String imageUrl, int targetSize) {
+        Uri uri = imageUrl.contains("://") ? Uri.parse(imageUrl) : Uri.fromFile(new File(imageUrl));
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                BitmapFactory.decodeStream(in, null, options);
+            }
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+
+            int sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= targetSize
+                    && options.outHeight / (sampleSize * 2) >= targetSize) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+
+            Bitmap decoded;
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                decoded = BitmapFactory.decodeStream(in, null, options);
+            }
+            if (decoded == null || (decoded.getWidth() == targetSize && decoded.getHeight() == targetSize)) {
+                return decoded;
+            }
+
+            // 居中裁剪到精确尺寸，与列表中的centerCrop一致
+            int side = Math.min(decoded.getWidth(), decoded.getHeight());
+            Bitmap scaled = Bitmap.createBitmap(targetSize, targetSize, decoded.getConfig());
+            Rect src = new Rect((decoded.getWidth() - side) / 2, (decoded.getHeight() - side) / 2,
+                    (decoded.getWidth() + side) / 2, (decoded.getHeight() + side) / 2);
+            new Canvas(scaled).drawBitmap(decoded, src, new Rect(0, 0, targetSize, targetSize),
+                    new Paint(Paint.FILTER_BITMAP_FLAG));
+            decoded.recycle();
+            return scaled;
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "解码徽章图片失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 丢弃视图上未完成的加载
+     */
+    private void clearPending(ImageView imageView) {
+        if (imageView.getTag(R.id.image_badge) == GLIDE_REQUEST) {
+            Glide.with(imageView).clear(imageView);
+        }
+        imageView.setTag(R.id.image_badge, null);
+    }
+
+    private static boolean isRemote(String imageUrl) {
+        return imageUrl.startsWith("http://") || imageUrl.startsWith("https://");
+    }
+
+    private static String cacheKey(String imageUrl, int size) {
+        return imageUrl + "@" + size;
+    }
+
+    private static int categoryRow(String category) {
+        for (int i = 0; i < ATLAS_CATEGORIES.length; i++) {
+            if (ATLAS_CATEGORIES[i].equals(category)) {
+                return i;
+            }
+        }
+        return ATLAS_CATEGORIES.length;
+    }
+
+    /**
+     * 位图加载回调
+     */
+    public interface OnBitmapLoadedListener {
+        void onBitmapLoaded(Bitmap bitmap);
+    }
+
+    /**
+     * 绘制精灵图中一个单元格的Drawable
+     * 多个实例共享同一张精灵图
+     */
+    private static class AtlasRegionDrawable extends Drawable {
+        private final Bitmap atlas;
+        private final Rect src;
+        private final int intrinsicSize;
+        private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        AtlasRegionDrawable(Bitmap atlas, int row, int tier, int intrinsicSize) {
+            this.atlas = atlas;
+            int cell = atlas.getWidth() / TIER_COUNT;
+            this.src = new Rect(tier * cell, row * cell, (tier + 1) * cell, (row + 1) * cell);
+            this.intrinsicSize = intrinsicSize;
+        }
+
+        @Override
+        public void draw(@NonNull Canvas canvas) {
+            canvas.drawBitmap(atlas, src, getBounds(), paint);
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            paint.setAlpha(alpha);
+            invalidateSelf();
+        }
+
+        @Override
+        public void setColorFilter(@Nullable ColorFilter colorFilter) {
+            paint.setColorFilter(colorFilter);
+            invalidateSelf();
+        }
+
+        @Override
+        public int getOpacity() {
+            return atlas.hasAlpha() ? PixelFormat.TRANSLUCENT : PixelFormat.OPAQUE;
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return intrinsicSize;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return intrinsicSize;
+        }
+    }
+}
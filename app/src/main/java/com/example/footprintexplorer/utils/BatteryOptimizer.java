@@ -2,9 +2,6 @@ package com.example.footprintexplorer.utils;
 
 import android.content.Context;
 import android.location.Location;
-import android.os.BatteryManager;
-import android.os.Build;
-import android.util.Log;
 
 /**
  * 电池优化工具类
@@ -12,8 +9,6 @@ import android.util.Log;
  */
 public class BatteryOptimizer {
     
-    private static final String TAG = "BatteryOptimizer";
-    
     // 电池电量阈值，低于此值时启用省电模式
     private static final int LOW_BATTERY_THRESHOLD = 20;
     
@@ -40,8 +35,24 @@ public class BatteryOptimizer {
      * @return 电池状态
      */
     public static BatteryState getBatteryState(Context context) {
-        int batteryLevel = getBatteryLevel(context);
+        return getBatteryState(BatteryStateProvider.getInstance(context).getSnapshot());
+    }
+    
+    /**
+     * 根据电池快照计算电池状态
+     * 充电时按高电量处理，系统省电模式下按低电量处理
+     * @param snapshot 电池快照
+     * @return 电池状态
+     */
+    public static BatteryState getBatteryState(BatteryStateProvider.BatterySnapshot snapshot) {
+        if (snapshot.isCharging()) {
+            return BatteryState.HIGH;
+        }
+        if (snapshot.isPowerSaveMode()) {
+            return BatteryState.LOW;
+        }
         
+        int batteryLevel = snapshot.getLevel();
         if (batteryLevel >= 70) {
             return BatteryState.HIGH;
         } else if (batteryLevel >= LOW_BATTERY_THRESHOLD) {
@@ -53,25 +64,12 @@ public class BatteryOptimizer {
     
     /**
      * 获取电池电量
+     * 读取BatteryStateProvider缓存的快照，不再每次通过BatteryManager查询
      * @param context 上下文
      * @return 电池电量百分比
      */
     public static int getBatteryLevel(Context context) {
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                BatteryManager batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
-                if (batteryManager != null) {
-                    return batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
-                }
-            }
-            
-            // 对于较旧的Android版本，可以通过广播获取电池信息
-            // 这里简化处理，返回默认值
-            return 50;
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting battery level: " + e.getMessage());
-            return 50; // 默认返回中等电量
-        }
+        return BatteryStateProvider.getInstance(context).getSnapshot().getLevel();
     }
     
     /**
@@ -80,8 +78,15 @@ public class BatteryOptimizer {
      * @return 位置更新间隔（毫秒）
      */
     public static long getOptimalLocationUpdateInterval(Context context) {
-        BatteryState state = getBatteryState(context);
-        
+        return getOptimalLocationUpdateInterval(getBatteryState(context));
+    }
+    
+    /**
+     * 根据指定电池状态获取位置更新间隔
+     * @param state 电池状态
+     * @return 位置更新间隔（毫秒）
+     */
+    public static long getOptimalLocationUpdateInterval(BatteryState state) {
         switch (state) {
             case HIGH:
                 return INTERVAL_HIGH_BATTERY;
@@ -100,8 +105,15 @@ public class BatteryOptimizer {
      * @return 位置更新距离（米）
      */
     public static float getOptimalLocationUpdateDistance(Context context) {
-        BatteryState state = getBatteryState(context);
-        
+        return getOptimalLocationUpdateDistance(getBatteryState(context));
+    }
+    
+    /**
+     * 根据指定电池状态获取位置更新距离
+     * @param state 电池状态
+     * @return 位置更新距离（米）
+     */
+    public static float getOptimalLocationUpdateDistance(BatteryState state) {
         switch (state) {
             case HIGH:
                 return DISTANCE_HIGH_BATTERY;
@@ -153,8 +165,10 @@ public class BatteryOptimizer {
      * @return 电池状态描述
      */
     public static String getBatteryStateDescription(Context context) {
-        BatteryState state = getBatteryState(context);
-        int level = getBatteryLevel(context);
+        // 只读取一次快照，保证电量与状态描述一致
+        BatteryStateProvider.BatterySnapshot snapshot = BatteryStateProvider.getInstance(context).getSnapshot();
+        BatteryState state = getBatteryState(snapshot);
+        int level = snapshot.getLevel();
         
         switch (state) {
             case HIGH:
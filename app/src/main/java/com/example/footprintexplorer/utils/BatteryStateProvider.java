@@ -0,0 +1,188 @@
+package com.example.footprintexplorer.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 电池状态提供者
+ * 通过粘性广播订阅一次电池与省电模式变化，向调用方提供缓存的电池快照，
+ * 避免在每个定位点上通过BatteryManager进行跨进程查询
+ */
+public class BatteryStateProvider {
+
+    private static final String TAG = "BatteryStateProvider";
+
+    private static volatile BatteryStateProvider instance;
+
+    private final Context appContext;
+    private final CopyOnWriteArrayList<OnBatteryStateChangedListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile BatterySnapshot snapshot;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_BATTERY_CHANGED.equals(action)) {
+                updateSnapshot(intent);
+            } else if (PowerManager.ACTION_POWER_SAVE_MODE_CHANGED.equals(action)) {
+                BatterySnapshot current = snapshot;
+                publish(new BatterySnapshot(current.getLevel(), current.isCharging(), readPowerSaveMode()));
+            }
+        }
+    };
+
+    private BatteryStateProvider(Context context) {
+        this.appContext = context.getApplicationContext();
+        // 默认按中等电量处理，直到收到第一条广播
+        this.snapshot = new BatterySnapshot(50, false, readPowerSaveMode());
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+
+        // ACTION_BATTERY_CHANGED为粘性广播，注册时立即返回当前电池状态
+        Intent sticky = appContext.registerReceiver(receiver, filter);
+        if (sticky != null) {
+            updateSnapshot(sticky);
+        }
+    }
+
+    /**
+     * 获取单例实例，首次调用时注册广播接收器
+     * @param context 上下文
+     * @return 电池状态提供者
+     */
+    public static BatteryStateProvider getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BatteryStateProvider.class) {
+                if (instance == null) {
+                    instance = new BatteryStateProvider(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取当前电池快照，不产生任何系统调用
+     * @return 电池快照
+     */
+    public BatterySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 添加电池状态变化监听器
+     */
+    public void addListener(OnBatteryStateChangedListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * 移除电池状态变化监听器
+     */
+    public void removeListener(OnBatteryStateChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 根据电池广播更新快照
+     */
+    private void updateSnapshot(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+
+        BatterySnapshot current = snapshot;
+        int percent = (level >= 0 && scale > 0) ? Math.round(level * 100f / scale) : current.getLevel();
+        boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+
+        publish(new BatterySnapshot(percent, charging, current.isPowerSaveMode()));
+    }
+
+    /**
+     * 发布新快照，仅在电量、充电或省电状态真正变化时通知监听器
+     * （电池广播也会因温度、电压变化而频繁触发）
+     */
+    private void publish(BatterySnapshot next) {
+        BatterySnapshot previous = snapshot;
+        if (previous.equals(next)) {
+            return;
+        }
+        snapshot = next;
+        for (OnBatteryStateChangedListener listener : listeners) {
+            listener.onBatteryStateChanged(previous, next);
+        }
+    }
+
+    /**
+     * 读取系统省电模式状态，仅在注册时和省电模式广播到达时调用
+     */
+    private boolean readPowerSaveMode() {
+        try {
+            PowerManager powerManager = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+            return powerManager != null && powerManager.isPowerSaveMode();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading power save mode: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 电池快照
+     * 不可变对象，可在任意线程安全读取
+     */
+    public static final class BatterySnapshot {
+        private final int level;
+        private final boolean charging;
+        private final boolean powerSaveMode;
+
+        public BatterySnapshot(int level, boolean charging, boolean powerSaveMode) {
+            this.level = level;
+            this.charging = charging;
+            this.powerSaveMode = powerSaveMode;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public boolean isCharging() {
+            return charging;
+        }
+
+        public boolean isPowerSaveMode() {
+            return powerSaveMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BatterySnapshot)) return false;
+            BatterySnapshot that = (BatterySnapshot) o;
+            return level == that.level && charging == that.charging && powerSaveMode == that.powerSaveMode;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = level;
+            result = 31 * result + (charging ? 1 : 0);
+            result = 31 * result + (powerSaveMode ? 1 : 0);
+            return result;
+        }
+    }
+
+    /**
+     * 电池状态变化监听接口
+     */
+    public interface OnBatteryStateChangedListener {
+        void onBatteryStateChanged(BatterySnapshot previous, BatterySnapshot current);
+    }
+}
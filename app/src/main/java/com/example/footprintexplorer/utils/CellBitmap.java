@@ -0,0 +1,363 @@
+package com.example.footprintexplorer.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 网格单元位图
+ * 参照Roaring位图的分桶结构保存单元ID：高位作为桶键，每个桶保存低16位。
+ * 桶内元素不超过4096个时用有序short数组，超过后转为65536位的位图，
+ * 稀疏区域和密集区域都只占用与元素数量相当的内存。
+ * 单元ID按Z序编码（见GeoCells），相邻单元落在同一个桶中。非线程安全。
+ */
+public class CellBitmap {
+
+    // 数组桶转为位图桶的元素数量
+    private static final int ARRAY_LIMIT = 4096;
+
+    private static final int BITMAP_WORDS = 65536 / 64;
+
+    // 一个桶在每个方向上覆盖的单元数，低16位中纬度和经度各占8位
+    private static final int BLOCK_SPAN = 256;
+
+    private long[] keys = new long[4];
+    private Container[] containers = new Container[4];
+    private int size;
+    private long cardinality;
+
+    /**
+     * 添加单元
+     * @return 单元之前不在位图中时返回true
+     */
+    public boolean add(long cell) {
+        long key = cell >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        Container container = containers[index];
+        if (container.add((int) (cell & 0xFFFF))) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 移除单元，桶为空时一并移除
+     * @return 单元之前在位图中时返回true
+     */
+    public boolean remove(long cell) {
+        int index = Arrays.binarySearch(keys, 0, size, cell >>> 16);
+        if (index < 0 || !containers[index].remove((int) (cell & 0xFFFF))) {
+            return false;
+        }
+        cardinality--;
+        if (containers[index].count == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            size--;
+            containers[size] = null;
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含单元
+     */
+    public boolean contains(long cell) {
+        int index = Arrays.binarySearch(keys, 0, size, cell >>> 16);
+        return index >= 0 && containers[index].contains((int) (cell & 0xFFFF));
+    }
+
+    /**
+     * 单元数量
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * 并入另一个位图
+     */
+    public void addAll(CellBitmap other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * 按ID从小到大遍历全部单元
+     */
+    public void forEach(CellConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            long high = keys[i] << 16;
+            Container container = containers[i];
+            if (container.bitmap != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = container.bitmap[word];
+                    while (bits != 0) {
+                        consumer.accept(high | (word << 6) | Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            } else {
+                for (int j = 0; j < container.count; j++) {
+                    consumer.accept(high | (container.values[j] & 0xFFFF));
+                }
+            }
+        }
+    }
+
+    /**
+     * 统计矩形下标范围内的单元数量
+     * 只查看键落在范围Z序区间内的桶：整个桶在范围内时直接累加元素数量，
+     * 与范围不相交时跳过，只有跨边界的桶逐个检查单元，
+     * 耗时取决于已有的单元数量而不是范围面积
+     * @param fromRow 最小纬度下标
+     * @param toRow 最大纬度下标（含）
+     * @param fromColumn 最小经度下标
+     * @param toColumn 最大经度下标（含）
+     */
+    public long countInBox(int fromRow, int toRow, int fromColumn, int toColumn) {
+        if (fromRow > toRow || fromColumn > toColumn) {
+            return 0;
+        }
+        // Z序在每个方向上单调，范围内的单元ID都在两个角之间
+        long toKey = GeoCells.cellOf(toRow, toColumn) >>> 16;
+        int start = Arrays.binarySearch(keys, 0, size, GeoCells.cellOf(fromRow, fromColumn) >>> 16);
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        long count = 0;
+        for (int i = start; i < size && keys[i] <= toKey; i++) {
+            long high = keys[i] << 16;
+            int blockRow = GeoCells.latitudeIndexOf(high);
+            int blockColumn = GeoCells.longitudeIndexOf(high);
+            int blockLastRow = blockRow + BLOCK_SPAN - 1;
+            int blockLastColumn = blockColumn + BLOCK_SPAN - 1;
+            if (blockRow > toRow || blockLastRow < fromRow
+                    || blockColumn > toColumn || blockLastColumn < fromColumn) {
+                continue;
+            }
+            Container container = containers[i];
+            if (blockRow >= fromRow && blockLastRow <= toRow
+                    && blockColumn >= fromColumn && blockLastColumn <= toColumn) {
+                count += container.count;
+                continue;
+            }
+            if (container.bitmap != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = container.bitmap[word];
+                    while (bits != 0) {
+                        long cell = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+                        if (inBox(cell, fromRow, toRow, fromColumn, toColumn)) {
+                            count++;
+                        }
+                        bits &= bits - 1;
+                    }
+                }
+            } else {
+                for (int j = 0; j < container.count; j++) {
+                    if (inBox(high | (container.values[j] & 0xFFFF), fromRow, toRow, fromColumn, toColumn)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean inBox(long cell, int fromRow, int toRow, int fromColumn, int toColumn) {
+        int row = GeoCells.latitudeIndexOf(cell);
+        int column = GeoCells.longitudeIndexOf(cell);
+        return row >= fromRow && row <= toRow && column >= fromColumn && column <= toColumn;
+    }
+
+    /**
+     * 写出位图
+     */
+    public void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            Container container = containers[i];
+            output.writeLong(keys[i]);
+            output.writeInt(container.count);
+            if (container.bitmap != null) {
+                for (long word : container.bitmap) {
+                    output.writeLong(word);
+                }
+            } else {
+                for (int j = 0; j < container.count; j++) {
+                    output.writeShort(container.values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取writeTo写出的位图
+     */
+    public static CellBitmap readFrom(DataInputStream input) throws IOException {
+        CellBitmap bitmap = new CellBitmap();
+        int size = input.readInt();
+        bitmap.keys = new long[Math.max(size, 4)];
+        bitmap.containers = new Container[Math.max(size, 4)];
+        for (int i = 0; i < size; i++) {
+            Container container = new Container();
+            bitmap.keys[i] = input.readLong();
+            container.count = input.readInt();
+            if (container.count > ARRAY_LIMIT) {
+                container.values = null;
+                container.bitmap = new long[BITMAP_WORDS];
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    container.bitmap[word] = input.readLong();
+                }
+            } else {
+                container.values = new short[Math.max(container.count, 4)];
+                for (int j = 0; j < container.count; j++) {
+                    container.values[j] = input.readShort();
+                }
+            }
+            bitmap.containers[i] = container;
+            bitmap.cardinality += container.count;
+        }
+        bitmap.size = size;
+        return bitmap;
+    }
+
+    private void insertContainer(int index, long key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * 桶，保存单元ID的低16位
+     */
+    private static final class Container {
+
+        // 有序的低16位，按无符号比较；转为位图后为null
+        short[] values = new short[4];
+        long[] bitmap;
+        int count;
+
+        boolean add(int low) {
+            if (bitmap != null) {
+                long mask = 1L << low;
+                if ((bitmap[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bitmap[low >>> 6] |= mask;
+                count++;
+                return true;
+            }
+
+            int index = search(low);
+            if (index >= 0) {
+                return false;
+            }
+            if (count == ARRAY_LIMIT) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(count * 2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, index, values, index + 1, count - index);
+            values[index] = (short) low;
+            count++;
+            return true;
+        }
+
+        boolean remove(int low) {
+            if (bitmap != null) {
+                long mask = 1L << low;
+                if ((bitmap[low >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bitmap[low >>> 6] &= ~mask;
+                count--;
+                // 与readFrom的判断保持一致：不超过上限的桶按数组保存
+                if (count == ARRAY_LIMIT) {
+                    toArray();
+                }
+                return true;
+            }
+
+            int index = search(low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, count - index - 1);
+            count--;
+            return true;
+        }
+
+        boolean contains(int low) {
+            if (bitmap != null) {
+                return (bitmap[low >>> 6] & (1L << low)) != 0;
+            }
+            return search(low) >= 0;
+        }
+
+        private int search(int low) {
+            int from = 0;
+            int to = count - 1;
+            while (from <= to) {
+                int mid = (from + to) >>> 1;
+                int value = values[mid] & 0xFFFF;
+                if (value < low) {
+                    from = mid + 1;
+                } else if (value > low) {
+                    to = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(from + 1);
+        }
+
+        private void toBitmap() {
+            bitmap = new long[BITMAP_WORDS];
+            for (int i = 0; i < count; i++) {
+                int low = values[i] & 0xFFFF;
+                bitmap[low >>> 6] |= 1L << low;
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new short[ARRAY_LIMIT];
+            int index = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = bitmap[word];
+                while (bits != 0) {
+                    values[index++] = (short) ((word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            bitmap = null;
+        }
+    }
+
+    /**
+     * 单元遍历接口
+     */
+    public interface CellConsumer {
+        void accept(long cell);
+    }
+}
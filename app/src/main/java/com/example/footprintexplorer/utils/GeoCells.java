@@ -0,0 +1,105 @@
+package com.example.footprintexplorer.utils;
+
+/**
+ * 固定级别的地理网格单元
+ * 与geohash相同，把经度和纬度各等分为2^17份，两个下标按位交错（Z序）得到单元ID，
+ * 相当于35位精度的geohash前34位。单元南北约153米，东西约306米×cos(纬度)。
+ * Z序使相邻的单元ID数值相近，CellBitmap中一个桶覆盖256×256个相邻单元（数十公里见方）。
+ */
+public class GeoCells {
+
+    // 每个方向的划分位数
+    public static final int LEVEL_BITS = 17;
+
+    private static final int GRID = 1 << LEVEL_BITS;
+
+    /**
+     * 位置所在的单元ID
+     */
+    public static long cellOf(double latitude, double longitude) {
+        return cellOf(latitudeIndex(latitude), longitudeIndex(longitude));
+    }
+
+    /**
+     * 由纬度和经度下标得到单元ID
+     * 与geohash相同，经度占偶数位
+     */
+    public static long cellOf(int latitudeIndex, int longitudeIndex) {
+        return spread(longitudeIndex) << 1 | spread(latitudeIndex);
+    }
+
+    /**
+     * 单元的纬度下标，cellOf的逆运算
+     */
+    public static int latitudeIndexOf(long cell) {
+        return compact(cell);
+    }
+
+    /**
+     * 单元的经度下标，cellOf的逆运算
+     */
+    public static int longitudeIndexOf(long cell) {
+        return compact(cell >>> 1);
+    }
+
+    /**
+     * 纬度所在的下标
+     */
+    public static int latitudeIndex(double latitude) {
+        return clamp((int) Math.floor((latitude + 90) / 180 * GRID));
+    }
+
+    /**
+     * 经度所在的下标
+     */
+    public static int longitudeIndex(double longitude) {
+        return clamp((int) Math.floor((longitude + 180) / 360 * GRID));
+    }
+
+    /**
+     * 矩形范围内的单元数量
+     */
+    public static long countCells(double minLatitude, double minLongitude,
+                                  double maxLatitude, double maxLongitude) {
+        long rows = latitudeIndex(maxLatitude) - latitudeIndex(minLatitude) + 1L;
+        long columns = longitudeIndex(maxLongitude) - longitudeIndex(minLongitude) + 1L;
+        return Math.max(0, rows) * Math.max(0, columns);
+    }
+
+    /**
+     * 单元南北方向的高度（米）
+     */
+    public static double cellHeightMeters() {
+        return 180.0 / GRID * 111320;
+    }
+
+    /**
+     * 在下标的各位之间插入0
+     */
+    private static long spread(int value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    /**
+     * 取出偶数位并压紧，spread的逆运算
+     */
+    private static int compact(long x) {
+        x &= 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) x;
+    }
+
+    private static int clamp(int index) {
+        return Math.max(0, Math.min(GRID - 1, index));
+    }
+}
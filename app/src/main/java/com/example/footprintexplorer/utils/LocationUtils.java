@@ -5,9 +5,11 @@ import android.location.Location;
 import com.example.footprintexplorer.data.database.FootprintDatabase;
 import com.example.footprintexplorer.data.entity.Badge;
 import com.example.footprintexplorer.data.entity.Place;
+import com.example.footprintexplorer.data.entity.User;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.concurrent.Executors;
+import java.util.List;
 
 /**
  * 位置工具类
@@ -15,13 +17,23 @@ import java.util.concurrent.Executors;
  */
 public class LocationUtils {
 
+    // 单用户应用，用户ID固定为1
+    private static final long USER_ID = 1;
+    
+    // 每个新地点解锁的徽章类别
+    private static final String[] BADGE_CATEGORIES = {"美食", "文物", "动物"};
+    
     /**
      * 检查是否发现新地点
+     * 需在后台线程调用（追踪服务在会话写线程上调用）
      * 
-     * @param location 当前位置
+     * @param location 当前位置，发现日期取位置的时间（导入的历史轨迹为当时的时间）
      * @param database 数据库实例
+     * @param listener 在解锁事务内调用的监听器，用于收集解锁的徽章，可为null
+     * @return 新解锁的地点ID，未解锁新地点时返回-1
      */
-    public static void checkNewPlace(Location location, FootprintDatabase database) {
+    public static long checkNewPlace(Location location, FootprintDatabase database,
+                                     OnPlaceUnlockedListener listener) {
         // 这里应该调用地理编码API获取当前位置的地址信息
         // 为了演示，我们使用模拟数据
         
@@ -30,70 +42,97 @@ public class LocationUtils {
         String city = "模拟市";
         String province = "模拟省";
         
-        // 检查该区县是否已解锁
-        Executors.newSingleThreadExecutor().execute(() -> {
-            int count = database.placeDao().isDistrictUnlocked(district, city, province);
+        // 检查和解锁在同一事务中完成，避免并发位置点重复解锁
+        return database.runInTransaction(() -> {
+            if (database.placeDao().isDistrictUnlocked(district, city, province) > 0) {
+                return -1L;
+            }
+            
+            Place place = new Place(
+                    "新发现的地点",
+                    district,
+                    city,
+                    province,
+                    location.getLatitude(),
+                    location.getLongitude(),
+                    new Date(location.getTime() > 0 ? location.getTime() : System.currentTimeMillis())
+            );
+            return unlockPlace(place, database, listener);
+        });
+    }
+    
+    /**
+     * 解锁地点
+     * 地点、全部徽章和用户计数在一个事务中写入，只产生一次提交；
+     * 中途崩溃不会留下只有部分徽章的地点。挑战进度由调用方在提交后发布的
+     * 解锁事件驱动，不在此事务内推进
+     * 
+     * @param place 新地点
+     * @param database 数据库实例
+     * @param listener 在解锁事务内调用的监听器，用于收集解锁的徽章，可为null
+     * @return 新地点ID
+     */
+    public static long unlockPlace(Place place, FootprintDatabase database,
+                                   OnPlaceUnlockedListener listener) {
+        return database.runInTransaction(() -> {
+            // 保存地点
+            long placeId = database.placeDao().insert(place);
             
-            if (count == 0) {
-                // 未解锁，创建新地点
-                Place place = new Place(
-                        "新发现的地点",
-                        district,
-                        city,
-                        province,
-                        location.getLatitude(),
-                        location.getLongitude(),
-                        new Date()
-                );
-                
-                // 保存地点
-                long placeId = database.placeDao().insert(place);
-                
-                // 创建徽章
-                createBadgesForPlace(placeId, district, city, province, database);
+            // 批量保存徽章，并回填ID供事件订阅者使用
+            List<Badge> badges = createBadgesForPlace(placeId, place.getDistrict(), place.getDiscoveryDate());
+            List<Long> badgeIds = database.badgeDao().insertAll(badges);
+            for (int i = 0; i < badges.size(); i++) {
+                badges.get(i).setId(badgeIds.get(i));
             }
+            
+            // 更新用户计数
+            if (database.userDao().getUserByIdSync(USER_ID) == null) {
+                database.userDao().insert(new User());
+            }
+            database.userDao().incrementPlaces(USER_ID);
+            database.userDao().addBadges(USER_ID, badges.size());
+            
+            // 交出回填ID的徽章，供调用方在提交后发布事件
+            if (listener != null) {
+                listener.onPlaceUnlocked(placeId, badges);
+            }
+            
+            return placeId;
         });
     }
     
     /**
-     * 为新地点创建徽章
+     * 为新地点创建徽章，解锁日期与地点的发现日期相同
      */
-    private static void createBadgesForPlace(long placeId, String district, String city, 
-                                           String province, FootprintDatabase database) {
-        // 创建美食徽章
-        Badge foodBadge = new Badge(
-                district + "美食徽章",
-                "发现" + district + "的特色美食",
-                "美食",
-                "",
-                placeId,
-                new Date()
-        );
-        
-        // 创建文物徽章
-        Badge cultureBadge = new Badge(
-                district + "文物徽章",
-                "发现" + district + "的历史文化",
-                "文物",
-                "",
-                placeId,
-                new Date()
-        );
-        
-        // 创建动物徽章
-        Badge animalBadge = new Badge(
-                district + "动物徽章",
-                "发现" + district + "的特色动物",
-                "动物",
-                "",
-                placeId,
-                new Date()
-        );
-        
-        // 保存徽章
-        database.badgeDao().insert(foodBadge);
-        database.badgeDao().insert(cultureBadge);
-        database.badgeDao().insert(animalBadge);
+    private static List<Badge> createBadgesForPlace(long placeId, String district, Date unlockDate) {
+        List<Badge> badges = new ArrayList<>(BADGE_CATEGORIES.length);
+        for (String category : BADGE_CATEGORIES) {
+            badges.add(new Badge(
+                    district + category + "徽章",
+                    getBadgeDescription(district, category),
+                    category,
+                    "",
+                    placeId,
+                    unlockDate
+            ));
+        }
+        return badges;
+    }
+    
+    /**
+     * 获取徽章描述
+     */
+    private static String getBadgeDescription(String district, String category) {
+        switch (category) {
+            case "美食":
+                return "发现" + district + "的特色美食";
+            case "文物":
+                return "发现" + district + "的历史文化";
+            case "动物":
+                return "发现" + district + "的特色动物";
+            default:
+                return "探索" + district;
+        }
     }
     
     /**
@@ -104,4 +143,13 @@ public class LocationUtils {
         Location.distanceBetween(lat1, lon1, lat2, lon2, results);
         return results[0];
     }
+    
+    /**
+     * 地点解锁监听接口
+     * 在解锁事务内同步调用，只应收集结果；不得获取其他组件的锁，
+     * 否则会与持有该锁并等待数据库事务的线程互相等待
+     */
+    public interface OnPlaceUnlockedListener {
+        void onPlaceUnlocked(long placeId, List<Badge> badges);
+    }
 }
@@ -78,11 +78,17 @@ public class PerformanceMonitor {
      */
     public static long checkDatabaseSize(Context context) {
         try {
-            File dbFile = context.getDatabasePath("footprint_database.db");
+            // 数据库使用WAL模式，尚未写回的页在-wal文件中
+            File dbFile = context.getDatabasePath("footprint_database");
+            File walFile = context.getDatabasePath("footprint_database-wal");
+            long size = 0;
             if (dbFile.exists()) {
-                return dbFile.length() / 1024; // 转换为KB
+                size += dbFile.length();
             }
-            return 0;
+            if (walFile.exists()) {
+                size += walFile.length();
+            }
+            return size / 1024; // 转换为KB
         } catch (Exception e) {
             Log.e(TAG, "Error checking database size: " + e.getMessage());
             return -1;
@@ -91,21 +97,13 @@ public class PerformanceMonitor {
     
     /**
      * 检查电池使用情况
-     * 注意：需要在清单文件中添加BATTERY_STATS权限
+     * 读取BatteryStateProvider缓存的电池快照
      * @param context 上下文
      * @return 电池电量百分比
      */
     public static int checkBatteryLevel(Context context) {
         try {
-            android.os.BatteryManager batteryManager = (android.os.BatteryManager) 
-                    context.getSystemService(Context.BATTERY_SERVICE);
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && batteryManager != null) {
-                return batteryManager.getIntProperty(android.os.BatteryManager.BATTERY_PROPERTY_CAPACITY);
-            }
-            
-            // 对于较旧的Android版本，可以通过广播获取电池信息
-            return -1;
+            return BatteryStateProvider.getInstance(context).getSnapshot().getLevel();
         } catch (Exception e) {
             Log.e(TAG, "Error checking battery level: " + e.getMessage());
             return -1;
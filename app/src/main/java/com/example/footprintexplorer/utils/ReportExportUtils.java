@@ -4,20 +4,20 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.pdf.PdfDocument;
 import android.net.Uri;
 import android.os.Environment;
 import android.view.View;
 import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
+import androidx.lifecycle.LiveData;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
-import com.example.footprintexplorer.R;
-import com.example.footprintexplorer.data.entity.Badge;
-import com.example.footprintexplorer.data.entity.Place;
-import com.example.footprintexplorer.ui.viewmodels.ReportViewModel;
+import com.example.footprintexplorer.services.ReportExportWorker;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -33,42 +33,53 @@ import java.util.Locale;
  */
 public class ReportExportUtils {
 
+    private static final String PDF_EXPORT_WORK = "report_pdf_export";
+
     /**
      * 导出报告为PDF
+     * 报告在后台任务中逐页渲染，列表长度不受限制。返回任务状态，
+     * 进度见{@link ReportExportWorker#KEY_PROGRESS}，成功后可用
+     * {@link ReportExportWorker#KEY_FILE_PATH}取得文件并调用{@link #sharePdfFile}分享
+     *
+     * @param reportType 报告类型（周、月、年）
+     * @param startTime 报告开始时间
+     * @param endTime 报告结束时间
+     * @param charts 由{@link #saveChart}预先生成的图表，可为空
      */
-    public static void exportReportToPdf(Context context, ReportViewModel.ReportData reportData, String reportType) {
-        // 创建PDF文档
-        PdfDocument document = new PdfDocument();
-        
-        // 创建页面
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(595, 842, 1).create();
-        PdfDocument.Page page = document.startPage(pageInfo);
-        
-        // 获取画布
-        Canvas canvas = page.getCanvas();
-        
-        // 绘制报告内容
-        drawReportContent(canvas, context, reportData, reportType);
-        
-        // 结束页面
-        document.finishPage(page);
-        
-        // 保存PDF文件
-        String fileName = generateFileName(reportType, "pdf");
-        File file = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
+    public static LiveData<WorkInfo> exportReportToPdf(Context context, String reportType,
+                                                       Date startTime, Date endTime, List<File> charts) {
+        String[] chartPaths = new String[charts.size()];
+        for (int i = 0; i < chartPaths.length; i++) {
+            chartPaths[i] = charts.get(i).getAbsolutePath();
+        }
         
-        try {
-            document.writeTo(new FileOutputStream(file));
-            document.close();
-            
-            // 分享PDF文件
-            sharePdfFile(context, file);
-            
-            Toast.makeText(context, "报告已导出为PDF", Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(context, "导出PDF失败", Toast.LENGTH_SHORT).show();
+        Data input = new Data.Builder()
+                .putString(ReportExportWorker.KEY_REPORT_TYPE, reportType)
+                .putString(ReportExportWorker.KEY_FILE_NAME, generateFileName(reportType, "pdf"))
+                .putLong(ReportExportWorker.KEY_START_TIME, startTime.getTime())
+                .putLong(ReportExportWorker.KEY_END_TIME, endTime.getTime())
+                .putStringArray(ReportExportWorker.KEY_CHART_PATHS, chartPaths)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReportExportWorker.class)
+                .setInputData(input)
+                .build();
+        
+        // 导出任务依次执行，同一时间只渲染一份报告
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniqueWork(PDF_EXPORT_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+        return workManager.getWorkInfoByIdLiveData(request.getId());
+    }
+    
+    /**
+     * 保存预先生成的图表
+     * 图表视图在主线程绘制为位图后立即写入缓存目录，导出任务按文件读取
+     */
+    public static File saveChart(Context context, Bitmap chart) throws IOException {
+        File file = File.createTempFile("report_chart_", ".png", context.getCacheDir());
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            chart.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
         }
+        return file;
     }
     
     /**
@@ -104,93 +115,6 @@ public class ReportExportUtils {
         }
     }
     
-    /**
-     * 绘制报告内容
-     */
-    private static void drawReportContent(Canvas canvas, Context context, ReportViewModel.ReportData reportData, String reportType) {
-        // 设置画笔
-        Paint titlePaint = new Paint();
-        titlePaint.setColor(Color.rgb(33, 150, 243));
-        titlePaint.setTextSize(24);
-        titlePaint.setFakeBoldText(true);
-        
-        Paint subtitlePaint = new Paint();
-        subtitlePaint.setColor(Color.rgb(33, 33, 33));
-        subtitlePaint.setTextSize(18);
-        subtitlePaint.setFakeBoldText(true);
-        
-        Paint textPaint = new Paint();
-        textPaint.setColor(Color.rgb(33, 33, 33));
-        textPaint.setTextSize(14);
-        
-        // 绘制标题
-        String title = "足迹探索 - " + reportType + "报告";
-        canvas.drawText(title, 50, 50, titlePaint);
-        
-        // 绘制日期
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        String date = "生成日期: " + dateFormat.format(new Date());
-        canvas.drawText(date, 50, 80, textPaint);
-        
-        // 绘制分隔线
-        Paint linePaint = new Paint();
-        linePaint.setColor(Color.rgb(200, 200, 200));
-        linePaint.setStrokeWidth(1);
-        canvas.drawLine(50, 100, 545, 100, linePaint);
-        
-        // 绘制统计数据
-        canvas.drawText("统计数据", 50, 130, subtitlePaint);
-        canvas.drawText("总行程: " + String.format("%.1f 公里", reportData.getTotalDistance() / 1000), 50, 160, textPaint);
-        canvas.drawText("解锁地点: " + reportData.getPlaces().size() + " 个", 50, 180, textPaint);
-        canvas.drawText("获得徽章: " + reportData.getBadges().size() + " 个", 50, 200, textPaint);
-        
-        // 绘制分隔线
-        canvas.drawLine(50, 220, 545, 220, linePaint);
-        
-        // 绘制地点列表
-        canvas.drawText("解锁地点", 50, 250, subtitlePaint);
-        List<Place> places = reportData.getPlaces();
-        int y = 280;
-        for (int i = 0; i < places.size() && i < 10; i++) {
-            Place place = places.get(i);
-            canvas.drawText((i + 1) + ". " + place.getName() + " (" + place.getCategory() + ")", 50, y, textPaint);
-            y += 20;
-        }
-        
-        // 如果地点太多，显示省略号
-        if (places.size() > 10) {
-            canvas.drawText("...", 50, y, textPaint);
-            y += 20;
-        }
-        
-        // 绘制分隔线
-        canvas.drawLine(50, y, 545, y, linePaint);
-        y += 30;
-        
-        // 绘制徽章列表
-        canvas.drawText("获得徽章", 50, y, subtitlePaint);
-        y += 30;
-        List<Badge> badges = reportData.getBadges();
-        for (int i = 0; i < badges.size() && i < 10; i++) {
-            Badge badge = badges.get(i);
-            canvas.drawText((i + 1) + ". " + badge.getName() + " (" + badge.getCategory() + ")", 50, y, textPaint);
-            y += 20;
-        }
-        
-        // 如果徽章太多，显示省略号
-        if (badges.size() > 10) {
-            canvas.drawText("...", 50, y, textPaint);
-            y += 20;
-        }
-        
-        // 绘制分隔线
-        canvas.drawLine(50, y, 545, y, linePaint);
-        y += 30;
-        
-        // 绘制页脚
-        canvas.drawText("由足迹探索应用生成", 50, 800, textPaint);
-    }
-    
     /**
      * 生成文件名
      */
@@ -203,7 +127,7 @@ public class ReportExportUtils {
     /**
      * 分享PDF文件
      */
-    private static void sharePdfFile(Context context, File file) {
+    public static void sharePdfFile(Context context, File file) {
         Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
         
         Intent intent = new Intent(Intent.ACTION_SEND);
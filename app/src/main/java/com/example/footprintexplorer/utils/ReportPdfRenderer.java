@@ -0,0 +1,375 @@
+package com.example.footprintexplorer.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.pdf.PdfDocument;
+import android.util.Log;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.Badge;
+import com.example.footprintexplorer.data.entity.Place;
+import com.example.footprintexplorer.data.projection.SessionSummary;
+import com.example.footprintexplorer.services.CoverageIndex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 报告PDF渲染器
+ * 按A4页面逐页渲染报告，会话、地点和徽章列表以键集分页从数据库分批读取，
+ * 每批绘制完即丢弃，列表长度不受限制且Java堆内存占用恒定。
+ * 需在后台线程调用。
+ */
+public class ReportPdfRenderer {
+
+    private static final String TAG = "ReportPdfRenderer";
+
+    // A4页面尺寸（点）
+    private static final int PAGE_WIDTH = 595;
+    private static final int PAGE_HEIGHT = 842;
+    private static final int MARGIN = 50;
+    private static final int CONTENT_BOTTOM = 770;
+    private static final int FOOTER_Y = 800;
+    private static final int LINE_HEIGHT = 20;
+    private static final int SECTION_SPACING = 30;
+
+    // 每次从数据库读取的行数
+    private static final int BATCH_SIZE = 200;
+
+    // 图表解码宽度（像素），约为内容宽度的两倍，保证打印清晰
+    private static final int CHART_DECODE_WIDTH = 2 * (PAGE_WIDTH - 2 * MARGIN);
+
+    private final FootprintDatabase database;
+    private final CoverageIndex coverageIndex;
+    private final OnProgressListener progressListener;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+    private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+
+    private final Paint titlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint subtitlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint linePaint = new Paint();
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private PdfDocument document;
+    private PdfDocument.Page page;
+    private Canvas canvas;
+    private int pageNumber;
+    private float y;
+
+    private int totalRows;
+    private int renderedRows;
+    private volatile boolean cancelled;
+
+    public ReportPdfRenderer(FootprintDatabase database, CoverageIndex coverageIndex,
+                             OnProgressListener progressListener) {
+        this.database = database;
+        this.coverageIndex = coverageIndex;
+        this.progressListener = progressListener;
+
+        titlePaint.setColor(Color.rgb(33, 150, 243));
+        titlePaint.setTextSize(24);
+        titlePaint.setFakeBoldText(true);
+
+        subtitlePaint.setColor(Color.rgb(33, 33, 33));
+        subtitlePaint.setTextSize(18);
+        subtitlePaint.setFakeBoldText(true);
+
+        textPaint.setColor(Color.rgb(33, 33, 33));
+        textPaint.setTextSize(14);
+
+        linePaint.setColor(Color.rgb(200, 200, 200));
+        linePaint.setStrokeWidth(1);
+    }
+
+    /**
+     * 渲染报告并写入文件
+     * @param reportType 报告类型（周、月、年）
+     * @param startTime 报告开始时间
+     * @param endTime 报告结束时间
+     * @param charts 预先生成的图表PNG文件，按顺序绘制，可为空
+     * @param output 输出文件
+     * @throws InterruptedIOException 渲染被取消
+     */
+    public void render(String reportType, Date startTime, Date endTime, List<File> charts, File output)
+            throws IOException {
+        int sessionCount = database.trackingSessionDao().getSessionCountBetween(startTime.getTime(), endTime.getTime());
+        int placeCount = database.placeDao().getPlaceCountBetween(startTime, endTime);
+        int badgeCount = database.badgeDao().getBadgeCountBetween(startTime, endTime);
+        double totalDistance = database.trackingSessionDao().getTotalDistanceBetween(startTime.getTime(),
+                endTime.getTime());
+        long newCells = coverageIndex.getNewCellCount(startTime.getTime(), endTime.getTime());
+        totalRows = sessionCount + placeCount + badgeCount;
+        renderedRows = 0;
+        pageNumber = 0;
+
+        document = new PdfDocument();
+        try {
+            startPage();
+            drawHeader(reportType, startTime, endTime);
+            drawStatistics(totalDistance, sessionCount, placeCount, badgeCount, newCells);
+            for (File chart : charts) {
+                drawChart(chart);
+            }
+            drawSessions(startTime, endTime, sessionCount);
+            drawPlaces(startTime, endTime, placeCount);
+            drawBadges(startTime, endTime, badgeCount);
+            finishPage();
+
+            try (FileOutputStream out = new FileOutputStream(output)) {
+                document.writeTo(out);
+            }
+            Log.d(TAG, "报告已渲染: " + pageNumber + " 页, " + totalRows + " 行");
+        } finally {
+            document.close();
+            document = null;
+            page = null;
+            canvas = null;
+        }
+    }
+
+    /**
+     * 取消渲染，在下一批数据前生效
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void drawHeader(String reportType, Date startTime, Date endTime) {
+        canvas.drawText("足迹探索 - " + reportType + "报告", MARGIN, y, titlePaint);
+        y += 30;
+        canvas.drawText("统计区间: " + dateFormat.format(startTime) + " 至 " + dateFormat.format(endTime),
+                MARGIN, y, textPaint);
+        y += LINE_HEIGHT;
+        canvas.drawText("生成日期: " + dateFormat.format(new Date()), MARGIN, y, textPaint);
+        y += LINE_HEIGHT;
+        drawDivider();
+    }
+
+    private void drawStatistics(double totalDistance, int sessionCount, int placeCount, int badgeCount,
+                                long newCells) {
+        drawSectionTitle("统计数据");
+        drawRow("总行程: " + String.format(Locale.getDefault(), "%.1f 公里", totalDistance / 1000));
+        drawRow("追踪次数: " + sessionCount + " 次");
+        drawRow("解锁地点: " + placeCount + " 个");
+        drawRow("获得徽章: " + badgeCount + " 个");
+        drawRow("新探索区域: " + newCells + " 个网格，累计 " + coverageIndex.getVisitedCellCount() + " 个");
+        drawDivider();
+    }
+
+    /**
+     * 绘制预先生成的图表
+     * 按内容宽度采样解码，绘制后立即回收
+     */
+    private void drawChart(File chart) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(chart.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.e(TAG, "无法读取图表: " + chart.getName());
+            return;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= CHART_DECODE_WIDTH) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap bitmap = BitmapFactory.decodeFile(chart.getPath(), options);
+        if (bitmap == null) {
+            return;
+        }
+
+        float width = PAGE_WIDTH - 2 * MARGIN;
+        float height = width * bitmap.getHeight() / bitmap.getWidth();
+        height = Math.min(height, CONTENT_BOTTOM - MARGIN);
+        ensureSpace(height + LINE_HEIGHT);
+        canvas.drawBitmap(bitmap, null, new RectF(MARGIN, y, MARGIN + width, y + height), bitmapPaint);
+        y += height + LINE_HEIGHT;
+        bitmap.recycle();
+    }
+
+    private void drawSessions(Date startTime, Date endTime, int count) throws InterruptedIOException {
+        if (count == 0) {
+            return;
+        }
+        drawSectionTitle("追踪记录");
+
+        int index = 0;
+        long afterTime = endTime.getTime();
+        long afterId = Long.MAX_VALUE;
+        List<SessionSummary> batch;
+        do {
+            checkCancelled();
+            batch = database.trackingSessionDao().getSessionSummariesBetweenPage(startTime.getTime(), afterTime,
+                    afterId, BATCH_SIZE);
+            for (SessionSummary session : batch) {
+                index++;
+                drawRow(index + ". " + dateTimeFormat.format(new Date(session.getStartTime()))
+                        + "  " + String.format(Locale.getDefault(), "%.2f 公里", session.getTotalDistance() / 1000)
+                        + "  " + formatDuration(session.getMovingTime()));
+            }
+            if (!batch.isEmpty()) {
+                SessionSummary last = batch.get(batch.size() - 1);
+                afterTime = last.getStartTime();
+                afterId = last.getId();
+            }
+            reportProgress(batch.size());
+        } while (batch.size() == BATCH_SIZE);
+        drawDivider();
+    }
+
+    private void drawPlaces(Date startTime, Date endTime, int count) throws InterruptedIOException {
+        if (count == 0) {
+            return;
+        }
+        drawSectionTitle("解锁地点");
+
+        int index = 0;
+        Date afterDate = endTime;
+        long afterId = Long.MAX_VALUE;
+        List<Place> batch;
+        do {
+            checkCancelled();
+            batch = database.placeDao().getPlacesBetweenPage(startTime, afterDate, afterId, BATCH_SIZE);
+            for (Place place : batch) {
+                index++;
+                drawRow(index + ". " + place.getName() + " (" + place.getProvince() + place.getCity()
+                        + place.getDistrict() + ")  " + dateFormat.format(place.getDiscoveryDate()));
+            }
+            if (!batch.isEmpty()) {
+                Place last = batch.get(batch.size() - 1);
+                afterDate = last.getDiscoveryDate();
+                afterId = last.getId();
+            }
+            reportProgress(batch.size());
+        } while (batch.size() == BATCH_SIZE);
+        drawDivider();
+    }
+
+    private void drawBadges(Date startTime, Date endTime, int count) throws InterruptedIOException {
+        if (count == 0) {
+            return;
+        }
+        drawSectionTitle("获得徽章");
+
+        int index = 0;
+        Date afterDate = endTime;
+        long afterId = Long.MAX_VALUE;
+        List<Badge> batch;
+        do {
+            checkCancelled();
+            batch = database.badgeDao().getBadgesBetweenPage(startTime, afterDate, afterId, BATCH_SIZE);
+            for (Badge badge : batch) {
+                index++;
+                drawRow(index + ". " + badge.getName() + " (" + badge.getCategory() + ")  "
+                        + dateFormat.format(badge.getUnlockDate()));
+            }
+            if (!batch.isEmpty()) {
+                Badge last = batch.get(batch.size() - 1);
+                afterDate = last.getUnlockDate();
+                afterId = last.getId();
+            }
+            reportProgress(batch.size());
+        } while (batch.size() == BATCH_SIZE);
+        drawDivider();
+    }
+
+    /**
+     * 绘制小节标题
+     * 标题与至少一行内容在同一页
+     */
+    private void drawSectionTitle(String title) {
+        ensureSpace(SECTION_SPACING + LINE_HEIGHT);
+        y += 10;
+        canvas.drawText(title, MARGIN, y, subtitlePaint);
+        y += SECTION_SPACING - 10;
+    }
+
+    /**
+     * 绘制一行文本，超出内容宽度的部分以省略号截断
+     */
+    private void drawRow(String text) {
+        ensureSpace(LINE_HEIGHT);
+        float maxWidth = PAGE_WIDTH - 2 * MARGIN;
+        if (textPaint.measureText(text) > maxWidth) {
+            int count = textPaint.breakText(text, true, maxWidth - textPaint.measureText("…"), null);
+            text = text.substring(0, count) + "…";
+        }
+        canvas.drawText(text, MARGIN, y, textPaint);
+        y += LINE_HEIGHT;
+    }
+
+    private void drawDivider() {
+        ensureSpace(LINE_HEIGHT);
+        canvas.drawLine(MARGIN, y - 5, PAGE_WIDTH - MARGIN, y - 5, linePaint);
+        y += 10;
+    }
+
+    /**
+     * 剩余空间不足时换页
+     */
+    private void ensureSpace(float height) {
+        if (y + height > CONTENT_BOTTOM) {
+            finishPage();
+            startPage();
+        }
+    }
+
+    private void startPage() {
+        pageNumber++;
+        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, pageNumber).create();
+        page = document.startPage(pageInfo);
+        canvas = page.getCanvas();
+        y = MARGIN;
+    }
+
+    /**
+     * 绘制页脚并结束当前页
+     */
+    private void finishPage() {
+        canvas.drawText("由足迹探索应用生成", MARGIN, FOOTER_Y, textPaint);
+        String number = "第 " + pageNumber + " 页";
+        canvas.drawText(number, PAGE_WIDTH - MARGIN - textPaint.measureText(number), FOOTER_Y, textPaint);
+        document.finishPage(page);
+        page = null;
+        canvas = null;
+    }
+
+    private void reportProgress(int rows) {
+        renderedRows += rows;
+        if (progressListener != null) {
+            progressListener.onProgress(renderedRows, totalRows);
+        }
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("报告渲染已取消");
+        }
+    }
+
+    private static String formatDuration(long millis) {
+        long minutes = millis / 60000;
+        return minutes >= 60 ? (minutes / 60) + " 小时 " + (minutes % 60) + " 分钟" : minutes + " 分钟";
+    }
+
+    /**
+     * 渲染进度回调
+     */
+    public interface OnProgressListener {
+        void onProgress(int renderedRows, int totalRows);
+    }
+}
@@ -51,6 +51,15 @@ public class SocialSharingUtils {
     /**
      * 分享徽章到社交媒体
      */
+    public static void shareBadge(Context context, Badge badge) {
+        // 徽章图片由徽章图片加载器按分享尺寸生成，与列表共用解码缓存
+        BadgeImageLoader.getInstance(context).loadShareBitmap(badge,
+                bitmap -> shareBadge(context, badge, bitmap));
+    }
+    
+    /**
+     * 使用指定图片分享徽章到社交媒体
+     */
     public static void shareBadge(Context context, Badge badge, Bitmap badgeImage) {
         // 创建分享文本
         String shareText = createBadgeShareText(badge);
@@ -233,9 +242,9 @@ public class SocialSharingUtils {
             String fileName = "badge_image_" + System.currentTimeMillis() + ".png";
             File file = new File(cachePath, fileName);
             
-            FileOutputStream stream = new FileOutputStream(file);
-            badgeImage.compress(Bitmap.CompressFormat.PNG, 100, stream);
-            stream.close();
+            try (FileOutputStream stream = new FileOutputStream(file)) {
+                badgeImage.compress(Bitmap.CompressFormat.PNG, 100, stream);
+            }
             
             return FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
         } catch (IOException e) {
@@ -1,13 +1,29 @@
 package com.example.footprintexplorer.utils;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.os.Debug;
 import android.util.Log;
 
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+import com.example.footprintexplorer.data.converters.DateConverter;
+import com.example.footprintexplorer.data.database.DatabaseProfile;
 import com.example.footprintexplorer.data.database.FootprintDatabase;
 import com.example.footprintexplorer.data.entity.LocationRecord;
 import com.example.footprintexplorer.data.entity.Place;
 import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+import com.example.footprintexplorer.importer.TrackImporter;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 
@@ -168,6 +184,344 @@ public class TestUtils {
         return result.toString();
     }
     
+    /**
+     * 测试轨迹导出吞吐量
+     * 将全部位置记录按每种格式导出到缓存目录，统计耗时、每秒点数和文件大小
+     * @param context 上下文
+     * @return 测试结果
+     */
+    public static String testTrackExportThroughput(Context context) {
+        StringBuilder result = new StringBuilder();
+        FootprintDatabase database = FootprintDatabase.getInstance(context);
+        TrackExporter exporter = new TrackExporter(database, LocationPartitionRouter.getInstance(context), null);
+        long startTime = 0;
+        long endTime = System.currentTimeMillis();
+        
+        for (TrackExporter.Format format : TrackExporter.Format.values()) {
+            for (boolean gzip : new boolean[]{false, true}) {
+                File file = new File(context.getCacheDir(), "export_benchmark." + format.getExtension());
+                try {
+                    long start = System.currentTimeMillis();
+                    int points = exporter.exportRange(startTime, endTime, format, gzip, file);
+                    long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                    result.append(format).append(gzip ? "(gzip)" : "").append(": ")
+                            .append(points).append(" 点, ")
+                            .append(elapsed).append("ms, ")
+                            .append(points * 1000L / elapsed).append(" 点/秒, ")
+                            .append(file.length() / 1024).append("KB\n");
+                } catch (IOException e) {
+                    Log.e(TAG, "轨迹导出测试失败: " + e.getMessage());
+                    result.append(format).append(": 导出失败\n");
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+        
+        return result.toString();
+    }
+    
+    /**
+     * 测试轨迹导入吞吐量
+     * 生成包含多个会话的CSV文件，导入到独立的数据库文件并统计每秒处理的点数；
+     * 地点、徽章、挑战和覆盖索引等副作用都不会触及应用数据，完成后删除整个数据库
+     * @param context 上下文
+     * @return 测试结果
+     */
+    public static String testTrackImportThroughput(Context context) {
+        StringBuilder result = new StringBuilder();
+        String databaseName = "benchmark_import";
+        context.deleteDatabase(databaseName);
+        FootprintDatabase database = FootprintDatabase.create(context, databaseName, DatabaseProfile.TRACKING);
+        int pointCount = 200000;
+        File file = new File(context.getCacheDir(), "import_benchmark.csv");
+        
+        try {
+            // 每秒一个点，每1万点为一个会话
+            long startTime = System.currentTimeMillis() - pointCount * 1000L;
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+                writer.write("track,lat,lon,ele,time\n");
+                for (int i = 0; i < pointCount; i++) {
+                    writer.write((i / 10000) + "," + (39.9 + i * 0.00005) + "," + (116.3 + i * 0.00005)
+                            + "," + (50 + i % 20) + "," + (startTime + i * 1000L) + "\n");
+                }
+            }
+            
+            TrackImporter importer = new TrackImporter(database, null);
+            TrackImporter.ImportResult importResult;
+            long start = System.currentTimeMillis();
+            try (InputStream in = new FileInputStream(file)) {
+                importResult = importer.importStream(in, file.length(), TrackImporter.Format.CSV);
+            }
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            
+            result.append("导入").append(importResult.getImportedCount()).append("个位置点耗时: ")
+                    .append(elapsed).append("ms, ")
+                    .append(importResult.getImportedCount() * 1000L / elapsed).append(" 点/秒\n");
+            result.append("会话: ").append(importResult.getSessionIds().size())
+                    .append(", 入库: ").append(importResult.getRecordedCount()).append("\n");
+        } catch (IOException e) {
+            Log.e(TAG, "轨迹导入测试失败: " + e.getMessage());
+            result.append("导入失败: ").append(e.getMessage()).append("\n");
+        } finally {
+            file.delete();
+            database.close();
+            context.deleteDatabase(databaseName);
+        }
+        
+        return result.toString();
+    }
+    
+    /**
+     * 测试数据库配置
+     * 分别以默认配置（回滚日志、synchronous=FULL）和各连接配置创建独立的数据库文件，
+     * 比较逐条插入（实时追踪的写入方式）、批量插入和时间范围分页查询的吞吐量
+     * @param context 上下文
+     * @return 测试结果
+     */
+    public static String testDatabaseConfiguration(Context context) {
+        StringBuilder result = new StringBuilder();
+        
+        String baselineName = "benchmark_default";
+        context.deleteDatabase(baselineName);
+        FootprintDatabase baseline = Room.databaseBuilder(context, FootprintDatabase.class, baselineName)
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .build();
+        result.append("默认配置:\n").append(benchmarkDatabase(baseline));
+        baseline.close();
+        context.deleteDatabase(baselineName);
+        
+        for (DatabaseProfile profile : DatabaseProfile.values()) {
+            String name = "benchmark_" + profile.name().toLowerCase();
+            context.deleteDatabase(name);
+            FootprintDatabase database = FootprintDatabase.create(context, name, profile);
+            result.append(profile).append(":\n").append(benchmarkDatabase(database));
+            database.close();
+            context.deleteDatabase(name);
+        }
+        
+        return result.toString();
+    }
+    
+    /**
+     * 在指定数据库上执行插入和查询基准
+     */
+    private static String benchmarkDatabase(FootprintDatabase database) {
+        int singleInserts = 1000;
+        int batchInserts = 20000;
+        int pageSize = 500;
+        long baseTime = System.currentTimeMillis() - 86400000L;
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < singleInserts; i++) {
+            database.locationDao().insert(new LocationRecord(1, 39.9 + i * 1e-5, 116.3 + i * 1e-5,
+                    50, 5, 1.5f, baseTime + i * 1000L));
+        }
+        long singleMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        
+        List<LocationRecord> batch = new ArrayList<>(batchInserts);
+        for (int i = singleInserts; i < singleInserts + batchInserts; i++) {
+            batch.add(new LocationRecord(1, 39.9 + i * 1e-5, 116.3 + i * 1e-5,
+                    50, 5, 1.5f, baseTime + i * 1000L));
+        }
+        start = System.nanoTime();
+        database.locationDao().insertAll(batch);
+        long batchMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        
+        // 按时间范围分页读取全部记录
+        start = System.nanoTime();
+        int read = 0;
+        long afterTime = baseTime;
+        long afterId = Long.MIN_VALUE;
+        List<LocationRecord> page;
+        do {
+            page = database.locationDao().getLocationsBetweenPage(System.currentTimeMillis(), afterTime, afterId,
+                    pageSize);
+            if (!page.isEmpty()) {
+                LocationRecord last = page.get(page.size() - 1);
+                afterTime = last.getTimestamp();
+                afterId = last.getId();
+            }
+            read += page.size();
+        } while (page.size() == pageSize);
+        long queryMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        
+        return "  逐条插入: " + singleInserts * 1000L / singleMs + " 行/秒\n"
+                + "  批量插入: " + batchInserts * 1000L / batchMs + " 行/秒\n"
+                + "  范围查询: " + read * 1000L / queryMs + " 行/秒\n";
+    }
+    
+    /**
+     * 测试归档扫描吞吐量
+     * 用scanLocations扫描全部位置点并累计距离，归档月份按列读取；
+     * 与只通过SQLite分页读取主表的速度对比
+     * @param context 上下文
+     * @return 测试结果
+     */
+    public static String testArchiveScan(Context context) {
+        FootprintDatabase database = FootprintDatabase.getInstance(context);
+        LocationPartitionRouter router = LocationPartitionRouter.getInstance(context);
+        long startTime = 0;
+        long endTime = System.currentTimeMillis();
+        
+        long[] count = new long[1];
+        double[] distance = new double[1];
+        double[] last = {Double.NaN, Double.NaN};
+        long start = System.nanoTime();
+        router.scanLocations(startTime, endTime, (sessionId, time, latitude, longitude, speed) -> {
+            if (!Double.isNaN(last[0])) {
+                // 等距圆柱近似，足够用于吞吐量测试
+                double dLat = Math.toRadians(latitude - last[0]);
+                double dLng = Math.toRadians(longitude - last[1]) * Math.cos(Math.toRadians(latitude));
+                distance[0] += 6371000 * Math.sqrt(dLat * dLat + dLng * dLng);
+            }
+            last[0] = latitude;
+            last[1] = longitude;
+            count[0]++;
+        });
+        long scanMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        
+        start = System.nanoTime();
+        int hotRows = 0;
+        long afterTime = startTime;
+        long afterId = Long.MIN_VALUE;
+        List<LocationRecord> page;
+        do {
+            page = database.locationDao().getLocationsBetweenPage(endTime, afterTime, afterId, 1000);
+            if (!page.isEmpty()) {
+                LocationRecord record = page.get(page.size() - 1);
+                afterTime = record.getTimestamp();
+                afterId = record.getId();
+            }
+            hotRows += page.size();
+        } while (page.size() == 1000);
+        long hotMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        
+        return "归档月份: " + router.getArchivedMonths().size() + "\n"
+                + "全部位置点: " + count[0] + ", " + count[0] * 1000 / scanMs + " 点/秒, 距离 "
+                + String.format("%.1f", distance[0] / 1000) + "km\n"
+                + "主表分页读取: " + hotRows + ", " + hotRows * 1000L / hotMs + " 点/秒\n";
+    }
+    
+    /**
+     * 测试轨迹缓冲区
+     * 分别以位置记录列表和TrackBuffer读取最近30天的轨迹，比较耗时和每点占用的内存。
+     * 内存为读取前后已用堆的差值，只作粗略参考
+     * @param context 上下文
+     * @return 测试结果
+     */
+    public static String testTrackBuffer(Context context) {
+        LocationPartitionRouter router = LocationPartitionRouter.getInstance(context);
+        long endTime = System.currentTimeMillis();
+        long startTime = endTime - 30L * 24 * 60 * 60 * 1000;
+        Runtime runtime = Runtime.getRuntime();
+        
+        runtime.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        List<LocationRecord> records = new ArrayList<>();
+        long afterTime = startTime;
+        long afterId = Long.MIN_VALUE;
+        List<LocationRecord> page;
+        do {
+            page = router.getLocationsBetweenPage(endTime, afterTime, afterId, 1000);
+            if (!page.isEmpty()) {
+                LocationRecord record = page.get(page.size() - 1);
+                afterTime = record.getTimestamp();
+                afterId = record.getId();
+            }
+            records.addAll(page);
+        } while (page.size() == 1000);
+        long listMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        long listBytes = runtime.totalMemory() - runtime.freeMemory() - before;
+        int listCount = records.size();
+        records = null;
+        
+        runtime.gc();
+        before = runtime.totalMemory() - runtime.freeMemory();
+        start = System.nanoTime();
+        TrackBuffer track = router.getTrack(startTime, endTime);
+        long bufferMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        long bufferBytes = runtime.totalMemory() - runtime.freeMemory() - before;
+        
+        start = System.nanoTime();
+        double distance = track.getDistance();
+        long distanceMs = (System.nanoTime() - start) / 1000000;
+        int count = Math.max(1, track.size());
+        
+        return "位置点: " + track.size() + "\n"
+                + "记录列表: " + listMs + "ms, 约 " + listBytes / Math.max(1, listCount) + " 字节/点\n"
+                + "轨迹缓冲区: " + bufferMs + "ms, 约 " + bufferBytes / count + " 字节/点\n"
+                + "距离: " + String.format("%.1f", distance / 1000) + "km, 耗时 " + distanceMs + "ms\n";
+    }
+    
+    /**
+     * 测试DAO读取的内存分配
+     * 分页读取最近30天的位置记录，用运行时统计的累计分配字节数计算每行的分配量；
+     * 再次读取并对每行执行一次DateConverter转换，对应时间列改为基本类型之前的开销；
+     * 最后用只含轨迹列的投影游标读入TrackBuffer
+     * @param context 上下文
+     * @return 测试结果
+     */
+    public static String testDaoReadAllocation(Context context) {
+        FootprintDatabase database = FootprintDatabase.getInstance(context);
+        long endTime = System.currentTimeMillis();
+        long startTime = endTime - 30L * 24 * 60 * 60 * 1000;
+        
+        long[] primitive = readAllocation(database, startTime, endTime, false);
+        long[] converted = readAllocation(database, startTime, endTime, true);
+        if (primitive[0] == 0) {
+            return "没有位置记录\n";
+        }
+        
+        long before = allocatedBytes();
+        TrackBuffer track = new TrackBuffer();
+        try (Cursor cursor = database.locationDao().getTrackCursorBetween(startTime, endTime)) {
+            track.appendFrom(cursor);
+        }
+        long projected = allocatedBytes() - before;
+        
+        return "位置记录: " + primitive[0] + "\n"
+                + "基本类型时间戳: " + primitive[1] / primitive[0] + " 字节/行\n"
+                + "经Date转换: " + converted[1] / converted[0] + " 字节/行\n"
+                + "投影游标: " + projected / Math.max(1, track.size()) + " 字节/行\n";
+    }
+    
+    /**
+     * 分页读取时间范围内的位置记录
+     * @return 读取的行数和期间分配的字节数
+     */
+    private static long[] readAllocation(FootprintDatabase database, long startTime, long endTime,
+                                         boolean convertDates) {
+        long before = allocatedBytes();
+        long rows = 0;
+        long checksum = 0;
+        long afterTime = startTime;
+        long afterId = Long.MIN_VALUE;
+        List<LocationRecord> page;
+        do {
+            page = database.locationDao().getLocationsBetweenPage(endTime, afterTime, afterId, 1000);
+            for (LocationRecord record : page) {
+                checksum += convertDates
+                        ? DateConverter.dateToTimestamp(DateConverter.timestampToDate(record.getTimestamp()))
+                        : record.getTimestamp();
+            }
+            if (!page.isEmpty()) {
+                LocationRecord last = page.get(page.size() - 1);
+                afterTime = last.getTimestamp();
+                afterId = last.getId();
+            }
+            rows += page.size();
+        } while (page.size() == 1000);
+        Log.d(TAG, "读取校验: " + checksum);
+        return new long[]{rows, allocatedBytes() - before};
+    }
+    
+    private static long allocatedBytes() {
+        String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return value != null ? Long.parseLong(value) : 0;
+    }
+    
     /**
      * 运行所有测试
      * @param context 上下文
@@ -189,6 +543,24 @@ public class TestUtils {
         result.append("--- 电池优化测试 ---\n");
         result.append(testBatteryOptimization(context)).append("\n");
         
+        result.append("--- 归档扫描测试 ---\n");
+        result.append(testArchiveScan(context)).append("\n");
+        
+        result.append("--- DAO读取分配测试 ---\n");
+        result.append(testDaoReadAllocation(context)).append("\n");
+        
+        result.append("--- 轨迹缓冲区测试 ---\n");
+        result.append(testTrackBuffer(context)).append("\n");
+        
+        result.append("--- 数据库配置测试 ---\n");
+        result.append(testDatabaseConfiguration(context)).append("\n");
+        
+        result.append("--- 轨迹导出测试 ---\n");
+        result.append(testTrackExportThroughput(context)).append("\n");
+        
+        result.append("--- 轨迹导入测试 ---\n");
+        result.append(testTrackImportThroughput(context)).append("\n");
+        
         result.append("===== 测试完成 =====");
         
         return result.toString();
@@ -0,0 +1,236 @@
+package com.example.footprintexplorer.utils;
+
+import android.database.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * 轨迹缓冲区
+ * 以并行的基本类型数组保存一段轨迹（ID、会话、时间、坐标、速度），每点44字节，
+ * 不为位置点创建对象。可直接从游标填充，简化、距离统计和地图绘制都直接读取数组，
+ * 各阶段之间不需要转换。点按追加顺序保存，通常为时间顺序。非线程安全。
+ */
+public final class TrackBuffer {
+
+    // 地球平均半径（米）
+    private static final double EARTH_RADIUS = 6371000.0;
+
+    private long[] ids;
+    private long[] sessionIds;
+    private long[] times;
+    private double[] latitudes;
+    private double[] longitudes;
+    private float[] speeds;
+    private int size;
+
+    public TrackBuffer() {
+        this(256);
+    }
+
+    public TrackBuffer(int capacity) {
+        capacity = Math.max(capacity, 16);
+        ids = new long[capacity];
+        sessionIds = new long[capacity];
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        speeds = new float[capacity];
+    }
+
+    /**
+     * 追加一个点
+     */
+    public void add(long id, long sessionId, long time, double latitude, double longitude, float speed) {
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        ids[size] = id;
+        sessionIds[size] = sessionId;
+        times[size] = time;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        speeds[size] = speed;
+        size++;
+    }
+
+    /**
+     * 从游标追加全部行
+     * 游标需包含id、sessionId、timestamp、latitude、longitude、speed列，
+     * 列位置只查找一次，逐行读取基本类型值
+     * @return 追加的点数
+     */
+    public int appendFrom(Cursor cursor) {
+        int idColumn = cursor.getColumnIndexOrThrow("id");
+        int sessionColumn = cursor.getColumnIndexOrThrow("sessionId");
+        int timeColumn = cursor.getColumnIndexOrThrow("timestamp");
+        int latitudeColumn = cursor.getColumnIndexOrThrow("latitude");
+        int longitudeColumn = cursor.getColumnIndexOrThrow("longitude");
+        int speedColumn = cursor.getColumnIndexOrThrow("speed");
+        int start = size;
+        if (cursor.getCount() > 0) {
+            ensureCapacity(size + cursor.getCount());
+        }
+        while (cursor.moveToNext()) {
+            add(cursor.getLong(idColumn), cursor.getLong(sessionColumn), cursor.getLong(timeColumn),
+                    cursor.getDouble(latitudeColumn), cursor.getDouble(longitudeColumn),
+                    cursor.getFloat(speedColumn));
+        }
+        return size - start;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public long getSessionId(int index) {
+        return sessionIds[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    public float getSpeed(int index) {
+        return speeds[index];
+    }
+
+    /**
+     * 纬度数组，前size()个元素有效，供简化等算法直接读取
+     */
+    public double[] latitudes() {
+        return latitudes;
+    }
+
+    /**
+     * 经度数组，前size()个元素有效
+     */
+    public double[] longitudes() {
+        return longitudes;
+    }
+
+    /**
+     * 时间数组，前size()个元素有效
+     */
+    public long[] times() {
+        return times;
+    }
+
+    /**
+     * ID数组，前size()个元素有效
+     */
+    public long[] ids() {
+        return ids;
+    }
+
+    /**
+     * 会话的结束位置（不含）
+     * 从start开始连续属于同一会话的点构成一段轨迹
+     */
+    public int segmentEnd(int start) {
+        int end = start + 1;
+        while (end < size && sessionIds[end] == sessionIds[start]) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 总距离（米）
+     * 只累加同一会话内相邻点之间的大圆距离
+     */
+    public double getDistance() {
+        double distance = 0;
+        for (int i = 1; i < size; i++) {
+            if (sessionIds[i] == sessionIds[i - 1]) {
+                distance += distanceBetween(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * 按会话简化轨迹，只保留简化后的点
+     * @param tolerance 容差（米）
+     */
+    public void simplify(double tolerance) {
+        if (size <= 2) {
+            return;
+        }
+        boolean[] keep = new boolean[size];
+        for (int start = 0; start < size; ) {
+            int end = segmentEnd(start);
+            TrackSimplifier.simplify(latitudes, longitudes, start, end, tolerance, keep);
+            start = end;
+        }
+        retain(keep);
+    }
+
+    /**
+     * 只保留标记为true的点，保持原有顺序
+     */
+    public void retain(boolean[] keep) {
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            if (target != i) {
+                ids[target] = ids[i];
+                sessionIds[target] = sessionIds[i];
+                times[target] = times[i];
+                latitudes[target] = latitudes[i];
+                longitudes[target] = longitudes[i];
+                speeds[target] = speeds[i];
+            }
+            target++;
+        }
+        size = target;
+    }
+
+    /**
+     * 两点之间的大圆距离（米），不像Location.distanceBetween那样为每次计算分配结果数组
+     */
+    private static double distanceBetween(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            grow(Math.max(capacity, ids.length * 2));
+        }
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        sessionIds = Arrays.copyOf(sessionIds, capacity);
+        times = Arrays.copyOf(times, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.footprintexplorer.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import androidx.core.content.FileProvider;
+import androidx.lifecycle.LiveData;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.example.footprintexplorer.services.TrackExportWorker;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 轨迹导出工具类
+ * 将轨迹导出任务提交到WorkManager，并分享导出的文件
+ */
+public class TrackExportUtils {
+
+    private static final String TRACK_EXPORT_WORK = "track_export";
+
+    /**
+     * 导出单个会话的轨迹
+     * 进度见{@link TrackExportWorker#KEY_PROGRESS}，成功后可用
+     * {@link TrackExportWorker#KEY_FILE_PATH}取得文件并调用{@link #shareTrackFile}分享
+     */
+    public static LiveData<WorkInfo> exportSession(Context context, long sessionId,
+                                                   TrackExporter.Format format, boolean gzip) {
+        Data input = new Data.Builder()
+                .putString(TrackExportWorker.KEY_FORMAT, format.name())
+                .putBoolean(TrackExportWorker.KEY_GZIP, gzip)
+                .putLong(TrackExportWorker.KEY_SESSION_ID, sessionId)
+                .putString(TrackExportWorker.KEY_FILE_NAME, generateFileName("session" + sessionId, format, gzip))
+                .build();
+        return enqueue(context, input);
+    }
+
+    /**
+     * 导出时间范围内的全部轨迹
+     */
+    public static LiveData<WorkInfo> exportRange(Context context, Date startTime, Date endTime,
+                                                 TrackExporter.Format format, boolean gzip) {
+        Data input = new Data.Builder()
+                .putString(TrackExportWorker.KEY_FORMAT, format.name())
+                .putBoolean(TrackExportWorker.KEY_GZIP, gzip)
+                .putLong(TrackExportWorker.KEY_START_TIME, startTime.getTime())
+                .putLong(TrackExportWorker.KEY_END_TIME, endTime.getTime())
+                .putString(TrackExportWorker.KEY_FILE_NAME, generateFileName("tracks", format, gzip))
+                .build();
+        return enqueue(context, input);
+    }
+
+    /**
+     * 分享轨迹文件
+     */
+    public static void shareTrackFile(Context context, File file, TrackExporter.Format format, boolean gzip) {
+        Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
+        
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType(gzip ? "application/gzip" : format.getMimeType());
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        
+        context.startActivity(Intent.createChooser(intent, "分享轨迹"));
+    }
+
+    /**
+     * 提交导出任务
+     * 导出任务依次执行，同一时间只有一个导出在读取数据库
+     */
+    private static LiveData<WorkInfo> enqueue(Context context, Data input) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TrackExportWorker.class)
+                .setInputData(input)
+                .build();
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniqueWork(TRACK_EXPORT_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+        return workManager.getWorkInfoByIdLiveData(request.getId());
+    }
+
+    /**
+     * 生成文件名
+     */
+    private static String generateFileName(String name, TrackExporter.Format format, boolean gzip) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String timestamp = dateFormat.format(new Date());
+        return "FootprintExplorer_" + name + "_" + timestamp + "." + format.getExtension() + (gzip ? ".gz" : "");
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.footprintexplorer.utils;
+
+import android.util.Log;
+
+import com.example.footprintexplorer.data.database.FootprintDatabase;
+import com.example.footprintexplorer.data.entity.LocationRecord;
+import com.example.footprintexplorer.data.entity.TrackingSession;
+import com.example.footprintexplorer.data.partition.LocationPartitionRouter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 轨迹导出器
+ * 将位置记录流式写出为GPX、GeoJSON或KML，可选gzip压缩。
+ * 位置记录以键集分页分批读取，每批写入缓冲输出流后即丢弃，
+ * 内存占用与导出的点数无关。读取经过分区路由，只访问范围涉及的月份。需在后台线程调用。
+ */
+public class TrackExporter {
+
+    private static final String TAG = "TrackExporter";
+
+    // 每次从数据库读取的位置点数
+    private static final int BATCH_SIZE = 1000;
+
+    // 输出缓冲区大小
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        GPX("gpx", "application/gpx+xml"),
+        GEOJSON("geojson", "application/geo+json"),
+        KML("kml", "application/vnd.google-earth.kml+xml");
+
+        private final String extension;
+        private final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    private final FootprintDatabase database;
+    private final LocationPartitionRouter router;
+    private final OnProgressListener progressListener;
+    private volatile boolean cancelled;
+
+    public TrackExporter(FootprintDatabase database, LocationPartitionRouter router,
+                         OnProgressListener progressListener) {
+        this.database = database;
+        this.router = router;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * 导出单个会话的轨迹
+     * @return 导出的位置点数
+     * @throws InterruptedIOException 导出被取消
+     */
+    public int exportSession(long sessionId, Format format, boolean gzip, File output) throws IOException {
+        TrackingSession session = database.trackingSessionDao().getSessionByIdSync(sessionId);
+        if (session == null) {
+            throw new IOException("会话不存在: " + sessionId);
+        }
+        int total = router.getLocationCountBySession(session);
+        return export(Collections.singletonList(session), Long.MIN_VALUE, Long.MAX_VALUE,
+                total, format, gzip, output);
+    }
+
+    /**
+     * 导出时间范围内的全部轨迹，每个会话为一条轨迹
+     * 逐个会话分页读取范围内的点，时间重叠的会话也各自输出为完整的一条轨迹
+     * @return 导出的位置点数
+     * @throws InterruptedIOException 导出被取消
+     */
+    public int exportRange(long startTime, long endTime, Format format, boolean gzip, File output)
+            throws IOException {
+        List<TrackingSession> sessions = database.trackingSessionDao().getSessionsOverlapping(startTime, endTime);
+        int total = router.getLocationCountBetween(startTime, endTime);
+        return export(sessions, startTime, endTime, total, format, gzip, output);
+    }
+
+    /**
+     * 取消导出，在下一批数据前生效
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private int export(List<TrackingSession> sessions, long startTime, long endTime, int total,
+                       Format format, boolean gzip, File output) throws IOException {
+        long startNanos = System.nanoTime();
+        int exported = 0;
+
+        OutputStream stream = new FileOutputStream(output);
+        if (gzip) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            TrackWriter trackWriter = createWriter(format, writer);
+            trackWriter.begin();
+
+            for (TrackingSession session : sessions) {
+                exported += exportTrack(trackWriter, session, startTime, endTime, exported, total);
+            }
+            trackWriter.end();
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1000000);
+        Log.d(TAG, "导出 " + format + (gzip ? ".gz" : "") + ": " + exported + " 点, "
+                + output.length() / 1024 + "KB, " + elapsedMs + "ms, "
+                + exported * 1000L / elapsedMs + " 点/秒");
+        return exported;
+    }
+
+    /**
+     * 导出一个会话在时间范围内的点，没有点时不输出轨迹
+     * @param exportedBefore 之前会话已导出的点数，用于报告进度
+     * @return 导出的位置点数
+     */
+    private int exportTrack(TrackWriter trackWriter, TrackingSession session, long startTime, long endTime,
+                            int exportedBefore, int total) throws IOException {
+        int exported = 0;
+        long afterTime = startTime;
+        long afterId = Long.MIN_VALUE;
+        boolean reachedEnd = false;
+        List<LocationRecord> batch;
+        do {
+            if (cancelled) {
+                throw new InterruptedIOException("轨迹导出已取消");
+            }
+            batch = router.getLocationsBySessionPage(session, afterTime, afterId, BATCH_SIZE);
+            for (LocationRecord record : batch) {
+                // 会话内按时间排序，超出范围后的点都不导出
+                if (record.getTimestamp() > endTime) {
+                    reachedEnd = true;
+                    break;
+                }
+                if (exported == 0) {
+                    trackWriter.beginTrack(session.getId());
+                }
+                trackWriter.point(record);
+                exported++;
+            }
+            if (!batch.isEmpty()) {
+                LocationRecord last = batch.get(batch.size() - 1);
+                afterTime = last.getTimestamp();
+                afterId = last.getId();
+            }
+            if (progressListener != null) {
+                progressListener.onProgress(exportedBefore + exported, total);
+            }
+        } while (!reachedEnd && batch.size() == BATCH_SIZE);
+
+        if (exported > 0) {
+            trackWriter.endTrack();
+        }
+        return exported;
+    }
+
+    private static TrackWriter createWriter(Format format, Writer writer) {
+        switch (format) {
+            case GEOJSON:
+                return new GeoJsonWriter(writer);
+            case KML:
+                return new KmlWriter(writer);
+            default:
+                return new GpxWriter(writer);
+        }
+    }
+
+    /**
+     * 导出进度回调
+     */
+    public interface OnProgressListener {
+        void onProgress(int exportedPoints, int totalPoints);
+    }
+
+    /**
+     * 格式写入器
+     * 每个位置点先拼接到复用的StringBuilder再一次写出，避免逐字段写入和格式化开销
+     */
+    private abstract static class TrackWriter {
+
+        protected final Writer writer;
+        protected final StringBuilder line = new StringBuilder(128);
+
+        TrackWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        abstract void begin() throws IOException;
+
+        abstract void beginTrack(long sessionId) throws IOException;
+
+        abstract void point(LocationRecord record) throws IOException;
+
+        abstract void endTrack() throws IOException;
+
+        abstract void end() throws IOException;
+
+        protected void flushLine() throws IOException {
+            writer.append(line);
+            line.setLength(0);
+        }
+
+        /**
+         * 以定点小数追加数值
+         * Double.toString对小数值会输出科学计数法，GPX和KML不接受
+         */
+        protected void appendFixed(double value, int decimals) {
+            long scale = 1;
+            for (int i = 0; i < decimals; i++) {
+                scale *= 10;
+            }
+            long scaled = Math.round(value * scale);
+            if (scaled < 0) {
+                line.append('-');
+                scaled = -scaled;
+            }
+            line.append(scaled / scale);
+            if (decimals > 0) {
+                line.append('.');
+                String fraction = Long.toString(scaled % scale);
+                for (int i = fraction.length(); i < decimals; i++) {
+                    line.append('0');
+                }
+                line.append(fraction);
+            }
+        }
+    }
+
+    /**
+     * GPX 1.1
+     * 每个会话为一个trk，包含一个trkseg
+     */
+    private static class GpxWriter extends TrackWriter {
+
+        private final SimpleDateFormat timeFormat;
+        // 格式化时间时复用，不为每个点创建Date
+        private final Date time = new Date();
+
+        GpxWriter(Writer writer) {
+            super(writer);
+            timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+            timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        @Override
+        void begin() throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<gpx version=\"1.1\" creator=\"FootprintExplorer\" "
+                    + "xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+        }
+
+        @Override
+        void beginTrack(long sessionId) throws IOException {
+            writer.write("<trk><name>会话 " + sessionId + "</name><trkseg>\n");
+        }
+
+        @Override
+        void point(LocationRecord record) throws IOException {
+            line.append("<trkpt lat=\"");
+            appendFixed(record.getLatitude(), 7);
+            line.append("\" lon=\"");
+            appendFixed(record.getLongitude(), 7);
+            line.append("\"><ele>");
+            appendFixed(record.getAltitude(), 1);
+            time.setTime(record.getTimestamp());
+            line.append("</ele><time>").append(timeFormat.format(time)).append("</time></trkpt>\n");
+            flushLine();
+        }
+
+        @Override
+        void endTrack() throws IOException {
+            writer.write("</trkseg></trk>\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            writer.write("</gpx>\n");
+        }
+    }
+
+    /**
+     * GeoJSON
+     * 每个会话为一个LineString要素
+     */
+    private static class GeoJsonWriter extends TrackWriter {
+
+        private boolean firstTrack = true;
+        private boolean firstPoint;
+
+        GeoJsonWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void begin() throws IOException {
+            writer.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+        }
+
+        @Override
+        void beginTrack(long sessionId) throws IOException {
+            writer.write(firstTrack ? "" : ",\n");
+            writer.write("{\"type\":\"Feature\",\"properties\":{\"sessionId\":" + sessionId
+                    + "},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[\n");
+            firstTrack = false;
+            firstPoint = true;
+        }
+
+        @Override
+        void point(LocationRecord record) throws IOException {
+            if (!firstPoint) {
+                line.append(",\n");
+            }
+            firstPoint = false;
+            line.append('[');
+            appendFixed(record.getLongitude(), 7);
+            line.append(',');
+            appendFixed(record.getLatitude(), 7);
+            line.append(',');
+            appendFixed(record.getAltitude(), 1);
+            line.append(']');
+            flushLine();
+        }
+
+        @Override
+        void endTrack() throws IOException {
+            writer.write("]}}");
+        }
+
+        @Override
+        void end() throws IOException {
+            writer.write("\n]}\n");
+        }
+    }
+
+    /**
+     * KML 2.2
+     * 每个会话为一个包含LineString的Placemark
+     */
+    private static class KmlWriter extends TrackWriter {
+
+        KmlWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void begin() throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<kml xmlns=\"http://www.opengis.net/kml/2.2\"><Document>\n");
+        }
+
+        @Override
+        void beginTrack(long sessionId) throws IOException {
+            writer.write("<Placemark><name>会话 " + sessionId + "</name>"
+                    + "<LineString><tessellate>1</tessellate><coordinates>\n");
+        }
+
+        @Override
+        void point(LocationRecord record) throws IOException {
+            appendFixed(record.getLongitude(), 7);
+            line.append(',');
+            appendFixed(record.getLatitude(), 7);
+            line.append(',');
+            appendFixed(record.getAltitude(), 1);
+            line.append('\n');
+            flushLine();
+        }
+
+        @Override
+        void endTrack() throws IOException {
+            writer.write("</coordinates></LineString></Placemark>\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            writer.write("</Document></kml>\n");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.footprintexplorer.utils;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.example.footprintexplorer.importer.TrackImporter;
+import com.example.footprintexplorer.services.TrackImportWorker;
+
+/**
+ * 轨迹导入工具类
+ * 将轨迹导入任务提交到WorkManager
+ */
+public class TrackImportUtils {
+
+    private static final String TRACK_IMPORT_WORK = "track_import";
+
+    /**
+     * 导入轨迹文件
+     * 进度见{@link TrackImportWorker#KEY_PROGRESS}，成功后输出会话数和点数
+     * 任务可能在界面关闭后才执行，通过ACTION_OPEN_DOCUMENT选择的文件需先获取持久化读取权限
+     * @param uri 用户选择的文件
+     * @param format 文件格式，为null时按文件名识别
+     */
+    public static LiveData<WorkInfo> importFile(Context context, Uri uri, TrackImporter.Format format) {
+        Data.Builder input = new Data.Builder()
+                .putString(TrackImportWorker.KEY_URI, uri.toString());
+        if (format != null) {
+            input.putString(TrackImportWorker.KEY_FORMAT, format.name());
+        }
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TrackImportWorker.class)
+                .setInputData(input.build())
+                .build();
+        
+        // 导入任务依次执行，避免多个大事务交替写入
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniqueWork(TRACK_IMPORT_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+        return workManager.getWorkInfoByIdLiveData(request.getId());
+    }
+}
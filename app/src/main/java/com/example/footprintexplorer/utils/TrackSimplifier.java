@@ -0,0 +1,137 @@
+package com.example.footprintexplorer.utils;
+
+/**
+ * 轨迹简化工具类
+ * 在基本类型数组上执行Douglas-Peucker简化和停留点识别，
+ * 结果以保留标记数组返回，不为每个点分配对象
+ */
+public class TrackSimplifier {
+
+    // 纬度一度对应的米数（近似）
+    private static final double METERS_PER_DEGREE = 111320.0;
+
+    /**
+     * Douglas-Peucker简化
+     * 以轨迹中点纬度做等距投影，保留偏离简化线超过容差的点，首尾两点总是保留
+     * @param latitudes 纬度
+     * @param longitudes 经度
+     * @param count 点数
+     * @param tolerance 容差（米）
+     * @param keep 保留标记，结果写入其中（已有的true不会被清除）
+     */
+    public static void simplify(double[] latitudes, double[] longitudes, int count,
+                                double tolerance, boolean[] keep) {
+        simplify(latitudes, longitudes, 0, count, tolerance, keep);
+    }
+
+    /**
+     * 对数组中的一段执行Douglas-Peucker简化
+     * 用于TrackBuffer中按会话分段的轨迹，各段首尾两点总是保留
+     * @param from 起始位置（含）
+     * @param to 结束位置（不含）
+     */
+    public static void simplify(double[] latitudes, double[] longitudes, int from, int to,
+                                double tolerance, boolean[] keep) {
+        if (to - from <= 2) {
+            for (int i = from; i < to; i++) {
+                keep[i] = true;
+            }
+            return;
+        }
+
+        double lonScale = Math.cos(Math.toRadians(latitudes[(from + to) >>> 1]));
+        double toleranceSquared = tolerance * tolerance;
+        keep[from] = true;
+        keep[to - 1] = true;
+
+        // 用显式栈代替递归，长轨迹不会栈溢出
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = from;
+        stack[top++] = to - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            double ax = longitudes[first] * lonScale * METERS_PER_DEGREE;
+            double ay = latitudes[first] * METERS_PER_DEGREE;
+            double dx = longitudes[last] * lonScale * METERS_PER_DEGREE - ax;
+            double dy = latitudes[last] * METERS_PER_DEGREE - ay;
+            double lengthSquared = dx * dx + dy * dy;
+
+            double maxDistance = -1;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double px = longitudes[i] * lonScale * METERS_PER_DEGREE - ax;
+                double py = latitudes[i] * METERS_PER_DEGREE - ay;
+                double distance;
+                if (lengthSquared == 0) {
+                    distance = px * px + py * py;
+                } else {
+                    double t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+                    double ex = px - t * dx;
+                    double ey = py - t * dy;
+                    distance = ex * ex + ey * ey;
+                }
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (maxDistance > toleranceSquared) {
+                keep[index] = true;
+                if (top + 4 > stack.length) {
+                    int[] grown = new int[stack.length * 2];
+                    System.arraycopy(stack, 0, grown, 0, top);
+                    stack = grown;
+                }
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+    }
+
+    /**
+     * 标记停留点
+     * 从某点开始，后续点都在半径范围内且持续时间达到阈值时视为一次停留，
+     * 保留停留的第一个和最后一个点，简化后仍能得到到达和离开时间
+     * @param latitudes 纬度
+     * @param longitudes 经度
+     * @param times 时间戳（毫秒），按时间排序
+     * @param count 点数
+     * @param radius 停留半径（米）
+     * @param minDuration 最短停留时间（毫秒）
+     * @param keep 保留标记，结果写入其中
+     * @return 停留次数
+     */
+    public static int markStayPoints(double[] latitudes, double[] longitudes, long[] times, int count,
+                                     double radius, long minDuration, boolean[] keep) {
+        double radiusSquared = radius * radius;
+        int stays = 0;
+        int i = 0;
+        while (i < count) {
+            double lonScale = Math.cos(Math.toRadians(latitudes[i])) * METERS_PER_DEGREE;
+            int j = i + 1;
+            while (j < count) {
+                double dx = (longitudes[j] - longitudes[i]) * lonScale;
+                double dy = (latitudes[j] - latitudes[i]) * METERS_PER_DEGREE;
+                if (dx * dx + dy * dy > radiusSquared) {
+                    break;
+                }
+                j++;
+            }
+            if (times[j - 1] - times[i] >= minDuration) {
+                keep[i] = true;
+                keep[j - 1] = true;
+                stays++;
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return stays;
+    }
+}